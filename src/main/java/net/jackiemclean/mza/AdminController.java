@@ -0,0 +1,19 @@
+package net.jackiemclean.mza;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/admin")
+public class AdminController {
+
+  @Autowired private ZoneSourceReloader reloader;
+
+  /** Reloads zones and sources from {@code mza.config.reload-file}, reconciling only changes. */
+  @PostMapping("/reload")
+  public ZoneSourceReloader.Result reload() {
+    return reloader.reloadFromFile();
+  }
+}
@@ -1,7 +1,13 @@
 package net.jackiemclean.mza;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -9,29 +15,23 @@ public class AmixerAudioInterface implements AudioInterface {
 
   private static final Logger LOG = LoggerFactory.getLogger(AmixerAudioInterface.class);
 
+  private static final Pattern CONTROL = Pattern.compile("^Simple mixer control '(.+)',\\d+$");
+  private static final Pattern LEVEL = Pattern.compile("\\[(\\d+)%]");
+  // amixer reports levels rounded to the card's steps, so a set 50% may read back as 49%
+  private static final int LEVEL_TOLERANCE = 1;
+
   private final String device;
   private final String amixerCommand;
+  private final CommandExecutor commandExecutor;
 
   public AmixerAudioInterface(String device, String amixerCommand) {
-    this.device = device;
-    this.amixerCommand = amixerCommand;
+    this(device, amixerCommand, new ShellCommandExecutor());
   }
 
-  private void executeAmixerCommand(String command) {
-    LOG.debug("Running -> {}", command);
-    try {
-      ProcessBuilder pb = new ProcessBuilder("/bin/sh", "-c", command);
-      pb.redirectErrorStream(true); // Combine error and output streams
-      Process process = pb.start();
-      BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
-      String line;
-      while ((line = reader.readLine()) != null) {
-        LOG.debug("Command [{}] produced the following output: {}", command, line);
-      }
-      process.waitFor();
-    } catch (Exception e) {
-      throw new RuntimeException("Failed to execute amixer command: " + command, e);
-    }
+  public AmixerAudioInterface(String device, String amixerCommand, CommandExecutor commandExecutor) {
+    this.device = device;
+    this.amixerCommand = amixerCommand;
+    this.commandExecutor = commandExecutor;
   }
 
   /** Sync the source of truth (the zone state) with the audio interface. */
@@ -50,6 +50,89 @@ public class AmixerAudioInterface implements AudioInterface {
         "%s -c'%s' set '%s %s' %d%%; %s -c'%s' set '%s %s' %d%%",
         amixerCommand, device, leftOutput, leftInput, zoneVolume,
         amixerCommand, device, rightOutput, rightInput, zoneVolume);
-    executeAmixerCommand(combinedCmd);
+    commandExecutor.execute(combinedCmd, null);
+  }
+
+  /**
+   * Reads every crosspoint level with one {@code amixer scontents}, works out what each should be
+   * (the zone's volume from its own source, 0 from every other) and sets only those that differ,
+   * all in one {@code amixer -s} invocation. Falls back to a cold start if the mixer cannot be read.
+   */
+  @Override
+  public WarmStart warmStart(List<ZoneSync> syncs, Collection<Source> sources) {
+    Map<String, Integer> current;
+    try {
+      current = readLevels();
+    } catch (RuntimeException e) {
+      LOG.warn("Could not read mixer levels ({}), falling back to a cold start", e.getMessage());
+      return AudioInterface.super.warmStart(syncs, sources);
+    }
+
+    Map<String, Integer> changes = new LinkedHashMap<>();
+    int adopted = 0;
+    for (ZoneSync sync : syncs) {
+      int before = changes.size();
+      desiredLevels(sync, sources).forEach((control, level) -> {
+        Integer now = current.get(control);
+        if (now == null) {
+          LOG.warn("Mixer control '{}' not found on card {}, skipping", control, device);
+        } else if (Math.abs(now - level) > LEVEL_TOLERANCE) {
+          changes.put(control, level);
+        }
+      });
+      if (changes.size() == before) {
+        adopted++;
+      }
+    }
+
+    if (!changes.isEmpty()) {
+      StringBuilder script = new StringBuilder();
+      script.append(String.format("%s -c'%s' -s <<'EOF'\n", amixerCommand, device));
+      changes.forEach((control, level) ->
+          script.append(String.format("sset '%s' %d%%\n", control, level)));
+      script.append("EOF");
+      commandExecutor.execute(script.toString(), null);
+    }
+    return new WarmStart(adopted, syncs.size() - adopted, changes.size());
+  }
+
+  /** Crosspoint level per control: the zone's volume from its source, silence from the rest. */
+  private static Map<String, Integer> desiredLevels(ZoneSync sync, Collection<Source> sources) {
+    Map<String, Integer> levels = new LinkedHashMap<>();
+    for (Source source : sources) {
+      if (!Objects.equals(source.getName(), sync.source().getName())) {
+        putCrosspoints(levels, sync.zone(), source, 0);
+      }
+    }
+    ZoneState zoneState = sync.zoneState();
+    putCrosspoints(levels, sync.zone(), sync.source(), zoneState.isMuted() ? 0 : zoneState.getVolume());
+    return levels;
+  }
+
+  private static void putCrosspoints(Map<String, Integer> levels, Zone zone, Source source, int level) {
+    levels.put(zone.getLeftOutput().getName() + " " + source.getLeftInput().getName(), level);
+    levels.put(zone.getRightOutput().getName() + " " + source.getRightInput().getName(), level);
+  }
+
+  /** Level (percent) of each simple control on the card, from its first reported channel. */
+  Map<String, Integer> readLevels() {
+    List<String> output =
+        commandExecutor.executeAndGetOutput(
+            String.format("%s -c'%s' scontents", amixerCommand, device), null);
+    Map<String, Integer> levels = new HashMap<>();
+    String control = null;
+    for (String line : output) {
+      Matcher name = CONTROL.matcher(line);
+      if (name.matches()) {
+        control = name.group(1);
+        continue;
+      }
+      Matcher level = LEVEL.matcher(line);
+      if (control != null && level.find()) {
+        levels.put(control, Integer.parseInt(level.group(1)));
+        control = null;
+      }
+    }
+    return levels;
   }
 }
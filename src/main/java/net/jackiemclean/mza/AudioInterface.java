@@ -1,5 +1,118 @@
 package net.jackiemclean.mza;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 public interface AudioInterface {
+
+  /**
+   * What a warm start did.
+   *
+   * @param adopted zones the backend already had in the wanted state, left untouched
+   * @param changed zones that needed at least one change
+   * @param commands backend commands (mixer controls set, links or props changed, or syncs) issued
+   */
+  record WarmStart(int adopted, int changed, int commands) {}
+
   void sync(Zone zone, Source source, ZoneState zoneState);
+
+  /**
+   * Moves a zone from one source to another without an audible glitch: the old route is muted
+   * before the new one is brought up. Runs as one ordered sequence and is never merged with other
+   * syncs. The default mutes through the old source, then syncs the new one.
+   */
+  default void switchRoute(Zone zone, Source from, Source to, ZoneState zoneState) {
+    sync(zone, from, mutedOn(zoneState, from));
+    sync(zone, to, zoneState);
+  }
+
+  /**
+   * Brings the backend in line with the stored zone states at startup. Backends that can read their
+   * current state override this to adopt whatever already matches and change only the rest. The
+   * default cannot, so it starts cold: every zone is muted on every source other than its own, one
+   * batch per source, then all zones are synced as one batch.
+   *
+   * @param sources every configured source, so routes from sources no zone uses are silenced too
+   */
+  default WarmStart warmStart(List<ZoneSync> syncs, Collection<Source> sources) {
+    int commands = 0;
+    for (Source source : sources) {
+      List<ZoneSync> mutes = new ArrayList<>(syncs.size());
+      for (ZoneSync sync : syncs) {
+        if (!Objects.equals(source.getName(), sync.source().getName())) {
+          mutes.add(new ZoneSync(sync.zone(), source, mutedOn(sync.zoneState(), source)));
+        }
+      }
+      if (!mutes.isEmpty()) {
+        syncAll(mutes);
+        commands += mutes.size();
+      }
+    }
+    if (!syncs.isEmpty()) {
+      syncAll(syncs);
+    }
+    return new WarmStart(0, syncs.size(), commands + syncs.size());
+  }
+
+  private static ZoneState mutedOn(ZoneState zoneState, Source source) {
+    ZoneState muted = new ZoneState();
+    muted.setName(zoneState.getName());
+    muted.setVolume(zoneState.getVolume());
+    muted.setMuted(true);
+    muted.setSourceName(source.getName());
+    return muted;
+  }
+
+  /**
+   * Applies several zones as one batch. By default each zone is synced on its own virtual thread,
+   * so a batch takes about as long as its slowest zone; returns once all zones are done.
+   */
+  default void syncAll(List<ZoneSync> syncs) {
+    if (syncs.size() == 1) {
+      apply(syncs.get(0));
+      return;
+    }
+
+    try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+      List<Future<?>> futures = new ArrayList<>(syncs.size());
+      for (ZoneSync sync : syncs) {
+        futures.add(executor.submit(() -> apply(sync)));
+      }
+      RuntimeException failure = null;
+      for (Future<?> future : futures) {
+        try {
+          future.get();
+        } catch (ExecutionException e) {
+          if (failure == null) {
+            failure =
+                e.getCause() instanceof RuntimeException re
+                    ? re
+                    : new RuntimeException("Failed to sync zone", e.getCause());
+          } else {
+            failure.addSuppressed(e.getCause());
+          }
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new RuntimeException("Interrupted while syncing zones", e);
+        }
+      }
+      if (failure != null) {
+        throw failure;
+      }
+    }
+  }
+
+  private void apply(ZoneSync sync) {
+    if (sync.previousSource() != null) {
+      switchRoute(sync.zone(), sync.previousSource(), sync.source(), sync.zoneState());
+    } else {
+      sync(sync.zone(), sync.source(), sync.zoneState());
+    }
+  }
 }
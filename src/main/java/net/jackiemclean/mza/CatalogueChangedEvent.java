@@ -0,0 +1,11 @@
+package net.jackiemclean.mza;
+
+import java.util.Set;
+
+/**
+ * Published after the set of configured zones or sources changes at runtime.
+ *
+ * @param zones zones that were added, removed or redefined
+ * @param sourcesChanged whether any source was added, removed or redefined
+ */
+public record CatalogueChangedEvent(Set<String> zones, boolean sourcesChanged) {}
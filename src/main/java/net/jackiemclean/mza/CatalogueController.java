@@ -0,0 +1,47 @@
+package net.jackiemclean.mza;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * Paginated listing of the zones and sources, and, with {@code mza.catalogue.store=DATABASE},
+ * adding and removing them at runtime.
+ */
+@RestController
+@RequestMapping("/api/catalogue")
+public class CatalogueController {
+
+  @Autowired private ZoneSourceCatalogue catalogue;
+
+  @GetMapping("/zones")
+  public ZoneSourceCatalogue.Listing<Zone> getZones(
+      @RequestParam(defaultValue = "0") int page, @RequestParam(defaultValue = "100") int size) {
+    return catalogue.zones(page, size);
+  }
+
+  @PostMapping("/zones")
+  public ZoneSourceReloader.Result addZone(@RequestBody Zone zone) {
+    return catalogue.addZone(zone);
+  }
+
+  @DeleteMapping("/zones/{name}")
+  public ZoneSourceReloader.Result removeZone(@PathVariable String name) {
+    return catalogue.removeZone(name);
+  }
+
+  @GetMapping("/sources")
+  public ZoneSourceCatalogue.Listing<Source> getSources(
+      @RequestParam(defaultValue = "0") int page, @RequestParam(defaultValue = "100") int size) {
+    return catalogue.sources(page, size);
+  }
+
+  @PostMapping("/sources")
+  public ZoneSourceReloader.Result addSource(@RequestBody Source source) {
+    return catalogue.addSource(source);
+  }
+
+  @DeleteMapping("/sources/{name}")
+  public ZoneSourceReloader.Result removeSource(@PathVariable String name) {
+    return catalogue.removeSource(name);
+  }
+}
@@ -4,8 +4,12 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.DisposableBean;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.*;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Decorator that debounces/coalesces rapid sync requests per zone.
@@ -21,8 +25,10 @@ public class DebouncingAudioInterface implements AudioInterface, DisposableBean
     private final ScheduledExecutorService scheduler;
     private final long quantumMs;
 
-    // Per-zone pending state
+    // Per-zone pending state. Guarded by lock, which is never held across a
+    // delegate call: those block on the audio backend.
     private final Map<String, PendingSyncState> pending = new ConcurrentHashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
 
     public DebouncingAudioInterface(AudioInterface delegate, long quantumMs) {
         this(delegate, quantumMs, Executors.newSingleThreadScheduledExecutor(r -> {
@@ -41,44 +47,138 @@ public class DebouncingAudioInterface implements AudioInterface, DisposableBean
 
     @Override
     public void sync(Zone zone, Source source, ZoneState zoneState) {
-        String zoneName = zone.getName();
-
-        synchronized (pending) {
-            PendingSyncState existing = pending.get(zoneName);
-
-            if (existing != null) {
-                // Merge: latest values win
-                existing.merge(zone, source, zoneState);
-                // Cancel existing scheduled flush
-                existing.cancelScheduledFlush();
-            } else {
-                existing = new PendingSyncState(zone, source, zoneState);
-                pending.put(zoneName, existing);
+        syncAll(List.of(new ZoneSync(zone, source, zoneState)));
+    }
+
+    /**
+     * Queues all zones under a single flush, so zones changed together (e.g. a
+     * group) reach the delegate as one {@link AudioInterface#syncAll} batch.
+     */
+    @Override
+    public void syncAll(List<ZoneSync> syncs) {
+        List<ZoneSync> switches = new ArrayList<>();
+        List<ZoneSync> queue = new ArrayList<>(syncs.size());
+        for (ZoneSync sync : syncs) {
+            (sync.previousSource() != null ? switches : queue).add(sync);
+        }
+        if (!switches.isEmpty()) {
+            runSwitches(switches);
+        }
+        if (queue.isEmpty()) {
+            return;
+        }
+
+        Object flushToken = new Object();
+        boolean shared = queue.size() > 1;
+        List<String> zoneNames = new ArrayList<>(queue.size());
+
+        lock.lock();
+        try {
+            List<PendingSyncState> queued = new ArrayList<>(queue.size());
+            for (ZoneSync sync : queue) {
+                String zoneName = sync.zone().getName();
+                PendingSyncState existing = pending.get(zoneName);
+
+                if (existing != null) {
+                    // Merge: latest values win
+                    existing.merge(sync.zone(), sync.source(), sync.zoneState());
+                    // Cancel existing scheduled flush
+                    existing.cancelScheduledFlush();
+                } else {
+                    existing = new PendingSyncState(sync.zone(), sync.source(), sync.zoneState());
+                    pending.put(zoneName, existing);
+                }
+                queued.add(existing);
+                zoneNames.add(zoneName);
             }
 
             // Schedule new flush
             ScheduledFuture<?> future = scheduler.schedule(
-                    () -> flush(zoneName),
+                    () -> flush(flushToken, zoneNames),
                     quantumMs,
                     TimeUnit.MILLISECONDS);
-            existing.setScheduledFlush(future);
+            for (PendingSyncState state : queued) {
+                state.setScheduledFlush(flushToken, future, shared);
+            }
 
-            LOG.debug("Queued sync for zone {} (quantum={}ms)", zoneName, quantumMs);
+            LOG.debug("Queued sync for zones {} (quantum={}ms)", zoneNames, quantumMs);
+        } finally {
+            lock.unlock();
         }
     }
 
-    private void flush(String zoneName) {
-        PendingSyncState state;
-        synchronized (pending) {
-            state = pending.remove(zoneName);
+    /**
+     * Route switches are not debounced: merging the protective mute with the
+     * new route would lose it. Any queued state for the zone is superseded by
+     * the switch, which carries the latest state.
+     */
+    @Override
+    public void switchRoute(Zone zone, Source from, Source to, ZoneState zoneState) {
+        runSwitches(List.of(new ZoneSync(zone, to, zoneState, from)));
+    }
+
+    /**
+     * Startup reconciliation is not debounced either: it runs once, reads the
+     * backend's current state and must not race a queued flush for the same
+     * zones, so those are dropped first.
+     */
+    @Override
+    public WarmStart warmStart(List<ZoneSync> syncs, Collection<Source> sources) {
+        cancelPending(syncs);
+        return delegate.warmStart(syncs, sources);
+    }
+
+    private void runSwitches(List<ZoneSync> switches) {
+        cancelPending(switches);
+        delegate.syncAll(switches);
+    }
+
+    private void cancelPending(List<ZoneSync> syncs) {
+        lock.lock();
+        try {
+            for (ZoneSync sync : syncs) {
+                PendingSyncState existing = pending.remove(sync.zone().getName());
+                if (existing != null) {
+                    existing.cancelScheduledFlush();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void flush(Object flushToken, List<String> zoneNames) {
+        List<PendingSyncState> states = new ArrayList<>(zoneNames.size());
+        lock.lock();
+        try {
+            for (String zoneName : zoneNames) {
+                // A zone re-queued since has its own, later flush
+                PendingSyncState state = pending.get(zoneName);
+                if (state != null && state.flushToken == flushToken) {
+                    pending.remove(zoneName);
+                    states.add(state);
+                }
+            }
+        } finally {
+            lock.unlock();
         }
 
-        if (state != null) {
-            LOG.debug("Flushing debounced sync for zone {}", zoneName);
+        if (states.size() == 1) {
+            PendingSyncState state = states.get(0);
+            LOG.debug("Flushing debounced sync for zone {}", state.zone.getName());
             try {
                 delegate.sync(state.zone, state.source, state.zoneState);
             } catch (Exception e) {
-                LOG.error("Error syncing zone {} after debounce", zoneName, e);
+                LOG.error("Error syncing zone {} after debounce", state.zone.getName(), e);
+            }
+        } else if (!states.isEmpty()) {
+            LOG.debug("Flushing debounced sync for {} zones", states.size());
+            try {
+                delegate.syncAll(states.stream()
+                        .map(state -> new ZoneSync(state.zone, state.source, state.zoneState))
+                        .toList());
+            } catch (Exception e) {
+                LOG.error("Error syncing zones {} after debounce", zoneNames, e);
             }
         }
     }
@@ -88,20 +188,24 @@ public class DebouncingAudioInterface implements AudioInterface, DisposableBean
         LOG.info("Shutting down debouncing audio interface, flushing pending syncs");
         scheduler.shutdown();
 
-        // Flush all pending immediately
-        synchronized (pending) {
-            for (String zoneName : pending.keySet()) {
-                PendingSyncState state = pending.get(zoneName);
-                if (state != null) {
-                    state.cancelScheduledFlush();
-                    try {
-                        delegate.sync(state.zone, state.source, state.zoneState);
-                    } catch (Exception e) {
-                        LOG.error("Error flushing zone {} on shutdown", zoneName, e);
-                    }
-                }
-            }
+        // Flush all pending immediately, outside the lock
+        List<PendingSyncState> states;
+        lock.lock();
+        try {
+            states = new ArrayList<>(pending.values());
             pending.clear();
+            for (PendingSyncState state : states) {
+                state.cancelScheduledFlush();
+            }
+        } finally {
+            lock.unlock();
+        }
+        for (PendingSyncState state : states) {
+            try {
+                delegate.sync(state.zone, state.source, state.zoneState);
+            } catch (Exception e) {
+                LOG.error("Error flushing zone {} on shutdown", state.zone.getName(), e);
+            }
         }
 
         try {
@@ -122,6 +226,8 @@ public class DebouncingAudioInterface implements AudioInterface, DisposableBean
         Source source;
         ZoneState zoneState;
         ScheduledFuture<?> scheduledFlush;
+        Object flushToken;
+        boolean sharedFlush;
 
         PendingSyncState(Zone zone, Source source, ZoneState zoneState) {
             this.zone = zone;
@@ -142,12 +248,16 @@ public class DebouncingAudioInterface implements AudioInterface, DisposableBean
             }
         }
 
-        void setScheduledFlush(ScheduledFuture<?> future) {
+        void setScheduledFlush(Object flushToken, ScheduledFuture<?> future, boolean shared) {
+            this.flushToken = flushToken;
             this.scheduledFlush = future;
+            this.sharedFlush = shared;
         }
 
         void cancelScheduledFlush() {
-            if (scheduledFlush != null && !scheduledFlush.isDone()) {
+            // A flush shared with other zones still has to run for them; it
+            // skips this zone once the token has changed
+            if (!sharedFlush && scheduledFlush != null && !scheduledFlush.isDone()) {
                 scheduledFlush.cancel(false);
             }
         }
@@ -0,0 +1,26 @@
+package net.jackiemclean.mza;
+
+import java.util.Set;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@RestController
+@RequestMapping("/api/events")
+public class EventController {
+
+  @Autowired private StateEventBroadcaster broadcaster;
+
+  /**
+   * Streams zone and group changes. Without filters every change is sent; {@code zone} and
+   * {@code group} may be repeated, and a group filter includes changes to the group's zones.
+   */
+  @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  public SseEmitter streamEvents(
+      @RequestParam(name = "zone", required = false, defaultValue = "") Set<String> zones,
+      @RequestParam(name = "group", required = false, defaultValue = "") Set<String> groups,
+      @RequestHeader(name = "Last-Event-ID", required = false) Long lastEventId) {
+    return broadcaster.subscribe(zones, groups, lastEventId);
+  }
+}
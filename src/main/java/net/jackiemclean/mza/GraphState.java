@@ -5,8 +5,8 @@ import java.util.Map;
 
 /**
  * Immutable snapshot of the portion of the PipeWire graph mza cares about:
- * node name/id mappings, port name/id mappings split by direction, and
- * existing links.
+ * node name/id mappings, port name/id mappings split by direction,
+ * existing links, and the mute/volume props of nodes that report them.
  */
 public record GraphState(
 		Map<String, Integer> nodeIds,
@@ -14,9 +14,14 @@ public record GraphState(
 		Map<String, Integer> inPorts,
 		Map<String, Integer> outPorts,
 		Map<String, String> portNames,
-		List<LinkInfo> links) {
+		List<LinkInfo> links,
+		Map<Integer, NodeProps> nodeProps) {
+
+	/** Mute and linear volume (0.0-1.0) as last reported in a node's Props param. */
+	public record NodeProps(boolean muted, float volume) {
+	}
 
 	public static GraphState empty() {
-		return new GraphState(Map.of(), Map.of(), Map.of(), Map.of(), Map.of(), List.of());
+		return new GraphState(Map.of(), Map.of(), Map.of(), Map.of(), Map.of(), List.of(), Map.of());
 	}
 }
@@ -4,10 +4,11 @@ import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
 import java.util.Collection;
-import java.util.stream.Collectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 @RestController
@@ -21,15 +22,32 @@ public class GroupController {
   @Autowired
   private GroupStateRepository groupStateRepository;
   @Autowired
-  private ZoneController zoneController;
+  private ZoneService zoneService;
+  @Autowired
+  private StateVersions stateVersions;
 
   @GetMapping
-  public Collection<GroupState> getAllGroups() {
-    return groupStateRepository.findAll();
+  public ResponseEntity<byte[]> getAllGroups(
+      @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+    return stateVersions.conditionalGet(
+        "groups",
+        stateVersions.version(StateVersions.GROUP),
+        ifNoneMatch,
+        groupStateRepository::findAll);
   }
 
   @GetMapping("/{name}")
-  public GroupState getGroup(@PathVariable @NotBlank String name) {
+  public ResponseEntity<byte[]> getGroup(
+      @PathVariable @NotBlank String name,
+      @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+    return stateVersions.conditionalGet(
+        "group:" + name,
+        stateVersions.version(StateVersions.GROUP, name),
+        ifNoneMatch,
+        () -> findGroup(name));
+  }
+
+  private GroupState findGroup(String name) {
     return groupStateRepository
         .findByName(name)
         .orElseThrow(() -> new RuntimeException("Group not found"));
@@ -68,49 +86,41 @@ public class GroupController {
     return groupService.removeZoneFromGroup(name, zoneName);
   }
 
-  // Control endpoints - keep existing functionality
+  // Control endpoints - each applies to all zones of the group as one update
   @PatchMapping("/{name}/mute")
   public Collection<ZoneState> muteGroup(
       @PathVariable @NotBlank String name, @RequestParam boolean isMuted) {
-    GroupState group = getGroup(name);
-    return group.getZones().stream()
-        .map(z -> zoneController.muteZone(z, isMuted))
-        .collect(Collectors.toList());
+    GroupState group = findGroup(name);
+    return zoneService.applyChanges(group.getZones(), state -> ZoneChange.muted(isMuted));
   }
 
   @PatchMapping("/{name}/toggleMute")
   public Collection<ZoneState> toggleMuteGroup(@PathVariable @NotBlank String name) {
-    GroupState group = getGroup(name);
-    return group.getZones().stream()
-        .map(z -> zoneController.toggleMuteZone(z))
-        .collect(Collectors.toList());
+    GroupState group = findGroup(name);
+    return zoneService.applyChanges(
+        group.getZones(), state -> ZoneChange.muted(!state.isMuted()));
   }
 
   @PatchMapping("/{name}/volume")
   public Collection<ZoneState> changeGroupVolume(
       @PathVariable @NotBlank String name, @RequestParam int volumePercent) {
-    GroupState group = getGroup(name);
-    return group.getZones().stream()
-        .map(z -> zoneController.changeVolume(z, volumePercent))
-        .collect(Collectors.toList());
+    GroupState group = findGroup(name);
+    return zoneService.applyChanges(group.getZones(), state -> ZoneChange.volume(volumePercent));
   }
 
   @PatchMapping("/{name}/incrementVolume")
   public Collection<ZoneState> incrementGroupVolume(
       @PathVariable @NotBlank String name, @Min(-20) @Max(20) @RequestParam int increment) {
     // Snapcast-style: preserve relative volume differences
-    GroupState group = getGroup(name);
-    return group.getZones().stream()
-        .map(z -> zoneController.incrementVolume(z, increment))
-        .collect(Collectors.toList());
+    GroupState group = findGroup(name);
+    return zoneService.applyChanges(
+        group.getZones(), state -> ZoneChange.volume(state.getVolume() + increment));
   }
 
   @PatchMapping("/{name}/source")
   public Collection<ZoneState> setGroupSource(
       @PathVariable @NotBlank String name, @RequestParam @NotBlank String sourceName) {
-    GroupState group = getGroup(name);
-    return group.getZones().stream()
-        .map(z -> zoneController.changeSource(z, sourceName))
-        .collect(Collectors.toList());
+    GroupState group = findGroup(name);
+    return zoneService.applyChanges(group.getZones(), state -> ZoneChange.source(sourceName));
   }
 }
@@ -8,6 +8,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -23,6 +24,8 @@ public class GroupInitializationService {
     private ZoneRepository zoneRepository;
     @Autowired
     private GroupRouter groupRouter;
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
 
     @EventListener(ApplicationReadyEvent.class)
     @Transactional
@@ -44,6 +47,7 @@ public class GroupInitializationService {
 
                 LOG.info("Created default group for zone: {}", zone.getName());
             }
+            eventPublisher.publishEvent(new GroupTopologyChangedEvent(null));
         } else {
             LOG.info("Groups already exist, skipping initialization");
 
@@ -1,93 +1,90 @@
 package net.jackiemclean.mza;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
-import org.eclipse.paho.client.mqttv3.MqttClient;
-import org.eclipse.paho.client.mqttv3.MqttMessage;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeSet;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.util.Optional;
-
 @Service
 public class GroupRouter {
 
     private static final Logger LOG = LoggerFactory.getLogger(GroupRouter.class);
 
-    @Autowired(required = false)
-    private Optional<MqttClient> mqttClient;
+    private static final byte[] EMPTY = new byte[0];
+
+    @Autowired
+    private MqttPublisher mqttPublisher;
 
     @Value("${mqtt.topic.base.group:mza/group/}")
     String topicBase;
 
     private final ObjectMapper objectMapper = new ObjectMapper();
 
+    /** Publishes the group's state; values the broker already holds are skipped by the publisher. */
     public void publishGroupToMqtt(GroupState groupState) {
-        if (mqttClient == null || mqttClient.isEmpty()) {
-            return;
-        }
-
-        MqttClient client = mqttClient.get();
         try {
             String topic = topicBase + groupState.getName();
-
-            // Publish zones as JSON array with retained flag
-            String zonesJson = objectMapper.writeValueAsString(groupState.getZones());
-            MqttMessage zonesMsg = new MqttMessage(zonesJson.getBytes());
-            zonesMsg.setRetained(true);
-            client.publish(topic + "/zones", zonesMsg);
-
-            // Publish display name
-            if (groupState.getDisplayName() != null) {
-                MqttMessage displayNameMsg = new MqttMessage(groupState.getDisplayName().getBytes());
-                displayNameMsg.setRetained(true);
-                client.publish(topic + "/displayName", displayNameMsg);
+            // Sorted so an unchanged group always encodes to the same payload
+            TreeSet<String> zones = new TreeSet<>(groupState.getZones());
+
+            if (mqttPublisher.topicMode().fields()) {
+                // Publish zones as JSON array with retained flag
+                mqttPublisher.publish(topic + "/zones", objectMapper.writeValueAsBytes(zones), true);
+
+                // Publish display name
+                if (groupState.getDisplayName() != null) {
+                    mqttPublisher.publish(topic + "/displayName", groupState.getDisplayName().getBytes(), true);
+                }
+
+                // Publish description
+                if (groupState.getDescription() != null) {
+                    mqttPublisher.publish(topic + "/description", groupState.getDescription().getBytes(), true);
+                }
+
+                // Publish timestamps
+                mqttPublisher.publish(topic + "/created_at", groupState.getCreatedAt().toString().getBytes(), true);
+                mqttPublisher.publish(topic + "/updated_at", groupState.getUpdatedAt().toString().getBytes(), true);
             }
 
-            // Publish description
-            if (groupState.getDescription() != null) {
-                MqttMessage descMsg = new MqttMessage(groupState.getDescription().getBytes());
-                descMsg.setRetained(true);
-                client.publish(topic + "/description", descMsg);
+            if (mqttPublisher.topicMode().json()) {
+                Map<String, Object> document = new LinkedHashMap<>();
+                document.put("name", groupState.getName());
+                document.put("displayName", groupState.getDisplayName());
+                document.put("description", groupState.getDescription());
+                document.put("zones", zones);
+                document.put("created_at", groupState.getCreatedAt().toString());
+                document.put("updated_at", groupState.getUpdatedAt().toString());
+                mqttPublisher.publish(topic, objectMapper.writeValueAsBytes(document), true);
             }
 
-            // Publish timestamps
-            MqttMessage createdMsg = new MqttMessage(groupState.getCreatedAt().toString().getBytes());
-            createdMsg.setRetained(true);
-            client.publish(topic + "/created_at", createdMsg);
-
-            MqttMessage updatedMsg = new MqttMessage(groupState.getUpdatedAt().toString().getBytes());
-            updatedMsg.setRetained(true);
-            client.publish(topic + "/updated_at", updatedMsg);
-
-            LOG.debug("Published group {} to MQTT", groupState.getName());
+            LOG.debug("Queued group {} for MQTT", groupState.getName());
         } catch (Exception e) {
             LOG.error("Failed to publish group to MQTT", e);
         }
     }
 
     public void publishGroupDeletion(String groupName) {
-        if (mqttClient == null || mqttClient.isEmpty()) {
-            return;
-        }
-
-        MqttClient client = mqttClient.get();
         try {
             String topic = topicBase + groupName;
 
             // Publish empty retained messages to clear state
-            MqttMessage emptyMsg = new MqttMessage(new byte[0]);
-            emptyMsg.setRetained(true);
-
-            client.publish(topic + "/zones", emptyMsg);
-            client.publish(topic + "/displayName", emptyMsg);
-            client.publish(topic + "/description", emptyMsg);
-            client.publish(topic + "/created_at", emptyMsg);
-            client.publish(topic + "/updated_at", emptyMsg);
+            if (mqttPublisher.topicMode().fields()) {
+                mqttPublisher.publish(topic + "/zones", EMPTY, true);
+                mqttPublisher.publish(topic + "/displayName", EMPTY, true);
+                mqttPublisher.publish(topic + "/description", EMPTY, true);
+                mqttPublisher.publish(topic + "/created_at", EMPTY, true);
+                mqttPublisher.publish(topic + "/updated_at", EMPTY, true);
+            }
+            if (mqttPublisher.topicMode().json()) {
+                mqttPublisher.publish(topic, EMPTY, true);
+            }
 
-            LOG.debug("Published group deletion for {} to MQTT", groupName);
+            LOG.debug("Queued group deletion for {} for MQTT", groupName);
         } catch (Exception e) {
             LOG.error("Failed to publish group deletion to MQTT", e);
         }
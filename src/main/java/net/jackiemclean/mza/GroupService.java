@@ -8,6 +8,7 @@ import java.util.stream.Collectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -22,6 +23,8 @@ public class GroupService {
     private ZoneRepository zoneRepository;
     @Autowired
     private GroupRouter groupRouter;
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
 
     @Transactional
     public GroupState createGroup(
@@ -48,6 +51,7 @@ public class GroupService {
 
         GroupState saved = groupStateRepository.save(group);
         groupRouter.publishGroupToMqtt(saved);
+        eventPublisher.publishEvent(new GroupTopologyChangedEvent(saved.getName()));
         LOG.info("Created group: {}", saved.getName());
         return saved;
     }
@@ -87,6 +91,7 @@ public class GroupService {
             createSingleMemberGroup(zoneName);
         }
 
+        eventPublisher.publishEvent(new GroupTopologyChangedEvent(saved.getName()));
         LOG.info("Updated group: {}", saved.getName());
         return saved;
     }
@@ -107,6 +112,7 @@ public class GroupService {
             createSingleMemberGroup(zoneName);
         }
 
+        eventPublisher.publishEvent(new GroupTopologyChangedEvent(name));
         LOG.info("Deleted group: {}", name);
     }
 
@@ -124,6 +130,7 @@ public class GroupService {
 
         GroupState saved = groupStateRepository.save(group);
         groupRouter.publishGroupToMqtt(saved);
+        eventPublisher.publishEvent(new GroupTopologyChangedEvent(groupName));
         LOG.info("Added zone {} to group {}", zoneName, groupName);
         return saved;
     }
@@ -154,10 +161,32 @@ public class GroupService {
 
         // Create single-member group for the removed zone
         createSingleMemberGroup(zoneName);
+        eventPublisher.publishEvent(new GroupTopologyChangedEvent(groupName));
 
         return group;
     }
 
+    /**
+     * Brings groups in line with a changed zone list: removed zones leave their group (a group
+     * left empty is deleted) and added zones not already in a group get a single-member group.
+     */
+    @Transactional
+    public void reconcileZones(Set<String> addedZones, Set<String> removedZones) {
+        if (addedZones.isEmpty() && removedZones.isEmpty()) {
+            return;
+        }
+        for (String zoneName : removedZones) {
+            removeZoneFromCurrentGroup(zoneName);
+        }
+        for (String zoneName : addedZones) {
+            if (groupStateRepository.findByZonesContaining(zoneName).isEmpty()) {
+                createSingleMemberGroup(zoneName);
+            }
+        }
+        eventPublisher.publishEvent(new GroupTopologyChangedEvent(null));
+        LOG.info("Reconciled groups: {} zone(s) added, {} removed", addedZones.size(), removedZones.size());
+    }
+
     private void removeZoneFromCurrentGroup(String zoneName) {
         groupStateRepository
                 .findByZonesContaining(zoneName)
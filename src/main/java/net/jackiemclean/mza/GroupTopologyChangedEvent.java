@@ -0,0 +1,6 @@
+package net.jackiemclean.mza;
+
+/**
+ * Published after groups are created, deleted or have their membership or names changed.
+ */
+public record GroupTopologyChangedEvent(String groupName) {}
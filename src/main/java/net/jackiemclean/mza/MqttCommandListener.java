@@ -0,0 +1,218 @@
+package net.jackiemclean.mza;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Controls zones and groups from MQTT command topics.
+ *
+ * Subscribes to {@code <zone-base><zone>/set/<attribute>} and {@code <group-base><group>/set/<attribute>}
+ * where the attribute is {@code volume} (0-100), {@code muted} ({@code true}/{@code false}) or
+ * {@code source} (a source name). Commands are queued as they arrive and applied by one virtual
+ * thread, which takes everything that arrived within the batch window, folds it into one change per
+ * zone (later commands win) and applies it with {@link ZoneService#applyChanges(List)}. Commands
+ * for a zone are therefore applied in arrival order, and a burst, e.g. a volume slider, costs one
+ * state transition rather than one per message.
+ */
+@Component
+public class MqttCommandListener {
+
+  private static final Logger LOG = LoggerFactory.getLogger(MqttCommandListener.class);
+
+  record Command(boolean group, String name, ZoneChange change) {}
+
+  @Autowired private MqttPublisher mqttPublisher;
+  @Autowired private ZoneService zoneService;
+  @Autowired private GroupStateRepository groupStateRepository;
+
+  @Value("${mqtt.commands.enabled:true}")
+  private boolean enabled;
+
+  @Value("${mqtt.topic.base:mza/zone/}")
+  private String zoneTopicBase;
+
+  @Value("${mqtt.topic.base.group:mza/group/}")
+  private String groupTopicBase;
+
+  @Value("${mqtt.commands.batch-window-ms:20}")
+  private long batchWindowMs;
+
+  @Value("${mqtt.commands.queue-capacity:1024}")
+  private int queueCapacity;
+
+  private BlockingQueue<Command> queue;
+  private volatile boolean running;
+  private Thread worker;
+
+  @PostConstruct
+  public void start() {
+    if (!enabled || !mqttPublisher.isEnabled()) {
+      return;
+    }
+    queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+    running = true;
+    worker = Thread.ofVirtual().name("mqtt-commands").start(this::run);
+    mqttPublisher.subscribe(zoneTopicBase + "+/set/+", this::onMessage);
+    mqttPublisher.subscribe(groupTopicBase + "+/set/+", this::onMessage);
+  }
+
+  /** Parses and queues a command; called on the MQTT callback thread. */
+  void onMessage(String topic, byte[] payload) {
+    Command command = parse(topic, new String(payload, StandardCharsets.UTF_8).trim());
+    if (command == null) {
+      return;
+    }
+    if (!queue.offer(command)) {
+      LOG.warn("MQTT command queue full, dropping command on {}", topic);
+    }
+  }
+
+  /** Null, with a warning, if the topic or payload is not a valid command. */
+  Command parse(String topic, String payload) {
+    boolean group;
+    String rest;
+    if (topic.startsWith(zoneTopicBase)) {
+      group = false;
+      rest = topic.substring(zoneTopicBase.length());
+    } else if (topic.startsWith(groupTopicBase)) {
+      group = true;
+      rest = topic.substring(groupTopicBase.length());
+    } else {
+      LOG.warn("Ignoring MQTT command on unknown topic {}", topic);
+      return null;
+    }
+
+    String[] parts = rest.split("/");
+    if (parts.length != 3 || !parts[1].equals("set") || parts[0].isEmpty()) {
+      LOG.warn("Ignoring MQTT command on unknown topic {}", topic);
+      return null;
+    }
+    try {
+      ZoneChange change =
+          switch (parts[2]) {
+            case "volume" -> {
+              int volume = Integer.parseInt(payload);
+              if (volume < 0 || volume > 100) {
+                throw new IllegalArgumentException("volume out of range");
+              }
+              yield ZoneChange.volume(volume);
+            }
+            case "muted" -> {
+              if (!payload.equalsIgnoreCase("true") && !payload.equalsIgnoreCase("false")) {
+                throw new IllegalArgumentException("expected true or false");
+              }
+              yield ZoneChange.muted(Boolean.parseBoolean(payload));
+            }
+            case "source" -> {
+              if (payload.isEmpty()) {
+                throw new IllegalArgumentException("empty source");
+              }
+              yield ZoneChange.source(payload);
+            }
+            default -> throw new IllegalArgumentException("unknown attribute " + parts[2]);
+          };
+      return new Command(group, parts[0], change);
+    } catch (IllegalArgumentException e) {
+      LOG.warn("Ignoring MQTT command on {} ({}): {}", topic, payload, e.getMessage());
+      return null;
+    }
+  }
+
+  private void run() {
+    List<Command> batch = new ArrayList<>();
+    while (running) {
+      try {
+        batch.add(queue.take());
+        // Let the rest of a burst arrive, then take it all
+        if (batchWindowMs > 0) {
+          Thread.sleep(batchWindowMs);
+        }
+        queue.drainTo(batch);
+        apply(batch);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      } catch (RuntimeException e) {
+        LOG.error("Failed to apply MQTT commands", e);
+      } finally {
+        batch.clear();
+      }
+    }
+  }
+
+  /** Folds commands into one change per zone, in arrival order, and applies them together. */
+  void apply(List<Command> commands) {
+    Map<String, ZoneChange> changes = new LinkedHashMap<>();
+    for (Command command : commands) {
+      Collection<String> zones;
+      if (command.group()) {
+        var group = groupStateRepository.findByName(command.name());
+        if (group.isEmpty()) {
+          LOG.warn("Ignoring MQTT command for unknown group {}", command.name());
+          continue;
+        }
+        zones = group.get().getZones();
+      } else {
+        zones = List.of(command.name());
+      }
+      for (String zone : zones) {
+        changes.merge(zone, command.change(), MqttCommandListener::merge);
+      }
+    }
+    if (changes.isEmpty()) {
+      return;
+    }
+
+    List<ZoneUpdate> updates = new ArrayList<>(changes.size());
+    changes.forEach((zone, change) -> updates.add(new ZoneUpdate(zone, change)));
+    LOG.debug("Applying {} MQTT command(s) as {} zone update(s)", commands.size(), updates.size());
+    try {
+      zoneService.applyChanges(updates);
+    } catch (RuntimeException e) {
+      // One bad zone or source must not drop the others: apply them one by one
+      LOG.warn("MQTT command batch failed ({}), applying zones individually", e.getMessage());
+      for (ZoneUpdate update : updates) {
+        try {
+          zoneService.applyChange(update.name(), update.change());
+        } catch (RuntimeException zoneError) {
+          LOG.warn("MQTT command for zone {} failed: {}", update.name(), zoneError.getMessage());
+        }
+      }
+    }
+  }
+
+  private static ZoneChange merge(ZoneChange earlier, ZoneChange later) {
+    return new ZoneChange(
+        later.volume() != null ? later.volume() : earlier.volume(),
+        later.muted() != null ? later.muted() : earlier.muted(),
+        later.sourceName() != null ? later.sourceName() : earlier.sourceName());
+  }
+
+  @PreDestroy
+  public void stop() {
+    running = false;
+    Thread t = worker;
+    if (t != null) {
+      t.interrupt();
+      try {
+        t.join(TimeUnit.SECONDS.toMillis(2));
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+}
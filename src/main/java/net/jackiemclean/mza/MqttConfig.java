@@ -1,7 +1,6 @@
 package net.jackiemclean.mza;
 
 import org.eclipse.paho.client.mqttv3.MqttClient;
-import org.eclipse.paho.client.mqttv3.MqttConnectOptions;
 import org.eclipse.paho.client.mqttv3.persist.MemoryPersistence;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
@@ -12,16 +11,11 @@ import org.springframework.context.annotation.Configuration;
 @ConditionalOnProperty(name = "mqtt.enabled", havingValue = "true", matchIfMissing = true)
 public class MqttConfig {
 
+  /** Not connected here: {@link MqttPublisher} connects in the background and keeps reconnecting. */
   @Bean
   public MqttClient mqttClient(
       @Value("${mqtt.broker.url}") String broker, @Value("${mqtt.clientId}") String clientId)
       throws Exception {
-    MqttClient client = new MqttClient(broker, clientId, new MemoryPersistence());
-
-    MqttConnectOptions options = new MqttConnectOptions();
-    options.setCleanSession(true);
-    client.connect(options);
-
-    return client;
+    return new MqttClient(broker, clientId, new MemoryPersistence());
   }
 }
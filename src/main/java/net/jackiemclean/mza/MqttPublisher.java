@@ -0,0 +1,386 @@
+package net.jackiemclean.mza;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import org.eclipse.paho.client.mqttv3.IMqttDeliveryToken;
+import org.eclipse.paho.client.mqttv3.MqttCallbackExtended;
+import org.eclipse.paho.client.mqttv3.MqttClient;
+import org.eclipse.paho.client.mqttv3.MqttConnectOptions;
+import org.eclipse.paho.client.mqttv3.MqttException;
+import org.eclipse.paho.client.mqttv3.MqttMessage;
+import org.eclipse.paho.client.mqttv3.MqttTopic;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Publishes MQTT messages off the request thread.
+ *
+ * {@link #publish} only records the message: the newest payload per topic waits in a bounded
+ * queue until a background virtual thread sends it. The same thread owns the connection,
+ * reconnecting with exponential backoff when the broker goes away. While it is down, repeated
+ * updates to a topic collapse into the latest one, so reconnecting sends each retained topic once.
+ *
+ * Retained messages are only sent when they change: the last payload accepted for each retained
+ * topic is remembered, and publishing the same payload again is a no-op. Periodic and startup
+ * resyncs therefore cost no broker traffic unless the state really moved. Because a broker that
+ * restarted without persistence has lost its retained messages, every remembered value is queued
+ * again after each connect.
+ *
+ * The same thread also (re)subscribes the filters registered with {@link #subscribe} after every
+ * connect, since sessions are clean.
+ */
+@Component
+public class MqttPublisher {
+
+  private static final Logger LOG = LoggerFactory.getLogger(MqttPublisher.class);
+
+  private record Outgoing(String topic, byte[] payload, boolean retained) {}
+
+  /** Receives messages for a subscription, on the MQTT client's callback thread; must not block. */
+  @FunctionalInterface
+  public interface MessageHandler {
+    void onMessage(String topic, byte[] payload);
+  }
+
+  private record Subscription(String topicFilter, MessageHandler handler) {}
+
+  /** How entity state is laid out on the broker ({@code mqtt.topic.mode}). */
+  public enum TopicMode {
+    /** One retained topic per attribute, e.g. {@code mza/zone/kitchen/volume}. */
+    FIELDS,
+    /** One retained JSON document per entity, e.g. {@code mza/zone/kitchen}. */
+    JSON,
+    /** Both layouts. */
+    BOTH;
+
+    public boolean fields() {
+      return this != JSON;
+    }
+
+    public boolean json() {
+      return this != FIELDS;
+    }
+  }
+
+  @Autowired(required = false)
+  private Optional<MqttClient> mqttClient;
+
+  @Value("${mqtt.publisher.queue-capacity:1024}")
+  private int capacity;
+
+  @Value("${mqtt.reconnect.initial-backoff-ms:1000}")
+  private long initialBackoffMs;
+
+  @Value("${mqtt.reconnect.max-backoff-ms:60000}")
+  private long maxBackoffMs;
+
+  @Value("${mqtt.topic.mode:FIELDS}")
+  private TopicMode topicMode = TopicMode.FIELDS;
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition changed = lock.newCondition();
+  private final Condition stopping = lock.newCondition();
+
+  // Guarded by lock. Newest message per topic, oldest topic first.
+  private final LinkedHashMap<String, Outgoing> pending = new LinkedHashMap<>();
+  // Guarded by lock. Last payload accepted per retained topic: what the broker holds or will.
+  private final Map<String, byte[]> lastValues = new HashMap<>();
+  private long dropped;
+  private long unchanged;
+
+  private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+  // Written by the worker thread only: how many subscriptions the current connection has
+  private volatile int subscribed;
+
+  private volatile boolean running;
+  private Thread worker;
+
+  @PostConstruct
+  public void start() {
+    if (!isEnabled()) {
+      return;
+    }
+    mqttClient
+        .get()
+        .setCallback(
+            new MqttCallbackExtended() {
+              @Override
+              public void connectComplete(boolean reconnect, String serverURI) {
+                LOG.info("Connected to MQTT broker {}", serverURI);
+                signal();
+              }
+
+              @Override
+              public void connectionLost(Throwable cause) {
+                LOG.warn("Lost connection to MQTT broker: {}", cause.toString());
+                signal();
+              }
+
+              @Override
+              public void messageArrived(String topic, MqttMessage message) {
+                dispatch(topic, message.getPayload());
+              }
+
+              @Override
+              public void deliveryComplete(IMqttDeliveryToken token) {}
+            });
+    running = true;
+    worker = Thread.ofVirtual().name("mqtt-publisher").start(this::run);
+  }
+
+  public boolean isEnabled() {
+    return mqttClient != null && mqttClient.isPresent();
+  }
+
+  public TopicMode topicMode() {
+    return topicMode;
+  }
+
+  /**
+   * Queues a message; returns immediately whatever the state of the broker. A retained message
+   * whose payload equals the last one for its topic is skipped.
+   *
+   * @return whether the message was queued
+   */
+  public boolean publish(String topic, byte[] payload, boolean retained) {
+    if (!isEnabled()) {
+      return false;
+    }
+    lock.lock();
+    try {
+      if (retained) {
+        if (Arrays.equals(lastValues.get(topic), payload)) {
+          unchanged++;
+          return false;
+        }
+        lastValues.put(topic, payload);
+      }
+      if (!pending.containsKey(topic) && pending.size() >= Math.max(1, capacity)) {
+        Iterator<String> oldest = pending.keySet().iterator();
+        // Never sent, so the broker does not hold it: the next publish must go out
+        lastValues.remove(oldest.next());
+        oldest.remove();
+        if (dropped++ % 100 == 0) {
+          LOG.warn("MQTT publish queue full, dropped {} message(s) so far", dropped);
+        }
+      }
+      pending.put(topic, new Outgoing(topic, payload, retained));
+      changed.signalAll();
+      return true;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Subscribes to a topic filter (wildcards allowed) on every connection, now and after any
+   * reconnect.
+   */
+  public void subscribe(String topicFilter, MessageHandler handler) {
+    if (!isEnabled()) {
+      return;
+    }
+    subscriptions.add(new Subscription(topicFilter, handler));
+    signal();
+  }
+
+  private void dispatch(String topic, byte[] payload) {
+    for (Subscription subscription : subscriptions) {
+      if (MqttTopic.isMatched(subscription.topicFilter(), topic)) {
+        try {
+          subscription.handler().onMessage(topic, payload);
+        } catch (RuntimeException e) {
+          LOG.error("Failed to handle MQTT message on {}", topic, e);
+        }
+      }
+    }
+  }
+
+  /** Number of retained messages skipped because their payload had not changed. */
+  public long unchangedCount() {
+    lock.lock();
+    try {
+      return unchanged;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /** Number of topics waiting to be published. */
+  public int pendingCount() {
+    lock.lock();
+    try {
+      return pending.size();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void run() {
+    MqttClient client = mqttClient.get();
+    long backoffMs = initialBackoffMs;
+    while (running) {
+      if (!client.isConnected()) {
+        try {
+          MqttConnectOptions options = new MqttConnectOptions();
+          options.setCleanSession(true);
+          client.connect(options);
+          subscribed = 0;
+          backoffMs = initialBackoffMs;
+          requeueRetained();
+        } catch (MqttException e) {
+          LOG.warn(
+              "Failed to connect to MQTT broker {}, retrying in {}ms: {}",
+              client.getServerURI(),
+              backoffMs,
+              e.toString());
+          sleep(backoffMs);
+          backoffMs = Math.min(backoffMs * 2, maxBackoffMs);
+          continue;
+        }
+      }
+
+      if (subscribed < subscriptions.size()) {
+        String topicFilter = subscriptions.get(subscribed).topicFilter();
+        try {
+          client.subscribe(topicFilter);
+          subscribed++;
+          LOG.info("Subscribed to MQTT topic {}", topicFilter);
+        } catch (MqttException e) {
+          LOG.warn("Failed to subscribe to {}, retrying: {}", topicFilter, e.toString());
+          sleep(backoffMs);
+        }
+        continue;
+      }
+
+      Outgoing next = take(client);
+      if (next == null) {
+        continue;
+      }
+      try {
+        MqttMessage message = new MqttMessage(next.payload());
+        message.setRetained(next.retained());
+        client.publish(next.topic(), message);
+      } catch (MqttException e) {
+        LOG.warn("Failed to publish to {}, will retry: {}", next.topic(), e.toString());
+        requeue(next);
+      }
+    }
+  }
+
+  /**
+   * Waits for a message to send; null if the connection dropped, there is a new subscription or we
+   * are stopping.
+   */
+  private Outgoing take(MqttClient client) {
+    lock.lock();
+    try {
+      while (running && pending.isEmpty() && client.isConnected() && !newSubscriptions()) {
+        changed.await();
+      }
+      if (!running || pending.isEmpty() || !client.isConnected() || newSubscriptions()) {
+        return null;
+      }
+      Iterator<Outgoing> oldest = pending.values().iterator();
+      Outgoing next = oldest.next();
+      oldest.remove();
+      return next;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return null;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private boolean newSubscriptions() {
+    return subscribed < subscriptions.size();
+  }
+
+  private void requeue(Outgoing message) {
+    lock.lock();
+    try {
+      // A newer payload for the topic supersedes the failed one
+      pending.putIfAbsent(message.topic(), message);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /** Queues the last value of every retained topic, behind anything newer already pending. */
+  private void requeueRetained() {
+    lock.lock();
+    try {
+      lastValues.forEach(
+          (topic, payload) -> pending.putIfAbsent(topic, new Outgoing(topic, payload, true)));
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void signal() {
+    lock.lock();
+    try {
+      changed.signalAll();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void sleep(long millis) {
+    lock.lock();
+    try {
+      // Woken early on shutdown only, not by new messages
+      long remaining = TimeUnit.MILLISECONDS.toNanos(millis);
+      while (running && remaining > 0) {
+        remaining = stopping.awaitNanos(remaining);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @PreDestroy
+  public void stop() {
+    running = false;
+    lock.lock();
+    try {
+      changed.signalAll();
+      stopping.signalAll();
+    } finally {
+      lock.unlock();
+    }
+    Thread t = worker;
+    if (t != null) {
+      t.interrupt();
+      try {
+        t.join(TimeUnit.SECONDS.toMillis(2));
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    if (isEnabled() && mqttClient.get().isConnected()) {
+      try {
+        mqttClient.get().disconnect();
+      } catch (MqttException e) {
+        LOG.debug("Failed to disconnect from MQTT broker: {}", e.toString());
+      }
+    }
+  }
+}
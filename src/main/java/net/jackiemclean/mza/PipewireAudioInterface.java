@@ -1,9 +1,14 @@
 package net.jackiemclean.mza;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -18,6 +23,9 @@ import org.slf4j.LoggerFactory;
 public class PipewireAudioInterface implements AudioInterface {
 
 	private static final Logger LOG = LoggerFactory.getLogger(PipewireAudioInterface.class);
+	private static final long LINK_CONFIRM_TIMEOUT_MS = 500;
+	// Half a step of the %.4f volume written by applyMuteAndVolume, plus float slack
+	private static final float VOLUME_TOLERANCE = 0.005f;
 
 	private final CommandExecutor commandExecutor;
 	private final PipewireGraphSource graphSource;
@@ -66,31 +74,193 @@ public class PipewireAudioInterface implements AudioInterface {
 		GraphState graph = graphSource.getSnapshot();
 
 		// Resolve zone properties node for volume/mute control
+		Integer zonePropsNodeId = resolveZonePropsNode(graph, zone);
+		if (zonePropsNodeId != null) {
+			applyMuteAndVolume(zonePropsNodeId, zoneState.isMuted(), zoneState.getVolume());
+		}
+
+		relink(graph, zone, source);
+	}
+
+	/**
+	 * Switches a zone to a new source as one ordered sequence: mute the zone
+	 * props node, relink both channels, wait until the monitored graph shows
+	 * only the new links, then apply the final volume/mute. A zone that ends
+	 * up muted needs no wait and no second props call.
+	 */
+	@Override
+	public void switchRoute(Zone zone, Source from, Source to, ZoneState zoneState) {
+		long start = System.nanoTime();
+		GraphState graph = graphSource.getSnapshot();
+
+		Integer zonePropsNodeId = resolveZonePropsNode(graph, zone);
+		if (zonePropsNodeId != null) {
+			applyMuteAndVolume(zonePropsNodeId, true, zoneState.getVolume());
+		}
+
+		List<LinkInfo> desired = relink(graph, zone, to);
+
+		boolean confirmed = true;
+		if (!zoneState.isMuted()) {
+			confirmed = awaitLinks(desired);
+			if (zonePropsNodeId != null) {
+				applyMuteAndVolume(zonePropsNodeId, false, zoneState.getVolume());
+			}
+		}
+
+		LOG.info("Switched zone {} from {} to {} in {}ms{}", zone.getName(), from.getName(), to.getName(),
+				TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+				confirmed ? "" : " (links not confirmed within " + LINK_CONFIRM_TIMEOUT_MS + "ms)");
+	}
+
+	/**
+	 * Adopts the graph as it is: a zone whose props node already reports the
+	 * wanted mute/volume gets no pw-cli call, and a channel already linked only
+	 * to the wanted source gets no pw-link call. Only the differences are
+	 * applied, zones in parallel, all against one snapshot. Links from other
+	 * sources into a zone are removed, so the sources list is not needed.
+	 */
+	@Override
+	public WarmStart warmStart(List<ZoneSync> syncs, Collection<Source> sources) {
+		GraphState graph = graphSource.getSnapshot();
+		AtomicInteger adopted = new AtomicInteger();
+		AtomicInteger commands = new AtomicInteger();
+		try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+			for (ZoneSync sync : syncs) {
+				executor.submit(() -> {
+					try {
+						int issued = warmStartZone(graph, sync);
+						commands.addAndGet(issued);
+						if (issued == 0) {
+							adopted.incrementAndGet();
+						}
+					} catch (RuntimeException e) {
+						LOG.error("Failed to warm start zone {}", sync.zone().getName(), e);
+					}
+				});
+			}
+		}
+		return new WarmStart(adopted.get(), syncs.size() - adopted.get(), commands.get());
+	}
+
+	/** @return the number of commands needed to bring the zone in line */
+	private int warmStartZone(GraphState graph, ZoneSync sync) {
+		Zone zone = sync.zone();
+		ZoneState zoneState = sync.zoneState();
+		int commands = 0;
+
+		Integer zonePropsNodeId = resolveZonePropsNode(graph, zone);
+		if (zonePropsNodeId != null
+				&& !propsMatch(graph.nodeProps().get(zonePropsNodeId), zoneState.isMuted(), zoneState.getVolume())) {
+			applyMuteAndVolume(zonePropsNodeId, zoneState.isMuted(), zoneState.getVolume());
+			commands++;
+		}
+
+		for (Channel channel : resolveChannels(graph, zone, sync.source())) {
+			commands += reconcileChannel(graph, channel, zone.getName());
+		}
+		LOG.debug("Warm start of zone {}: {} command(s)", zone.getName(), commands);
+		return commands;
+	}
+
+	private static boolean propsMatch(GraphState.NodeProps current, boolean muted, int volumePercent) {
+		if (current == null) {
+			return false;
+		}
+		float volume = Math.max(0, Math.min(100, volumePercent)) / 100.0f;
+		return current.muted() == muted && Math.abs(current.volume() - volume) < VOLUME_TOLERANCE;
+	}
+
+	private Integer resolveZonePropsNode(GraphState graph, Zone zone) {
 		String zonePropsNodeName = withPrefix(zone.getName(), zonePropsPrefix);
 		Integer zonePropsNodeId = graph.nodeIds().get(zonePropsNodeName);
 		if (zonePropsNodeId == null) {
 			LOG.error("Zone properties node '{}' not found in PipeWire graph, skipping volume/mute", zonePropsNodeName);
-		} else {
-			applyMuteAndVolume(zonePropsNodeId, zoneState);
 		}
+		return zonePropsNodeId;
+	}
+
+	/** A channel resolved against the graph: the link it needs and the port names to create it with. */
+	private record Channel(LinkInfo link, String sourcePort, String zonePort) {
+	}
 
+	/**
+	 * Links both channels of the zone to the source, removing other inputs.
+	 *
+	 * @return the links the graph should end up with (link ids unset)
+	 */
+	private List<LinkInfo> relink(GraphState graph, Zone zone, Source source) {
+		List<Channel> channels = resolveChannels(graph, zone, source);
+		for (Channel channel : channels) {
+			reconcileChannel(graph, channel, zone.getName());
+		}
+		return channels.stream().map(Channel::link).toList();
+	}
+
+	private List<Channel> resolveChannels(GraphState graph, Zone zone, Source source) {
 		// Parse source and zone channels - each can specify its own node via "node:port" format
 		NodePort leftSource = parseNodePort(source.getLeftInput().getName(), source.getName());
 		NodePort rightSource = parseNodePort(source.getRightInput().getName(), source.getName());
 		NodePort leftZone = parseNodePort(zone.getLeftOutput().getName(), zone.getName());
 		NodePort rightZone = parseNodePort(zone.getRightOutput().getName(), zone.getName());
 
-		// Reconcile left channel
-		reconcileChannelWithNodePort(graph, leftSource, sourceLinkPrefix, leftZone, zoneLinkPrefix, zone.getName());
+		List<Channel> channels = new ArrayList<>(2);
+
+		// Resolve left channel
+		Channel left = resolveChannel(graph, leftSource, sourceLinkPrefix, leftZone, zoneLinkPrefix, zone.getName());
+		if (left != null) {
+			channels.add(left);
+		}
+
+		// Resolve right channel
+		Channel right = resolveChannel(graph, rightSource, sourceLinkPrefix, rightZone, zoneLinkPrefix, zone.getName());
+		if (right != null) {
+			channels.add(right);
+		}
+		return channels;
+	}
 
-		// Reconcile right channel
-		reconcileChannelWithNodePort(graph, rightSource, sourceLinkPrefix, rightZone, zoneLinkPrefix, zone.getName());
+	/**
+	 * Waits for the graph monitor to report each desired link as the only
+	 * input of its zone port.
+	 */
+	private boolean awaitLinks(List<LinkInfo> desired) {
+		if (desired.isEmpty()) {
+			return true;
+		}
+		try {
+			GraphState graph = graphSource.awaitSnapshot(g -> hasOnlyLinks(g, desired), LINK_CONFIRM_TIMEOUT_MS);
+			return hasOnlyLinks(graph, desired);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+
+	private static boolean hasOnlyLinks(GraphState graph, List<LinkInfo> desired) {
+		for (LinkInfo want : desired) {
+			boolean found = false;
+			for (LinkInfo link : graph.links()) {
+				if (link.inNodeId() != want.inNodeId() || link.inPortId() != want.inPortId()) {
+					continue;
+				}
+				if (link.outNodeId() != want.outNodeId() || link.outPortId() != want.outPortId()) {
+					return false;
+				}
+				found = true;
+			}
+			if (!found) {
+				return false;
+			}
+		}
+		return true;
 	}
 
 	/**
-	 * Reconciles a channel link between source and zone, resolving node IDs from parsed NodePort specs.
+	 * Resolves the link a channel needs from parsed NodePort specs, or null if
+	 * its nodes or ports are not in the graph.
 	 */
-	private void reconcileChannelWithNodePort(GraphState graph,
+	private Channel resolveChannel(GraphState graph,
 			NodePort source, String sourcePrefix,
 			NodePort zone, String zonePrefix,
 			String zoneName) {
@@ -103,14 +273,33 @@ public class PipewireAudioInterface implements AudioInterface {
 
 		if (sourceNodeId == null) {
 			LOG.error("Source node '{}' not found in PipeWire graph, skipping channel", sourceNodeName);
-			return;
+			return null;
 		}
 		if (zoneNodeId == null) {
 			LOG.error("Zone node '{}' not found in PipeWire graph, skipping channel", zoneNodeName);
-			return;
+			return null;
 		}
 
-		reconcileChannel(graph, sourceNodeId, source.portName(), zoneNodeId, zone.portName(), zoneName);
+		String sourcePort = source.portName();
+		String zonePort = zone.portName();
+		if (sourcePort == null || zonePort == null) {
+			LOG.warn("Skipping link for zone {}: missing port (sourcePort={}, zonePort={})",
+					zoneName, sourcePort, zonePort);
+			return null;
+		}
+
+		Integer zonePortId = graph.inPorts().get(zoneNodeId + ":" + zonePort);
+		Integer sourcePortId = graph.outPorts().get(sourceNodeId + ":" + sourcePort);
+
+		if (sourcePortId == null) {
+			LOG.warn("Missing source port id for node {}:{}, skipping link", sourceNodeId, sourcePort);
+			return null;
+		}
+		if (zonePortId == null) {
+			LOG.warn("Missing zone port id for node {}:{}, skipping link", zoneNodeId, zonePort);
+			return null;
+		}
+		return new Channel(new LinkInfo(-1, zoneNodeId, zonePortId, sourceNodeId, sourcePortId), sourcePort, zonePort);
 	}
 
 	/**
@@ -145,9 +334,8 @@ public class PipewireAudioInterface implements AudioInterface {
 		return rawName.startsWith(prefix) ? rawName : prefix + rawName;
 	}
 
-	private void applyMuteAndVolume(int nodeId, ZoneState zoneState) {
-		boolean muted = zoneState.isMuted();
-		float volume = Math.max(0, Math.min(100, zoneState.getVolume())) / 100.0f;
+	private void applyMuteAndVolume(int nodeId, boolean muted, int volumePercent) {
+		float volume = Math.max(0, Math.min(100, volumePercent)) / 100.0f;
 
 		// Combined mute and volume in single pw-cli call
 		String cmd = String.format("%s set-param %d Props '{ mute = %s, volume = %.4f }'",
@@ -158,33 +346,20 @@ public class PipewireAudioInterface implements AudioInterface {
 		commandExecutor.execute(cmd, stringEnv);
 	}
 
-	private void reconcileChannel(GraphState graph, int sourceNodeId, String sourcePort,
-			int zoneNodeId, String zonePort, String zoneName) {
-		if (sourcePort == null || zonePort == null) {
-			LOG.warn("Skipping link for zone {}: missing port (sourcePort={}, zonePort={})",
-					zoneName, sourcePort, zonePort);
-			return;
-		}
-
-		Integer zonePortId = graph.inPorts().get(zoneNodeId + ":" + zonePort);
-		Integer sourcePortId = graph.outPorts().get(sourceNodeId + ":" + sourcePort);
-
-		if (sourcePortId == null) {
-			LOG.warn("Missing source port id for node {}:{}, skipping link", sourceNodeId, sourcePort);
-			return;
-		}
-		if (zonePortId == null) {
-			LOG.warn("Missing zone port id for node {}:{}, skipping link", zoneNodeId, zonePort);
-			return;
-		}
-
+	/**
+	 * Makes the channel's link the only input of its zone port.
+	 *
+	 * @return the number of pw-link commands run
+	 */
+	private int reconcileChannel(GraphState graph, Channel channel, String zoneName) {
+		LinkInfo want = channel.link();
 		List<Integer> wrongLinks = new ArrayList<>();
 		boolean desiredExists = false;
 
 		for (LinkInfo link : graph.links()) {
 			// Check links going INTO the zone port - remove wrong sources
-			if (link.inNodeId() == zoneNodeId && link.inPortId() == zonePortId) {
-				if (link.outNodeId() == sourceNodeId && link.outPortId() == sourcePortId) {
+			if (link.inNodeId() == want.inNodeId() && link.inPortId() == want.inPortId()) {
+				if (link.outNodeId() == want.outNodeId() && link.outPortId() == want.outPortId()) {
 					desiredExists = true;
 				} else {
 					wrongLinks.add(link.linkId());
@@ -199,18 +374,21 @@ public class PipewireAudioInterface implements AudioInterface {
 
 		// Remove stale links FIRST (reconcile by cleaning up before creating)
 		unlinkById(wrongLinks, zoneName);
+		int commands = wrongLinks.size();
 
 		// Create link if missing
 		if (!desiredExists) {
-			String fullSource = withPrefix(graph.nodeNames().get(sourceNodeId), sourceLinkPrefix) + ":" + sourcePort;
-			String fullZone = withPrefix(graph.nodeNames().get(zoneNodeId), zoneLinkPrefix) + ":" + zonePort;
+			String fullSource = withPrefix(graph.nodeNames().get(want.outNodeId()), sourceLinkPrefix) + ":" + channel.sourcePort();
+			String fullZone = withPrefix(graph.nodeNames().get(want.inNodeId()), zoneLinkPrefix) + ":" + channel.zonePort();
 			String cmd = String.format("%s '%s' '%s' 2>/dev/null || true", pwLinkCommand, fullSource, fullZone);
 			try {
 				commandExecutor.execute(cmd, stringEnv);
 			} catch (Exception e) {
 				LOG.error("Failed to link {} -> {}", fullSource, fullZone, e);
 			}
+			commands++;
 		}
+		return commands;
 	}
 
 	private void unlinkById(List<Integer> linkIds, String zoneName) {
@@ -3,6 +3,7 @@ package net.jackiemclean.mza;
 import com.fasterxml.jackson.databind.JsonNode;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Accumulates PipeWire graph chunks streamed by `pw-dump --monitor`.
@@ -14,31 +15,50 @@ import java.util.Map;
  */
 public class PipewireGraphAccumulator {
 
+	// A lock rather than synchronized, so virtual threads reading snapshots
+	// never pin their carrier
+	private final ReentrantLock lock = new ReentrantLock();
+	// Guarded by lock
 	private final Map<Integer, JsonNode> objects = new LinkedHashMap<>();
 
-	public synchronized GraphState apply(JsonNode array) {
-		if (array != null && array.isArray()) {
-			for (JsonNode entry : array) {
-				int id = entry.path("id").asInt(-1);
-				if (id < 0) {
-					continue;
-				}
-				JsonNode info = entry.get("info");
-				if (info == null || info.isNull()) {
-					objects.remove(id);
-				} else {
-					objects.put(id, entry);
+	public GraphState apply(JsonNode array) {
+		lock.lock();
+		try {
+			if (array != null && array.isArray()) {
+				for (JsonNode entry : array) {
+					int id = entry.path("id").asInt(-1);
+					if (id < 0) {
+						continue;
+					}
+					JsonNode info = entry.get("info");
+					if (info == null || info.isNull()) {
+						objects.remove(id);
+					} else {
+						objects.put(id, entry);
+					}
 				}
 			}
+			return PipewireGraphParser.parse(objects.values());
+		} finally {
+			lock.unlock();
 		}
-		return PipewireGraphParser.parse(objects.values());
 	}
 
-	public synchronized GraphState snapshot() {
-		return PipewireGraphParser.parse(objects.values());
+	public GraphState snapshot() {
+		lock.lock();
+		try {
+			return PipewireGraphParser.parse(objects.values());
+		} finally {
+			lock.unlock();
+		}
 	}
 
-	synchronized int size() {
-		return objects.size();
+	int size() {
+		lock.lock();
+		try {
+			return objects.size();
+		} finally {
+			lock.unlock();
+		}
 	}
 }
@@ -13,6 +13,9 @@ import java.util.Map;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -37,6 +40,8 @@ public class PipewireGraphMonitor implements PipewireGraphSource {
 	private final PipewireGraphAccumulator accumulator = new PipewireGraphAccumulator();
 	private final AtomicReference<GraphState> snapshot = new AtomicReference<>(GraphState.empty());
 	private final CountDownLatch initialDumpLatch = new CountDownLatch(1);
+	private final ReentrantLock updateLock = new ReentrantLock();
+	private final Condition updated = updateLock.newCondition();
 
 	private volatile Thread readerThread;
 	private volatile Process process;
@@ -69,6 +74,24 @@ public class PipewireGraphMonitor implements PipewireGraphSource {
 		return snapshot.get();
 	}
 
+	/** Wakes up on each graph update instead of polling. */
+	@Override
+	public GraphState awaitSnapshot(Predicate<GraphState> condition, long timeoutMs)
+			throws InterruptedException {
+		long remaining = TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+		updateLock.lock();
+		try {
+			GraphState graph = snapshot.get();
+			while (!condition.test(graph) && remaining > 0) {
+				remaining = updated.awaitNanos(remaining);
+				graph = snapshot.get();
+			}
+			return graph;
+		} finally {
+			updateLock.unlock();
+		}
+	}
+
 	public boolean awaitInitialDump(long timeoutMs) throws InterruptedException {
 		return initialDumpLatch.await(timeoutMs, TimeUnit.MILLISECONDS);
 	}
@@ -166,7 +189,14 @@ public class PipewireGraphMonitor implements PipewireGraphSource {
 
 	/** Package-private so tests can drive chunk processing without a subprocess. */
 	void applyChunk(JsonNode array) {
-		snapshot.set(accumulator.apply(array));
+		GraphState graph = accumulator.apply(array);
+		updateLock.lock();
+		try {
+			snapshot.set(graph);
+			updated.signalAll();
+		} finally {
+			updateLock.unlock();
+		}
 		initialDumpLatch.countDown();
 	}
 
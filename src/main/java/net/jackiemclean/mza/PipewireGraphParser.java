@@ -23,6 +23,7 @@ public final class PipewireGraphParser {
 		Map<String, Integer> outPorts = new HashMap<>();
 		Map<String, String> portNames = new HashMap<>();
 		List<LinkInfo> links = new ArrayList<>();
+		Map<Integer, GraphState.NodeProps> nodeProps = new HashMap<>();
 
 		for (JsonNode entry : objects) {
 			if (entry == null || !entry.has("type")) {
@@ -48,6 +49,10 @@ public final class PipewireGraphParser {
 							nodeNames.put(objectId, nodeName);
 						}
 					}
+					GraphState.NodeProps current = parseProps(info.path("params").path("Props"));
+					if (current != null) {
+						nodeProps.put(objectId, current);
+					}
 				}
 				case "PipeWire:Interface:Port" -> {
 					JsonNode props = info.get("props");
@@ -84,6 +89,21 @@ public final class PipewireGraphParser {
 			}
 		}
 
-		return new GraphState(nodeIds, nodeNames, inPorts, outPorts, portNames, links);
+		return new GraphState(nodeIds, nodeNames, inPorts, outPorts, portNames, links, nodeProps);
+	}
+
+	/**
+	 * Reads mute and volume from the first Props entry that has both, or null
+	 * if the node does not report them (params are only dumped for some nodes).
+	 */
+	private static GraphState.NodeProps parseProps(JsonNode props) {
+		for (JsonNode entry : props) {
+			JsonNode mute = entry.get("mute");
+			JsonNode volume = entry.get("volume");
+			if (mute != null && mute.isBoolean() && volume != null && volume.isNumber()) {
+				return new GraphState.NodeProps(mute.asBoolean(), volume.floatValue());
+			}
+		}
+		return null;
 	}
 }
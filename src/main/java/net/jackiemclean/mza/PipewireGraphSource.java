@@ -1,5 +1,8 @@
 package net.jackiemclean.mza;
 
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
 /**
  * Supplies a PipeWire graph snapshot. Implementations should return a
  * non-null GraphState (possibly empty) and must be safe to call from
@@ -7,4 +10,21 @@ package net.jackiemclean.mza;
  */
 public interface PipewireGraphSource {
 	GraphState getSnapshot();
+
+	/**
+	 * Waits up to {@code timeoutMs} for a snapshot that satisfies
+	 * {@code condition} and returns the latest snapshot, which does not match
+	 * if the wait timed out. The default polls; sources that are notified of
+	 * graph changes should override it.
+	 */
+	default GraphState awaitSnapshot(Predicate<GraphState> condition, long timeoutMs)
+			throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+		GraphState graph = getSnapshot();
+		while (!condition.test(graph) && System.nanoTime() < deadline) {
+			Thread.sleep(5);
+			graph = getSnapshot();
+		}
+		return graph;
+	}
 }
@@ -0,0 +1,6 @@
+package net.jackiemclean.mza;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+/** Sources stored in the database, keyed by name (see {@link ZoneSourceCatalogue}). */
+public interface SourceCatalogueRepository extends JpaRepository<Source, String> {}
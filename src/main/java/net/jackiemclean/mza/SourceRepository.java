@@ -8,20 +8,18 @@ import org.springframework.stereotype.Repository;
 @Repository
 public class SourceRepository {
 
-  private final SourceConfig sourceConfig;
+  private final ZoneSourceRegistry registry;
 
   @Autowired
-  public SourceRepository(SourceConfig sourceConfig) {
-    this.sourceConfig = sourceConfig;
+  public SourceRepository(ZoneSourceRegistry registry) {
+    this.registry = registry;
   }
 
   public List<Source> findAll() {
-    return sourceConfig.getSources();
+    return registry.sources();
   }
 
   public Optional<Source> findByName(String name) {
-    return sourceConfig.getSources().stream()
-        .filter(source -> source.getName().equals(name))
-        .findFirst();
+    return registry.source(name);
   }
 }
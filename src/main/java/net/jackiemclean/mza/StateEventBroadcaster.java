@@ -0,0 +1,317 @@
+package net.jackiemclean.mza;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Pushes zone and group changes to REST clients as Server-Sent Events.
+ *
+ * Each change is encoded once and given an id; the most recent ones are kept in a ring buffer so a
+ * client reconnecting with {@code Last-Event-ID} gets what it missed. A client that is too far
+ * behind gets a {@code resync} event and should re-read the state. Every subscriber has its own
+ * bounded queue drained by a virtual thread, so a slow client never holds up a zone change; one
+ * that falls behind is disconnected and resumes from its last event.
+ *
+ * Events are published after the change commits, so a client never hears of a change that rolls
+ * back, and a GET in reaction to an event already sees the new version. The group of a zone, for
+ * group filters, comes from a cached zone-to-group map reloaded after topology changes rather than
+ * from a query per event.
+ */
+@Component
+public class StateEventBroadcaster {
+
+  private static final Logger LOG = LoggerFactory.getLogger(StateEventBroadcaster.class);
+
+  /** One encoded change. {@code group} is the zone's group for zone events. */
+  record StateEvent(long id, String type, String zone, String group, String data) {}
+
+  /** Zones and groups a client asked for; both empty means everything. */
+  record Filter(Set<String> zones, Set<String> groups) {
+
+    boolean matches(StateEvent event) {
+      if (zones.isEmpty() && groups.isEmpty()) {
+        return true;
+      }
+      if (event.zone() != null) {
+        return zones.contains(event.zone())
+            || (event.group() != null && groups.contains(event.group()));
+      }
+      // A group-wide reload (no group name) concerns every group
+      return !groups.isEmpty() && (event.group() == null || groups.contains(event.group()));
+    }
+  }
+
+  @FunctionalInterface
+  interface Sink {
+    /** Sends an event, or a heartbeat comment when {@code event} is null. */
+    void send(StateEvent event) throws IOException;
+  }
+
+  @Autowired private ObjectMapper objectMapper;
+  @Autowired private GroupStateRepository groupStateRepository;
+
+  @Value("${mza.events.replay-buffer:256}")
+  private int capacity;
+
+  @Value("${mza.events.queue-capacity:64}")
+  private int queueCapacity;
+
+  @Value("${mza.events.heartbeat-ms:30000}")
+  private long heartbeatMs;
+
+  private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+  private final ReentrantLock lock = new ReentrantLock();
+
+  private final ReentrantLock topologyLock = new ReentrantLock();
+  // Guarded by topologyLock; null until loaded and after a topology change
+  private Map<String, String> groupOfZone;
+
+  // Guarded by lock. Ids start at the current time so an id from before a restart is never
+  // mistaken for a recent one.
+  private StateEvent[] ring;
+  private final long firstId = System.currentTimeMillis();
+  private long nextId = firstId;
+
+  public SseEmitter subscribe(Set<String> zones, Set<String> groups, Long lastEventId) {
+    SseEmitter emitter = new SseEmitter(0L);
+    Subscriber subscriber =
+        subscribe(
+            new Filter(zones, groups),
+            lastEventId,
+            event -> {
+              if (event == null) {
+                emitter.send(SseEmitter.event().comment("heartbeat"));
+              } else {
+                emitter.send(
+                    SseEmitter.event()
+                        .id(String.valueOf(event.id()))
+                        .name(event.type())
+                        .data(event.data()));
+              }
+            },
+            emitter::complete);
+    emitter.onCompletion(subscriber::close);
+    emitter.onTimeout(subscriber::close);
+    emitter.onError(e -> subscriber.close());
+    return emitter;
+  }
+
+  Subscriber subscribe(Filter filter, Long lastEventId, Sink sink, Runnable onClose) {
+    Subscriber subscriber = new Subscriber(filter, sink, Math.max(1, queueCapacity), onClose);
+    lock.lock();
+    try {
+      // Registered under the lock so nothing is missed or sent twice between replay and live
+      if (lastEventId != null) {
+        subscriber.replay = replaySince(lastEventId);
+        subscriber.resumeId = nextId - 1;
+      }
+      subscribers.add(subscriber);
+    } finally {
+      lock.unlock();
+    }
+    subscriber.start();
+    LOG.debug("SSE subscriber added ({} total)", subscribers.size());
+    return subscriber;
+  }
+
+  @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+  public void onZoneStateChanged(ZoneStateChangedEvent event) {
+    String group = groupOf(event.zoneName());
+    if (event.state() == null) {
+      publish("zone-reset", event.zoneName(), group, Map.of("name", event.zoneName()));
+    } else {
+      publish("zone", event.zoneName(), group, event.state());
+    }
+  }
+
+  @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+  public void onGroupTopologyChanged(GroupTopologyChangedEvent event) {
+    topologyLock.lock();
+    try {
+      groupOfZone = null;
+    } finally {
+      topologyLock.unlock();
+    }
+    if (event.groupName() == null) {
+      publish("groups", null, null, groupStateRepository.findAll());
+      return;
+    }
+    groupStateRepository
+        .findByName(event.groupName())
+        .ifPresentOrElse(
+            group -> publish("group", null, group.getName(), group),
+            () ->
+                publish(
+                    "group-removed", null, event.groupName(), Map.of("name", event.groupName())));
+  }
+
+  private String groupOf(String zoneName) {
+    topologyLock.lock();
+    try {
+      if (groupOfZone == null) {
+        Map<String, String> loaded = new HashMap<>();
+        for (GroupState group : groupStateRepository.findAll()) {
+          if (group.getZones() != null) {
+            for (String zone : group.getZones()) {
+              loaded.put(zone, group.getName());
+            }
+          }
+        }
+        groupOfZone = loaded;
+      }
+      return groupOfZone.get(zoneName);
+    } finally {
+      topologyLock.unlock();
+    }
+  }
+
+  private void publish(String type, String zone, String group, Object payload) {
+    String data;
+    try {
+      data = objectMapper.writeValueAsString(payload);
+    } catch (JsonProcessingException e) {
+      LOG.error("Failed to encode {} event", type, e);
+      return;
+    }
+
+    lock.lock();
+    try {
+      if (ring == null) {
+        ring = new StateEvent[Math.max(1, capacity)];
+      }
+      StateEvent event = new StateEvent(nextId, type, zone, group, data);
+      ring[(int) (nextId % ring.length)] = event;
+      nextId++;
+      for (Subscriber subscriber : subscribers) {
+        subscriber.offer(event);
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /** Caller holds the lock. Null if some of the events are no longer buffered. */
+  private List<StateEvent> replaySince(long lastEventId) {
+    if (ring == null) {
+      return lastEventId == nextId - 1 ? List.of() : null;
+    }
+    long oldest = Math.max(firstId, nextId - ring.length);
+    if (lastEventId < oldest - 1 || lastEventId >= nextId) {
+      return null;
+    }
+    List<StateEvent> missed = new ArrayList<>((int) (nextId - lastEventId - 1));
+    for (long id = lastEventId + 1; id < nextId; id++) {
+      missed.add(ring[(int) (id % ring.length)]);
+    }
+    return missed;
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    for (Subscriber subscriber : subscribers) {
+      subscriber.close();
+    }
+  }
+
+  class Subscriber {
+    private final Filter filter;
+    private final Sink sink;
+    private final BlockingQueue<StateEvent> queue;
+    private volatile boolean closed;
+    private volatile Thread thread;
+
+    private final Runnable onClose;
+
+    // Set before the drain thread starts
+    /** Events to send before the live ones; null means the client must resync. */
+    private List<StateEvent> replay = List.of();
+    /** The id a resync event carries: the last event before the subscription. */
+    private long resumeId;
+
+    Subscriber(Filter filter, Sink sink, int queueCapacity, Runnable onClose) {
+      this.filter = filter;
+      this.sink = sink;
+      this.queue = new ArrayBlockingQueue<>(queueCapacity);
+      this.onClose = onClose;
+    }
+
+    private void start() {
+      thread = Thread.ofVirtual().name("sse-subscriber").start(this::drain);
+    }
+
+    private void offer(StateEvent event) {
+      if (closed || !filter.matches(event)) {
+        return;
+      }
+      if (!queue.offer(event)) {
+        LOG.warn("SSE subscriber fell behind, disconnecting; it can resume from its last event");
+        close();
+      }
+    }
+
+    private void drain() {
+      try {
+        if (replay == null) {
+          sink.send(new StateEvent(resumeId, "resync", null, null, "{}"));
+        } else {
+          for (StateEvent event : replay) {
+            if (filter.matches(event)) {
+              sink.send(event);
+            }
+          }
+        }
+        replay = null;
+        while (!closed) {
+          StateEvent event = queue.poll(heartbeatMs, TimeUnit.MILLISECONDS);
+          sink.send(event);
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } catch (IOException | RuntimeException e) {
+        LOG.debug("SSE subscriber disconnected: {}", e.toString());
+      } finally {
+        close();
+      }
+    }
+
+    void close() {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      subscribers.remove(this);
+      if (thread != null && Thread.currentThread() != thread) {
+        thread.interrupt();
+      }
+      try {
+        onClose.run();
+      } catch (RuntimeException e) {
+        LOG.debug("Failed to complete SSE stream: {}", e.toString());
+      }
+    }
+
+    boolean isClosed() {
+      return closed;
+    }
+  }
+}
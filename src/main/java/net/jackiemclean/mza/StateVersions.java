@@ -0,0 +1,134 @@
+package net.jackiemclean.mza;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Versions of the zone and group state, for ETags and conditional GETs.
+ *
+ * Every change takes the next value of one global counter, which becomes the version of the
+ * changed entity and of its collection. Versions are bumped after the change commits, so a
+ * version never labels data that is not yet readable. Serialized GET bodies are cached per
+ * version: a poll that finds nothing changed is answered with 304 from the version alone, and
+ * one that does not send {@code If-None-Match} is served from the cache.
+ */
+@Component
+public class StateVersions {
+
+  public static final String ZONE = "zone";
+  public static final String GROUP = "group";
+
+  private record CachedBody(long version, byte[] body) {}
+
+  @Autowired private ObjectMapper objectMapper;
+
+  // ETags from before a restart never match
+  private final long epoch = System.currentTimeMillis();
+  private final AtomicLong version = new AtomicLong();
+  private final Map<String, Long> versions = new ConcurrentHashMap<>();
+  private final Map<String, CachedBody> bodies = new ConcurrentHashMap<>();
+
+  /** The global version: the number of changes since startup. */
+  public long version() {
+    return version.get();
+  }
+
+  /** The version of one entity, e.g. {@code version(ZONE, "kitchen")}. */
+  public long version(String kind, String name) {
+    return Math.max(
+        versions.getOrDefault(kind + ":" + name, 0L), versions.getOrDefault(kind + ":*", 0L));
+  }
+
+  /** The version of a whole collection, e.g. all zones. */
+  public long version(String kind) {
+    return versions.getOrDefault(kind + "s", 0L);
+  }
+
+  public void changed(String kind, String name) {
+    long v = version.incrementAndGet();
+    versions.put(kind + ":" + name, v);
+    versions.put(kind + "s", v);
+  }
+
+  /** Marks every entity of a kind as changed, e.g. after a reload. */
+  public void changedAll(String kind) {
+    long v = version.incrementAndGet();
+    versions.put(kind + ":*", v);
+    versions.put(kind + "s", v);
+  }
+
+  @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+  public void onZoneStateChanged(ZoneStateChangedEvent event) {
+    changed(ZONE, event.zoneName());
+  }
+
+  @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+  public void onGroupTopologyChanged(GroupTopologyChangedEvent event) {
+    if (event.groupName() == null) {
+      changedAll(GROUP);
+    } else {
+      changed(GROUP, event.groupName());
+    }
+  }
+
+  /**
+   * Answers a GET for a versioned resource: 304 if {@code ifNoneMatch} names the current version,
+   * otherwise the body for that version, loaded and serialized only if not cached.
+   *
+   * @param cacheKey identifies the resource, e.g. {@code "zones"} or {@code "zone:kitchen"}
+   */
+  public ResponseEntity<byte[]> conditionalGet(
+      String cacheKey, long currentVersion, String ifNoneMatch, Supplier<Object> loader) {
+    String etag = "\"" + epoch + "." + currentVersion + "\"";
+    if (matches(ifNoneMatch, etag)) {
+      return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+    }
+
+    CachedBody cached = bodies.get(cacheKey);
+    byte[] body;
+    if (cached != null && cached.version() == currentVersion) {
+      body = cached.body();
+    } else {
+      // Loaded after reading the version: the body is at least that recent
+      try {
+        body = objectMapper.writeValueAsBytes(loader.get());
+      } catch (JsonProcessingException e) {
+        throw new RuntimeException("Failed to serialize " + cacheKey, e);
+      }
+      bodies.put(cacheKey, new CachedBody(currentVersion, body));
+    }
+    return ResponseEntity.ok()
+        .eTag(etag)
+        .header(HttpHeaders.CACHE_CONTROL, "no-cache")
+        .contentType(MediaType.APPLICATION_JSON)
+        .body(body);
+  }
+
+  private static boolean matches(String ifNoneMatch, String etag) {
+    if (ifNoneMatch == null) {
+      return false;
+    }
+    for (String candidate : ifNoneMatch.split(",")) {
+      String tag = candidate.trim();
+      if (tag.startsWith("W/")) {
+        tag = tag.substring(2);
+      }
+      if (tag.equals("*") || tag.equals(etag)) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
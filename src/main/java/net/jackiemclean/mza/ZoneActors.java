@@ -0,0 +1,96 @@
+package net.jackiemclean.mza;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import org.springframework.stereotype.Component;
+
+/**
+ * Runs work one task at a time per zone, as if each zone were an actor with its own mailbox.
+ *
+ * A task names the zones it touches and runs on the caller's thread once every earlier task on any
+ * of those zones has finished, so tasks on one zone are linearizable in submission order while
+ * tasks on different zones run fully in parallel. A task on several zones (a group) waits for all
+ * of them, and later tasks on any of them wait for it. The mailbox is only a chain of futures: no
+ * thread, lock or database row is held per zone while it is idle.
+ */
+@Component
+public class ZoneActors {
+
+  private final ReentrantLock lock = new ReentrantLock();
+  // Guarded by lock. The last task queued on each zone; removed when it finishes.
+  private final Map<String, CompletableFuture<Void>> tails = new HashMap<>();
+  // Zones whose turn the current thread holds, so a task calling back in does not wait on itself
+  private final ThreadLocal<Set<String>> held = ThreadLocal.withInitial(HashSet::new);
+
+  /** Runs {@code task} in the zone's turn and returns its result. */
+  public <T> T call(String zone, Supplier<T> task) {
+    return call(List.of(zone), task);
+  }
+
+  /**
+   * Runs {@code task} once it has the turn of every zone in {@code zones}, and returns its result.
+   * Exceptions from the task are rethrown to the caller; later tasks run regardless.
+   */
+  public <T> T call(Collection<String> zones, Supplier<T> task) {
+    Set<String> keys = new LinkedHashSet<>(zones);
+    Set<String> mine = held.get();
+    if (mine.containsAll(keys)) {
+      return task.get();
+    }
+    if (keys.stream().anyMatch(mine::contains)) {
+      throw new IllegalStateException("Zone task for " + keys + " nested in a task for " + mine);
+    }
+
+    CompletableFuture<Void> done = new CompletableFuture<>();
+    List<CompletableFuture<Void>> predecessors = new ArrayList<>(keys.size());
+    lock.lock();
+    try {
+      for (String key : keys) {
+        CompletableFuture<Void> previous = tails.put(key, done);
+        if (previous != null) {
+          predecessors.add(previous);
+        }
+      }
+    } finally {
+      lock.unlock();
+    }
+
+    try {
+      for (CompletableFuture<Void> previous : predecessors) {
+        previous.join();
+      }
+      mine.addAll(keys);
+      return task.get();
+    } finally {
+      mine.removeAll(keys);
+      lock.lock();
+      try {
+        for (String key : keys) {
+          tails.remove(key, done);
+        }
+      } finally {
+        lock.unlock();
+      }
+      done.complete(null);
+    }
+  }
+
+  /** Number of zones with a task queued or running. */
+  int busyZones() {
+    lock.lock();
+    try {
+      return tails.size();
+    } finally {
+      lock.unlock();
+    }
+  }
+}
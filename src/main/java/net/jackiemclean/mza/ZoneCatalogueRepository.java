@@ -0,0 +1,6 @@
+package net.jackiemclean.mza;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+/** Zones stored in the database, keyed by name (see {@link ZoneSourceCatalogue}). */
+public interface ZoneCatalogueRepository extends JpaRepository<Zone, String> {}
@@ -0,0 +1,23 @@
+package net.jackiemclean.mza;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+
+/**
+ * A partial update to a zone. Null fields are left unchanged, so any combination of volume, mute
+ * and source can be applied as one state transition.
+ */
+public record ZoneChange(@Min(0) @Max(100) Integer volume, Boolean muted, String sourceName) {
+
+  public static ZoneChange volume(int volume) {
+    return new ZoneChange(volume, null, null);
+  }
+
+  public static ZoneChange muted(boolean muted) {
+    return new ZoneChange(null, muted, null);
+  }
+
+  public static ZoneChange source(String sourceName) {
+    return new ZoneChange(null, null, sourceName);
+  }
+}
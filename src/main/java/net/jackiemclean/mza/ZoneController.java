@@ -1,29 +1,42 @@
 package net.jackiemclean.mza;
 
+import jakarta.validation.Valid;
 import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
 import java.util.Collection;
-import java.util.Optional;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import java.util.List;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 @RestController
 @RequestMapping("/api/zones")
 public class ZoneController {
 
-  private static final Logger LOG = LoggerFactory.getLogger(ZoneController.class);
-
   @Autowired private ZoneStateRepository zoneStateRepository;
-  @Autowired private SourceRepository sourceRepository;
   @Autowired private ZoneRepository zoneRepository;
-  @Autowired private ZoneRouter zoneRouter;
+  @Autowired private ZoneService zoneService;
+  @Autowired private StateVersions stateVersions;
 
   @GetMapping
-  public Collection<ZoneState> getAllZones() {
-    return zoneStateRepository.findAll();
+  public ResponseEntity<byte[]> getAllZones(
+      @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+    return stateVersions.conditionalGet(
+        "zones",
+        stateVersions.version(StateVersions.ZONE),
+        ifNoneMatch,
+        zoneStateRepository::findAll);
+  }
+
+  /**
+   * Applies changes to several zones in one transaction, with one backend sync for all of them.
+   * Nothing is changed if any zone or source is unknown.
+   */
+  @PatchMapping
+  public List<ZoneState> updateZones(@RequestBody List<@Valid ZoneUpdate> updates) {
+    return zoneService.applyChanges(updates);
   }
 
   @GetMapping("/available")
@@ -32,122 +45,48 @@ public class ZoneController {
   }
 
   @GetMapping("/{name}")
-  public ZoneState getZone(@PathVariable String name) {
-    return zoneStateRepository
-        .findById(name)
-        .or(() -> defaultState(name))
-        .map(this::enrichState)
-        .orElseThrow(() -> new RuntimeException("Zone not found"));
+  public ResponseEntity<byte[]> getZone(
+      @PathVariable String name,
+      @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+    return stateVersions.conditionalGet(
+        "zone:" + name,
+        stateVersions.version(StateVersions.ZONE, name),
+        ifNoneMatch,
+        () -> zoneService.getState(name));
+  }
+
+  /** Applies any combination of volume, mute and source in one update. */
+  @PatchMapping("/{name}")
+  public ZoneState updateZone(@PathVariable String name, @Valid @RequestBody ZoneChange change) {
+    return zoneService.applyChange(name, change);
   }
 
   @PatchMapping("/{name}/mute")
   public ZoneState muteZone(@PathVariable String name, @RequestParam boolean isMuted) {
-    ZoneState zoneState =
-        zoneStateRepository
-            .findById(name)
-            .or(() -> defaultState(name))
-            .map(this::enrichState)
-            .orElseThrow(() -> new RuntimeException("Zone not found"));
-    zoneState.setMuted(isMuted);
-    zoneRouter.syncZone(zoneState);
-    return zoneStateRepository.save(zoneState);
+    return zoneService.applyChange(name, ZoneChange.muted(isMuted));
   }
 
   @PatchMapping("/{name}/toggleMute")
   public ZoneState toggleMuteZone(@PathVariable String name) {
-    ZoneState zoneState =
-        zoneStateRepository
-            .findById(name)
-            .or(() -> defaultState(name))
-            .map(this::enrichState)
-            .orElseThrow(() -> new RuntimeException("Zone not found"));
-    zoneState.setMuted(!zoneState.isMuted());
-    zoneRouter.syncZone(zoneState);
-    return zoneStateRepository.save(zoneState);
+    return zoneService.applyChange(name, state -> ZoneChange.muted(!state.isMuted()));
   }
 
   @PatchMapping("/{name}/volume")
   public ZoneState changeVolume(@PathVariable String name, @RequestParam int volumePercent) {
-    ZoneState zoneState =
-        zoneStateRepository
-            .findById(name)
-            .or(() -> defaultState(name))
-            .map(this::enrichState)
-            .orElseThrow(() -> new RuntimeException("Zone not found"));
-    zoneState.setVolume(volumePercent);
-    zoneRouter.syncZone(zoneState);
-    return zoneStateRepository.save(zoneState);
+    return zoneService.applyChange(name, ZoneChange.volume(volumePercent));
   }
 
   @PatchMapping("/{name}/incrementVolume")
   public ZoneState incrementVolume(
       @PathVariable String name, @Min(-20) @Max(20) @RequestParam int increment) {
-    ZoneState zoneState =
-        zoneStateRepository
-            .findById(name)
-            .or(() -> defaultState(name))
-            .map(this::enrichState)
-            .orElseThrow(() -> new RuntimeException("Zone not found"));
-    var nextVolume = zoneState.getVolume() + increment;
-    if (nextVolume < 0) {
-      nextVolume = 0;
-    } else if (nextVolume > 100) {
-      nextVolume = 100;
-    }
-    zoneState.setVolume(nextVolume);
-    zoneRouter.syncZone(zoneState);
-    return zoneStateRepository.save(zoneState);
+    // Clamped to 0-100 by the service
+    return zoneService.applyChange(
+        name, state -> ZoneChange.volume(state.getVolume() + increment));
   }
 
   @PatchMapping("/{name}/source")
   public ZoneState changeSource(
       @PathVariable String name, @RequestParam @NotBlank String sourceName) {
-    ZoneState zoneState =
-        zoneStateRepository
-            .findById(name)
-            .or(() -> defaultState(name))
-            .map(this::enrichState)
-            .orElseThrow(() -> new RuntimeException("Zone not found"));
-    Source source =
-        sourceRepository
-            .findByName(sourceName)
-            .orElseThrow(() -> new RuntimeException("Source not found"));
-
-    if (zoneState.getSourceName() != null && zoneState.getSourceName().equals(sourceName)) {
-      LOG.warn("nothing to do, cannot configure with the same source");
-      return zoneState;
-    }
-
-    // When changing source, we need to mute the existing connections.
-    if (!zoneState.isMuted()) {
-      LOG.info("Before source change, mute existing route");
-      zoneState.setMuted(true);
-      zoneRouter.syncZone(zoneState);
-      zoneState.setMuted(false);
-    }
-
-    zoneState.setSourceName(source.getName());
-    zoneRouter.syncZone(zoneState);
-    return zoneStateRepository.save(zoneState);
-  }
-
-  private ZoneState enrichState(ZoneState zoneState) {
-    zoneRepository.findByName(zoneState.getName()).ifPresent(zoneState::setZoneDetails);
-    sourceRepository.findByName(zoneState.getSourceName()).ifPresent(zoneState::setSourceDetails);
-    return zoneState;
-  }
-
-  private Optional<ZoneState> defaultState(String zoneName) {
-    return zoneRepository
-        .findByName(zoneName)
-        .map(
-            zone -> {
-              LOG.info("creating default zone: {}", zoneName);
-              var defaultState = new ZoneState();
-              defaultState.setVolume(0);
-              defaultState.setMuted(true);
-              defaultState.setName(zoneName);
-              return defaultState;
-            });
+    return zoneService.applyChange(name, ZoneChange.source(sourceName));
   }
 }
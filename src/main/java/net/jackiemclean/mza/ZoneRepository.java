@@ -8,19 +8,19 @@ import org.springframework.stereotype.Repository;
 @Repository
 public class ZoneRepository {
 
-  private final ZoneConfig zoneConfig;
+  private final ZoneSourceRegistry registry;
 
   @Autowired
-  public ZoneRepository(ZoneConfig zoneConfig) {
-    this.zoneConfig = zoneConfig;
+  public ZoneRepository(ZoneSourceRegistry registry) {
+    this.registry = registry;
   }
 
   public Optional<Zone> findByName(String name) {
-    return zoneConfig.getZones().stream().filter(zone -> zone.getName().equals(name)).findFirst();
+    return registry.zone(name);
   }
 
   public Collection<Zone> findAll() {
-    return zoneConfig.getZones();
+    return registry.zones();
   }
 
   public boolean existsByName(String name) {
@@ -1,8 +1,7 @@
 package net.jackiemclean.mza;
 
-import org.eclipse.paho.client.mqttv3.MqttClient;
-import org.eclipse.paho.client.mqttv3.MqttException;
-import org.eclipse.paho.client.mqttv3.MqttMessage;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -11,12 +10,20 @@ import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
 @Service
 public class ZoneRouter {
 
   private static final Logger LOG = LoggerFactory.getLogger(ZoneRouter.class);
+  private static final byte[] EMPTY = new byte[0];
 
   @Autowired
   ZoneStateRepository zoneStateRepository;
@@ -26,100 +33,175 @@ public class ZoneRouter {
   SourceRepository sourceRepository;
   @Autowired
   AudioInterface audioInterface;
-  @Autowired(required = false)
-  Optional<MqttClient> mqttClient;
+  @Autowired
+  MqttPublisher mqttPublisher;
+  @Autowired
+  ZoneSourceRegistry registry;
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
 
   @Value("${mqtt.topic.base:mza/zone/}")
   String topicBase;
 
   public void syncZone(ZoneState zoneState) {
-    var zone = zoneRepository.findByName(zoneState.getName());
-    var source = sourceRepository.findByName(zoneState.getSourceName());
-    if (zone.isEmpty()) {
-      LOG.error("Referenced zone {} does not exist", zoneState.getName());
-      return;
-    }
+    syncZones(List.of(zoneState), Map.of());
+  }
+
+  /**
+   * Hands all zones to the audio interface as one batch, then publishes each to MQTT.
+   *
+   * @param previousSourceNames for zones switching source while playing, the source they are
+   *     switching away from; these are applied as route switches
+   */
+  public void syncZones(Collection<ZoneState> zoneStates, Map<String, String> previousSourceNames) {
+    List<ZoneSync> syncs = new ArrayList<>(zoneStates.size());
+    for (ZoneState zoneState : zoneStates) {
+      var zone = zoneRepository.findByName(zoneState.getName());
+      var source = sourceRepository.findByName(zoneState.getSourceName());
+      if (zone.isEmpty()) {
+        LOG.error("Referenced zone {} does not exist", zoneState.getName());
+        continue;
+      }
 
-    if (source.isEmpty()) {
-      LOG.warn("No source configured for zone {}", zoneState.getName());
+      if (source.isEmpty()) {
+        LOG.warn("No source configured for zone {}", zoneState.getName());
+        continue;
+      }
+      Source previousSource =
+          Optional.ofNullable(previousSourceNames.get(zoneState.getName()))
+              .flatMap(sourceRepository::findByName)
+              .orElse(null);
+      syncs.add(new ZoneSync(zone.get(), source.get(), zoneState, previousSource));
+    }
+    if (syncs.isEmpty()) {
       return;
     }
 
-    audioInterface.sync(zone.get(), source.get(), zoneState);
-    LOG.debug("Synced {} with state {}", zone.get().getName(), zoneState);
+    audioInterface.syncAll(syncs);
+    LOG.debug("Synced {} zone(s): {}", syncs.size(), zoneStates);
 
-    if (mqttClient != null && mqttClient.isPresent()) {
+    if (mqttPublisher.isEnabled()) {
       LOG.debug("Push zone update via MQTT");
-      publishZoneToMqtt(zoneState);
+      for (ZoneSync sync : syncs) {
+        publishZoneToMqtt(sync.zoneState());
+      }
     }
   }
 
-  private void publishZoneToMqtt(ZoneState zoneState) {
-    if (mqttClient == null || mqttClient.isEmpty()) {
+  /** Clears the retained MQTT topics of a zone that is no longer configured. */
+  public void publishZoneRemoval(String zoneName) {
+    if (!mqttPublisher.isEnabled()) {
       return;
     }
-
-    MqttClient client = mqttClient.get();
-    for (var i = 1; i < 5; i++) {
-      if (!client.isConnected()) {
-        LOG.error("MQTT not connected, attempting to reconnect (retry #{})", i);
-        try {
-          client.reconnect();
-          break;
-        } catch (MqttException e) {
-          LOG.error("Failed to reconnect... waiting a bit", e);
-          try {
-            Thread.sleep(5_000);
-          } catch (InterruptedException ie) {
-            LOG.error("Interrupted my sleep", e);
-            break;
-          }
-        }
-      }
+    ZoneSourceRegistry.ZoneTopics topics = ZoneSourceRegistry.ZoneTopics.of(topicBase + zoneName);
+    if (mqttPublisher.topicMode().fields()) {
+      mqttPublisher.publish(topics.sourceName(), EMPTY, true);
+      mqttPublisher.publish(topics.volume(), EMPTY, true);
+      mqttPublisher.publish(topics.muted(), EMPTY, true);
+      mqttPublisher.publish(topics.description(), EMPTY, true);
     }
+    if (mqttPublisher.topicMode().json()) {
+      mqttPublisher.publish(topics.base(), EMPTY, true);
+    }
+  }
 
-    try {
-      String topic = topicBase + zoneState.getName();
+  /** Publishes the zone's state; values the broker already holds are skipped by the publisher. */
+  private void publishZoneToMqtt(ZoneState zoneState) {
+    ZoneSourceRegistry.ZoneTopics topics = registry.zoneTopics(zoneState.getName());
+    if (topics == null) {
+      topics = ZoneSourceRegistry.ZoneTopics.of(topicBase + zoneState.getName());
+    }
+    String description =
+        zoneState.getZoneDetails() != null ? zoneState.getZoneDetails().getDescription() : null;
 
+    if (mqttPublisher.topicMode().fields()) {
       // Publish each value to its respective subtopic with retained flag
-      MqttMessage sourceNameMsg = new MqttMessage(zoneState.getSourceName().getBytes());
-      sourceNameMsg.setRetained(true);
-      client.publish(topic + "/sourceName", sourceNameMsg);
-
-      MqttMessage volumeMsg = new MqttMessage(String.valueOf(zoneState.getVolume()).getBytes());
-      volumeMsg.setRetained(true);
-      client.publish(topic + "/volume", volumeMsg);
-
-      MqttMessage mutedMsg = new MqttMessage(String.valueOf(zoneState.isMuted()).getBytes());
-      mutedMsg.setRetained(true);
-      client.publish(topic + "/muted", mutedMsg);
-
-      if (zoneState.getZoneDetails() != null) {
-        MqttMessage descriptionMsg = new MqttMessage(zoneState.getZoneDetails().getDescription().getBytes());
-        descriptionMsg.setRetained(true);
-        client.publish(topic + "/description", descriptionMsg);
+      mqttPublisher.publish(topics.sourceName(), zoneState.getSourceName().getBytes(), true);
+      mqttPublisher.publish(
+          topics.volume(), String.valueOf(zoneState.getVolume()).getBytes(), true);
+      mqttPublisher.publish(topics.muted(), String.valueOf(zoneState.isMuted()).getBytes(), true);
+
+      if (description != null) {
+        mqttPublisher.publish(topics.description(), description.getBytes(), true);
+      }
+    }
+
+    if (mqttPublisher.topicMode().json()) {
+      Map<String, Object> document = new LinkedHashMap<>();
+      document.put("name", zoneState.getName());
+      document.put("sourceName", zoneState.getSourceName());
+      document.put("volume", zoneState.getVolume());
+      document.put("muted", zoneState.isMuted());
+      if (description != null) {
+        document.put("description", description);
+      }
+      try {
+        mqttPublisher.publish(topics.base(), objectMapper.writeValueAsBytes(document), true);
+      } catch (JsonProcessingException e) {
+        LOG.error("Failed to encode zone {} for MQTT", zoneState.getName(), e);
       }
-    } catch (Exception e) {
-      LOG.error("Failed to publish zone to MQTT", e);
     }
   }
 
+  /**
+   * Reconciles the audio backend with the stored zone states on startup. The backend adopts
+   * whatever already matches (e.g. after a restart of mza alone, everything) and applies only the
+   * differences; zones with no stored state are brought up muted.
+   */
   @EventListener(ApplicationReadyEvent.class)
   public void resyncZoneState() {
-    LOG.info("Zeroing out all zones on startup");
-    ZoneState dummy = new ZoneState();
-    dummy.setMuted(true);
-    for (var zone : zoneRepository.findAll()) {
-      dummy.setName(zone.getName());
-      for (var source : sourceRepository.findAll()) {
-        dummy.setSourceName(source.getName());
-        syncZone(dummy);
+    reconcile(zoneRepository.findAll());
+  }
+
+  /**
+   * Warm-starts the given zones from their stored state (see {@link #resyncZoneState()}) and
+   * publishes them to MQTT.
+   */
+  public AudioInterface.WarmStart reconcile(Collection<Zone> zones) {
+    long start = System.nanoTime();
+    List<Source> sources = sourceRepository.findAll();
+    if (sources.isEmpty()) {
+      LOG.warn("No sources configured, skipping zone reconcile");
+      return new AudioInterface.WarmStart(0, 0, 0);
+    }
+
+    Map<String, ZoneState> stored = new HashMap<>();
+    for (var zoneState : zoneStateRepository.findAllById(zones.stream().map(Zone::getName).toList())) {
+      stored.put(zoneState.getName(), zoneState);
+    }
+
+    List<ZoneSync> syncs = new ArrayList<>();
+    for (var zone : zones) {
+      ZoneState zoneState = stored.get(zone.getName());
+      if (zoneState == null) {
+        zoneState = new ZoneState();
+        zoneState.setName(zone.getName());
+        zoneState.setMuted(true);
+        zoneState.setSourceName(sources.get(0).getName());
+      }
+      var source = sourceRepository.findByName(zoneState.getSourceName());
+      if (source.isEmpty()) {
+        LOG.warn("No source configured for zone {}", zone.getName());
+        continue;
       }
+      syncs.add(new ZoneSync(zone, source.get(), zoneState));
     }
 
-    LOG.info("Re-syncing all previously known zone state.");
-    for (var zoneState : zoneStateRepository.findAll()) {
-      syncZone(zoneState);
+    AudioInterface.WarmStart result = audioInterface.warmStart(syncs, sources);
+    LOG.info(
+        "Warm start: {} zone(s) already in sync, {} adjusted with {} backend command(s) in {}ms",
+        result.adopted(),
+        result.changed(),
+        result.commands(),
+        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+
+    if (mqttPublisher.isEnabled()) {
+      for (ZoneSync sync : syncs) {
+        if (stored.containsKey(sync.zone().getName())) {
+          publishZoneToMqtt(sync.zoneState());
+        }
+      }
     }
+    return result;
   }
 }
@@ -0,0 +1,264 @@
+package net.jackiemclean.mza;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Applies {@link ZoneChange}s to zones. Each call is one state transition: every zone is read
+ * once, the changed zones are synced to the audio backend as one batch, saved together and
+ * announced with one {@link ZoneStateChangedEvent} each.
+ *
+ * Transitions run in their zones' turn on {@link ZoneActors} and commit before the turn ends, so
+ * concurrent changes to a zone (e.g. two clients incrementing the volume) apply one after the
+ * other instead of overwriting each other, without locking in the database. Each zone's last
+ * committed state is kept in memory, so a transition reads the database only for a zone it has
+ * not seen yet.
+ */
+@Service
+public class ZoneService {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ZoneService.class);
+
+  @Autowired private ZoneStateRepository zoneStateRepository;
+  @Autowired private SourceRepository sourceRepository;
+  @Autowired private ZoneRepository zoneRepository;
+  @Autowired private ZoneRouter zoneRouter;
+  @Autowired private ApplicationEventPublisher eventPublisher;
+  @Autowired private ZoneActors zoneActors;
+  @Autowired private TransactionTemplate transactionTemplate;
+
+  // Last committed state per zone; written only in the zone's turn. Never handed out: callers get
+  // copies, so a later transition cannot change an object they are still using.
+  private final Map<String, ZoneState> states = new ConcurrentHashMap<>();
+
+  public ZoneState getState(String name) {
+    return zoneStateRepository
+        .findById(name)
+        .or(() -> defaultState(name))
+        .map(this::enrichState)
+        .orElseThrow(() -> new RuntimeException("Zone not found"));
+  }
+
+  public ZoneState applyChange(String name, ZoneChange change) {
+    return applyChange(name, state -> change);
+  }
+
+  /**
+   * Applies a change computed from the current state, e.g. a toggle or a relative volume step,
+   * without reading the zone twice.
+   */
+  public ZoneState applyChange(String name, Function<ZoneState, ZoneChange> changeFn) {
+    return transition(List.of(name), () -> List.of(resolve(name, changeFn))).get(0);
+  }
+
+  /**
+   * Applies changes to several zones at once. All changes are validated before any zone is
+   * touched; results are in request order.
+   */
+  public List<ZoneState> applyChanges(List<ZoneUpdate> updates) {
+    Set<String> seen = new HashSet<>();
+    for (ZoneUpdate update : updates) {
+      if (!seen.add(update.name())) {
+        throw new RuntimeException("Zone " + update.name() + " changed more than once");
+      }
+    }
+    return transition(
+        seen,
+        () -> {
+          List<PendingChange> pending = new ArrayList<>(updates.size());
+          for (ZoneUpdate update : updates) {
+            pending.add(resolve(update.name(), state -> update.change()));
+          }
+          return pending;
+        });
+  }
+
+  /**
+   * Applies a change computed per zone from its current state to all of the named zones as one
+   * unit, e.g. a group operation.
+   */
+  public List<ZoneState> applyChanges(
+      Collection<String> names, Function<ZoneState, ZoneChange> changeFn) {
+    return transition(
+        names,
+        () -> {
+          List<PendingChange> pending = new ArrayList<>(names.size());
+          for (String name : names) {
+            pending.add(resolve(name, changeFn));
+          }
+          return pending;
+        });
+  }
+
+  /** Deletes the zone's stored state, so it starts again from the defaults. */
+  public void reset(String name) {
+    zoneActors.call(
+        name,
+        () -> {
+          states.remove(name);
+          transactionTemplate.executeWithoutResult(
+              status -> {
+                zoneStateRepository.deleteById(name);
+                eventPublisher.publishEvent(new ZoneStateChangedEvent(name, null));
+              });
+          return null;
+        });
+  }
+
+  /**
+   * Resolves and applies changes to the named zones in one turn and one transaction, then
+   * remembers the committed states.
+   */
+  private List<ZoneState> transition(
+      Collection<String> names, Supplier<List<PendingChange>> resolver) {
+    return zoneActors.call(
+        names,
+        () -> {
+          List<ZoneState> changed = new ArrayList<>();
+          List<ZoneState> results =
+              transactionTemplate.execute(status -> apply(resolver.get(), changed));
+          for (ZoneState zoneState : changed) {
+            states.put(zoneState.getName(), copy(zoneState));
+          }
+          return results;
+        });
+  }
+
+  private record PendingChange(
+      ZoneState state, boolean stored, ZoneChange change, Source source) {}
+
+  /** Called in the zone's turn. */
+  private PendingChange resolve(String name, Function<ZoneState, ZoneChange> changeFn) {
+    ZoneState cached = states.get(name);
+    Optional<ZoneState> stored =
+        cached != null ? Optional.of(copy(cached)) : zoneStateRepository.findById(name);
+    ZoneState zoneState =
+        stored
+            .or(() -> defaultState(name))
+            .map(this::enrichState)
+            .orElseThrow(() -> new RuntimeException("Zone not found: " + name));
+    if (cached == null && stored.isPresent()) {
+      states.put(name, copy(zoneState));
+    }
+    ZoneChange change = changeFn.apply(zoneState);
+
+    Source source = null;
+    if (change.sourceName() != null) {
+      source =
+          sourceRepository
+              .findByName(change.sourceName())
+              .orElseThrow(() -> new RuntimeException("Source not found"));
+    }
+    return new PendingChange(zoneState, stored.isPresent(), change, source);
+  }
+
+  /** Applies resolved changes, adding the zones that changed to {@code changed}. */
+  private List<ZoneState> apply(List<PendingChange> pending, List<ZoneState> changed) {
+    List<ZoneState> results = new ArrayList<>(pending.size());
+    Map<String, String> previousSources = new HashMap<>();
+    List<PendingChange> toApply = new ArrayList<>();
+
+    for (PendingChange p : pending) {
+      ZoneState zoneState = p.state();
+      ZoneChange change = p.change();
+      boolean sourceChanged =
+          p.source() != null && !Objects.equals(zoneState.getSourceName(), p.source().getName());
+      boolean volumeChanged = change.volume() != null && change.volume() != zoneState.getVolume();
+      boolean muteChanged = change.muted() != null && change.muted() != zoneState.isMuted();
+
+      results.add(zoneState);
+      if (!sourceChanged && !volumeChanged && !muteChanged && p.stored()) {
+        LOG.debug("nothing to do for zone {}", zoneState.getName());
+        continue;
+      }
+      if (sourceChanged && !zoneState.isMuted() && zoneState.getSourceName() != null) {
+        // Switched glitch-free by the audio interface
+        previousSources.put(zoneState.getName(), zoneState.getSourceName());
+      }
+      toApply.add(p);
+      changed.add(zoneState);
+    }
+    if (changed.isEmpty()) {
+      return results;
+    }
+
+    for (PendingChange p : toApply) {
+      ZoneState zoneState = p.state();
+      ZoneChange change = p.change();
+      if (p.source() != null) {
+        zoneState.setSourceName(p.source().getName());
+        zoneState.setSourceDetails(p.source());
+      }
+      if (change.volume() != null) {
+        zoneState.setVolume(Math.max(0, Math.min(100, change.volume())));
+      }
+      if (change.muted() != null) {
+        zoneState.setMuted(change.muted());
+      }
+    }
+
+    zoneRouter.syncZones(changed, previousSources);
+    zoneStateRepository.saveAll(changed);
+    for (ZoneState zoneState : changed) {
+      eventPublisher.publishEvent(new ZoneStateChangedEvent(zoneState.getName(), zoneState));
+    }
+    return results;
+  }
+
+  /**
+   * Forgets cached state of reconfigured zones. Published in those zones' turn, so no transition
+   * is writing the cache for them.
+   */
+  @EventListener
+  public void onCatalogueChanged(CatalogueChangedEvent event) {
+    states.keySet().removeAll(event.zones());
+  }
+
+  private static ZoneState copy(ZoneState original) {
+    ZoneState copy = new ZoneState();
+    copy.setName(original.getName());
+    copy.setSourceName(original.getSourceName());
+    copy.setVolume(original.getVolume());
+    copy.setMuted(original.isMuted());
+    copy.setZoneDetails(original.getZoneDetails());
+    copy.setSourceDetails(original.getSourceDetails());
+    return copy;
+  }
+
+  private ZoneState enrichState(ZoneState zoneState) {
+    zoneRepository.findByName(zoneState.getName()).ifPresent(zoneState::setZoneDetails);
+    sourceRepository.findByName(zoneState.getSourceName()).ifPresent(zoneState::setSourceDetails);
+    return zoneState;
+  }
+
+  private Optional<ZoneState> defaultState(String zoneName) {
+    return zoneRepository
+        .findByName(zoneName)
+        .map(
+            zone -> {
+              LOG.info("creating default zone: {}", zoneName);
+              var defaultState = new ZoneState();
+              defaultState.setVolume(0);
+              defaultState.setMuted(true);
+              defaultState.setName(zoneName);
+              return defaultState;
+            });
+  }
+}
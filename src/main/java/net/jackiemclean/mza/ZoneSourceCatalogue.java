@@ -0,0 +1,231 @@
+package net.jackiemclean.mza;
+
+import jakarta.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Where the zones and sources come from ({@code mza.catalogue.store}).
+ *
+ * With {@code YAML} (the default) they are the {@code zones:} and {@code sources:} lists of the
+ * configuration and can only be changed by editing it (see {@link ZoneSourceReloader}). With
+ * {@code DATABASE} they are rows keyed by name in the mza database, seeded from the configuration
+ * the first time, and zones and sources can be added and removed at runtime. Either way {@link
+ * ZoneSourceRegistry} holds them in memory, so lookups on the control path never reach the
+ * database; every change is committed to the database first and then applied through {@link
+ * ZoneSourceReloader#reload}, which swaps the registry and reconciles just the zones concerned.
+ * In the database store both lists are ordered by name.
+ */
+@Service
+public class ZoneSourceCatalogue {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ZoneSourceCatalogue.class);
+
+  private static final int MAX_PAGE_SIZE = 1000;
+
+  public enum Store {
+    YAML,
+    DATABASE
+  }
+
+  /** One page of zones or sources, and how many there are in all. */
+  public record Listing<T>(List<T> items, int page, int size, int total) {}
+
+  @Autowired private ZoneSourceRegistry registry;
+  @Autowired private ZoneSourceReloader reloader;
+  @Autowired private ZoneCatalogueRepository zoneStore;
+  @Autowired private SourceCatalogueRepository sourceStore;
+  @Autowired private TransactionTemplate transactionTemplate;
+
+  @Value("${mza.catalogue.store:YAML}")
+  private Store store;
+
+  // Serializes read-write-reload of the lists
+  private final ReentrantLock lock = new ReentrantLock();
+
+  @PostConstruct
+  public void init() {
+    if (store != Store.DATABASE) {
+      return;
+    }
+    if (zoneStore.count() == 0 && sourceStore.count() == 0) {
+      LOG.info(
+          "Catalogue database is empty, seeding it with {} configured zone(s) and {} source(s)",
+          registry.zones().size(),
+          registry.sources().size());
+      zoneStore.saveAll(registry.zones());
+      sourceStore.saveAll(registry.sources());
+    }
+    registry.replace(
+        zoneStore.findAll(Sort.by("name")), sourceStore.findAll(Sort.by("name")));
+  }
+
+  /** Whether zones and sources can be added and removed at runtime. */
+  public boolean isWritable() {
+    return store == Store.DATABASE;
+  }
+
+  public Listing<Zone> zones(int page, int size) {
+    return page(registry.zones(), page, size);
+  }
+
+  public Listing<Source> sources(int page, int size) {
+    return page(registry.sources(), page, size);
+  }
+
+  public ZoneSourceReloader.Result addZone(Zone zone) {
+    requireWritable();
+    requireName(zone.getName(), "Zone");
+    lock.lock();
+    try {
+      if (registry.zone(zone.getName()).isPresent()) {
+        throw new IllegalArgumentException("Zone already exists: " + zone.getName());
+      }
+      return apply(
+          with(registry.zones(), zone, Zone::getName),
+          registry.sources(),
+          () -> zoneStore.save(zone),
+          () -> zoneStore.deleteById(zone.getName()));
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public ZoneSourceReloader.Result removeZone(String name) {
+    requireWritable();
+    lock.lock();
+    try {
+      Zone removed =
+          registry
+              .zone(name)
+              .orElseThrow(() -> new IllegalArgumentException("Zone not found: " + name));
+      return apply(
+          without(registry.zones(), name, Zone::getName),
+          registry.sources(),
+          () -> zoneStore.deleteById(name),
+          () -> zoneStore.save(removed));
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public ZoneSourceReloader.Result addSource(Source source) {
+    requireWritable();
+    requireName(source.getName(), "Source");
+    lock.lock();
+    try {
+      if (registry.source(source.getName()).isPresent()) {
+        throw new IllegalArgumentException("Source already exists: " + source.getName());
+      }
+      return apply(
+          registry.zones(),
+          with(registry.sources(), source, Source::getName),
+          () -> sourceStore.save(source),
+          () -> sourceStore.deleteById(source.getName()));
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public ZoneSourceReloader.Result removeSource(String name) {
+    requireWritable();
+    lock.lock();
+    try {
+      Source removed =
+          registry
+              .source(name)
+              .orElseThrow(() -> new IllegalArgumentException("Source not found: " + name));
+      return apply(
+          registry.zones(),
+          without(registry.sources(), name, Source::getName),
+          () -> sourceStore.deleteById(name),
+          () -> sourceStore.save(removed));
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Commits {@code write}, then reloads outside any transaction: the reload waits for zone turns,
+   * and holding the database write lock meanwhile would fail any zone change already in its turn.
+   * If the reload fails, {@code undo} reverts the row and the previous catalogue is reloaded, so
+   * the database and the registry keep agreeing.
+   */
+  private ZoneSourceReloader.Result apply(
+      List<Zone> zones, List<Source> sources, Runnable write, Runnable undo) {
+    ZoneSourceReloader.validate(zones, sources);
+    List<Zone> oldZones = registry.zones();
+    List<Source> oldSources = registry.sources();
+    transactionTemplate.executeWithoutResult(status -> write.run());
+    try {
+      return reloader.reload(zones, sources);
+    } catch (RuntimeException e) {
+      LOG.error("Catalogue change failed to apply, reverting it", e);
+      try {
+        transactionTemplate.executeWithoutResult(status -> undo.run());
+        // The registry hands out the lists of its current index: new ones mean it was swapped
+        if (registry.zones() != oldZones || registry.sources() != oldSources) {
+          reloader.reload(oldZones, oldSources);
+        }
+      } catch (RuntimeException revertFailed) {
+        e.addSuppressed(revertFailed);
+      }
+      throw e;
+    }
+  }
+
+  private void requireWritable() {
+    if (store != Store.DATABASE) {
+      throw new ResponseStatusException(
+          HttpStatus.CONFLICT,
+          "Zones and sources are configured in YAML: set mza.catalogue.store=DATABASE to change them at runtime");
+    }
+  }
+
+  private static void requireName(String name, String kind) {
+    if (name == null || name.isBlank()) {
+      throw new IllegalArgumentException(kind + " needs a name");
+    }
+  }
+
+  /** The list with the item inserted in name order. */
+  private static <T> List<T> with(List<T> items, T item, Function<T, String> name) {
+    List<T> result = new ArrayList<>(items.size() + 1);
+    result.addAll(items);
+    result.add(item);
+    result.sort(Comparator.comparing(name));
+    return result;
+  }
+
+  private static <T> List<T> without(List<T> items, String removed, Function<T, String> name) {
+    List<T> result = new ArrayList<>(items.size());
+    for (T item : items) {
+      if (!name.apply(item).equals(removed)) {
+        result.add(item);
+      }
+    }
+    return result;
+  }
+
+  private static <T> Listing<T> page(List<T> items, int page, int size) {
+    if (page < 0 || size < 1 || size > MAX_PAGE_SIZE) {
+      throw new IllegalArgumentException(
+          "Page must be at least 0 and size between 1 and " + MAX_PAGE_SIZE);
+    }
+    int from = (int) Math.min((long) page * size, items.size());
+    int to = Math.min(from + size, items.size());
+    return new Listing<>(items.subList(from, to), page, size, items.size());
+  }
+}
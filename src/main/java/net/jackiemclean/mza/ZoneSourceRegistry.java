@@ -0,0 +1,115 @@
+package net.jackiemclean.mza;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Index of the configured zones and sources, built from {@link ZoneConfig} and {@link
+ * SourceConfig} at startup. Each version of the index is immutable; a configuration reload builds
+ * a new one and swaps it in as a whole (see {@link ZoneSourceReloader}), so a reader sees either
+ * the old or the new zones and sources, never a mix.
+ *
+ * Lookups by name are hash lookups rather than scans of the config lists, which matters because
+ * every state enrichment, sync and Snapcast view resolves zones and sources by name. Values that
+ * only depend on the config, such as each zone's MQTT topics, are derived here once instead of on
+ * every publish. Iteration follows config order; if a name is configured twice the first wins, as
+ * it did with the list scans.
+ */
+@Component
+public class ZoneSourceRegistry {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ZoneSourceRegistry.class);
+
+  /** The retained MQTT topics of one zone. */
+  public record ZoneTopics(
+      String base, String sourceName, String volume, String muted, String description) {
+
+    static ZoneTopics of(String base) {
+      return new ZoneTopics(
+          base, base + "/sourceName", base + "/volume", base + "/muted", base + "/description");
+    }
+  }
+
+  private record Index(
+      Map<String, Zone> zones,
+      List<Zone> zoneList,
+      Map<String, Source> sources,
+      List<Source> sourceList,
+      Map<String, ZoneTopics> zoneTopics) {}
+
+  private final String zoneTopicBase;
+  private volatile Index index;
+
+  @Autowired
+  public ZoneSourceRegistry(
+      ZoneConfig zoneConfig,
+      SourceConfig sourceConfig,
+      @Value("${mqtt.topic.base:mza/zone/}") String zoneTopicBase) {
+    this.zoneTopicBase = zoneTopicBase;
+    replace(zoneConfig.getZones(), sourceConfig.getSources());
+  }
+
+  /** Swaps in a new set of zones and sources. */
+  void replace(List<Zone> zoneList, List<Source> sourceList) {
+    Map<String, Zone> zones = byName(zoneList, Zone::getName, "zone");
+    Map<String, Source> sources = byName(sourceList, Source::getName, "source");
+
+    Map<String, ZoneTopics> topics = new LinkedHashMap<>();
+    for (String name : zones.keySet()) {
+      topics.put(name, ZoneTopics.of(zoneTopicBase + name));
+    }
+    index =
+        new Index(
+            zones,
+            List.copyOf(zones.values()),
+            sources,
+            List.copyOf(sources.values()),
+            Collections.unmodifiableMap(topics));
+    LOG.info("Registered {} zone(s) and {} source(s)", zones.size(), sources.size());
+  }
+
+  private static <T> Map<String, T> byName(
+      List<T> items, Function<T, String> name, String kind) {
+    Map<String, T> indexed = new LinkedHashMap<>();
+    if (items != null) {
+      for (T item : items) {
+        if (indexed.putIfAbsent(name.apply(item), item) != null) {
+          LOG.warn("Duplicate {} name '{}' in configuration, using the first", kind, name.apply(item));
+        }
+      }
+    }
+    return Collections.unmodifiableMap(indexed);
+  }
+
+  public Optional<Zone> zone(String name) {
+    return Optional.ofNullable(name == null ? null : index.zones().get(name));
+  }
+
+  public Optional<Source> source(String name) {
+    return Optional.ofNullable(name == null ? null : index.sources().get(name));
+  }
+
+  /** Zones in config order. */
+  public List<Zone> zones() {
+    return index.zoneList();
+  }
+
+  /** Sources in config order. */
+  public List<Source> sources() {
+    return index.sourceList();
+  }
+
+  /** The zone's MQTT topics, or null if the zone is not configured. */
+  public ZoneTopics zoneTopics(String zoneName) {
+    return zoneName == null ? null : index.zoneTopics().get(zoneName);
+  }
+}
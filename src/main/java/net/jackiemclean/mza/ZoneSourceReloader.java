@@ -0,0 +1,369 @@
+package net.jackiemclean.mza;
+
+import jakarta.annotation.PostConstruct;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.ConfigurationPropertySources;
+import org.springframework.boot.env.YamlPropertySourceLoader;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.env.PropertySource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Reloads the zone and source configuration at runtime, without a restart.
+ *
+ * The new lists are read from {@code mza.config.reload-file} (same {@code zones:} / {@code
+ * sources:} format as application.yaml; a list missing from the file is left as it is) on {@code
+ * POST /api/admin/reload}, or whenever the file changes if {@code mza.config.watch} is set. The
+ * reload is diffed against the current {@link ZoneSourceRegistry} and only what changed is
+ * touched:
+ *
+ * <ol>
+ *   <li>removed and redefined zones, and zones playing from a removed or redefined source, are
+ *       muted through their old routing, so nothing is left playing on outputs mza forgets;
+ *   <li>the registry is swapped atomically;
+ *   <li>removed zones leave their groups, added zones get a single-member group;
+ *   <li>added and redefined zones, and the muted ones above, are warm-started from their stored
+ *       state, as on startup. Adding a source warm-starts every zone, which silences the new
+ *       source's routes everywhere at the cost of one read of the backend state.
+ * </ol>
+ *
+ * All of this runs in the affected zones' turn on {@link ZoneActors}, so no zone change interleaves
+ * with it. Zones whose definition and source are unchanged are not touched at all.
+ */
+@Service
+public class ZoneSourceReloader {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ZoneSourceReloader.class);
+
+  /** What a reload changed, by name. */
+  public record Result(
+      Set<String> addedZones,
+      Set<String> removedZones,
+      Set<String> changedZones,
+      Set<String> addedSources,
+      Set<String> removedSources,
+      Set<String> changedSources,
+      int reconciledZones,
+      int commands) {}
+
+  @Autowired private ZoneSourceRegistry registry;
+  @Autowired private ZoneRouter zoneRouter;
+  @Autowired private AudioInterface audioInterface;
+  @Autowired private ZoneStateRepository zoneStateRepository;
+  @Autowired private GroupService groupService;
+  @Autowired private ZoneActors zoneActors;
+  @Autowired private StateVersions stateVersions;
+  @Autowired private ApplicationEventPublisher eventPublisher;
+
+  @Value("${mza.config.reload-file:}")
+  private String reloadFile;
+
+  @Value("${mza.config.watch:false}")
+  private boolean watch;
+
+  @Value("${mza.catalogue.store:YAML}")
+  private ZoneSourceCatalogue.Store store;
+
+  private final ReentrantLock lock = new ReentrantLock();
+  // Guarded by lock
+  private long lastModified;
+
+  @PostConstruct
+  public void init() {
+    if (!reloadFile.isBlank()) {
+      try {
+        lastModified = modifiedTime();
+      } catch (RuntimeException e) {
+        LOG.warn("Configuration reload file {} is not readable yet: {}", reloadFile, e.getMessage());
+      }
+      LOG.info("Zone and source configuration reloadable from {}{}", reloadFile,
+          watch ? " (watched)" : "");
+    }
+  }
+
+  /** Re-reads {@code mza.config.reload-file} and applies it. */
+  public Result reloadFromFile() {
+    if (reloadFile.isBlank()) {
+      throw new RuntimeException("No configuration file to reload from: set mza.config.reload-file");
+    }
+    if (store == ZoneSourceCatalogue.Store.DATABASE) {
+      throw new RuntimeException(
+          "Zones and sources are stored in the database: change them through /api/catalogue");
+    }
+    lock.lock();
+    try {
+      lastModified = modifiedTime();
+      Binder binder = binder();
+      List<Zone> zones = binder.bind("zones", Bindable.listOf(Zone.class)).orElseGet(registry::zones);
+      List<Source> sources =
+          binder.bind("sources", Bindable.listOf(Source.class)).orElseGet(registry::sources);
+      return reload(zones, sources);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Scheduled(fixedDelayString = "${mza.config.watch-interval-ms:5000}")
+  public void watchFile() {
+    if (!watch || reloadFile.isBlank() || store == ZoneSourceCatalogue.Store.DATABASE) {
+      return;
+    }
+    lock.lock();
+    try {
+      if (modifiedTime() == lastModified) {
+        return;
+      }
+      LOG.info("{} changed, reloading zones and sources", reloadFile);
+      reloadFromFile();
+    } catch (RuntimeException e) {
+      LOG.error("Failed to reload {}", reloadFile, e);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /** Replaces the configured zones and sources, reconciling only what changed. */
+  public Result reload(List<Zone> zones, List<Source> sources) {
+    validate(zones, sources);
+    lock.lock();
+    try {
+      long start = System.nanoTime();
+      Map<String, Zone> oldZones = byName(registry.zones(), Zone::getName);
+      Map<String, Source> oldSources = byName(registry.sources(), Source::getName);
+      Map<String, Zone> newZones = byName(zones, Zone::getName);
+      Map<String, Source> newSources = byName(sources, Source::getName);
+
+      Set<String> addedZones = added(oldZones, newZones);
+      Set<String> removedZones = added(newZones, oldZones);
+      Set<String> changedZones = changed(oldZones, newZones, ZoneSourceReloader::sameZone);
+      Set<String> addedSources = added(oldSources, newSources);
+      Set<String> removedSources = added(newSources, oldSources);
+      Set<String> changedSources = changed(oldSources, newSources, ZoneSourceReloader::sameSource);
+
+      // Stored state is needed for the zones being silenced: those removed or redefined, or, if
+      // a source went away or changed, any zone that might be playing from it
+      Map<String, ZoneState> stored = new HashMap<>();
+      Iterable<ZoneState> states;
+      if (removedSources.isEmpty() && changedSources.isEmpty()) {
+        Set<String> candidates = new TreeSet<>(removedZones);
+        candidates.addAll(changedZones);
+        states = candidates.isEmpty() ? List.of() : zoneStateRepository.findAllById(candidates);
+      } else {
+        states = zoneStateRepository.findAll();
+      }
+      for (ZoneState zoneState : states) {
+        stored.put(zoneState.getName(), zoneState);
+      }
+
+      // Zones whose old routing must be silenced before the registry forgets it
+      Set<String> silence = new TreeSet<>(removedZones);
+      silence.addAll(changedZones);
+      for (String name : oldZones.keySet()) {
+        ZoneState zoneState = stored.get(name);
+        if (zoneState != null
+            && (removedSources.contains(zoneState.getSourceName())
+                || changedSources.contains(zoneState.getSourceName()))) {
+          silence.add(name);
+        }
+      }
+      // Zones to warm-start once the new registry is in place
+      Set<String> bringUp = new TreeSet<>();
+      if (addedSources.isEmpty()) {
+        bringUp.addAll(addedZones);
+        bringUp.addAll(silence);
+        bringUp.removeAll(removedZones);
+      } else {
+        bringUp.addAll(newZones.keySet());
+      }
+
+      Set<String> affected = new TreeSet<>(silence);
+      affected.addAll(bringUp);
+      boolean sourcesChanged =
+          !addedSources.isEmpty() || !removedSources.isEmpty() || !changedSources.isEmpty();
+      if (affected.isEmpty() && !sourcesChanged) {
+        LOG.info("Zone and source configuration unchanged");
+        return new Result(Set.of(), Set.of(), Set.of(), Set.of(), Set.of(), Set.of(), 0, 0);
+      }
+
+      int commands =
+          zoneActors.call(
+              affected,
+              () -> {
+                int issued = 0;
+                List<ZoneSync> mutes = new ArrayList<>(silence.size());
+                if (!oldSources.isEmpty()) {
+                  for (String name : silence) {
+                    mutes.add(mutedSync(oldZones.get(name), stored.get(name), oldSources));
+                  }
+                }
+                if (!mutes.isEmpty()) {
+                  issued += audioInterface.warmStart(mutes, oldSources.values()).commands();
+                }
+
+                registry.replace(zones, sources);
+                groupService.reconcileZones(addedZones, removedZones);
+                for (String name : removedZones) {
+                  zoneRouter.publishZoneRemoval(name);
+                }
+
+                List<Zone> reconcile = new ArrayList<>(bringUp.size());
+                for (String name : bringUp) {
+                  reconcile.add(newZones.get(name));
+                }
+                if (!reconcile.isEmpty()) {
+                  issued += zoneRouter.reconcile(reconcile).commands();
+                }
+                eventPublisher.publishEvent(new CatalogueChangedEvent(affected, sourcesChanged));
+                return issued;
+              });
+      stateVersions.changedAll(StateVersions.ZONE);
+
+      Result result =
+          new Result(
+              addedZones,
+              removedZones,
+              changedZones,
+              addedSources,
+              removedSources,
+              changedSources,
+              bringUp.size(),
+              commands);
+      LOG.info(
+          "Reloaded zones (+{} -{} ~{}) and sources (+{} -{} ~{}): reconciled {} zone(s) with {} backend command(s) in {}ms",
+          addedZones.size(),
+          removedZones.size(),
+          changedZones.size(),
+          addedSources.size(),
+          removedSources.size(),
+          changedSources.size(),
+          bringUp.size(),
+          commands,
+          TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+      return result;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /** The zone muted on its old source (or any old source if that is unknown). */
+  private static ZoneSync mutedSync(Zone zone, ZoneState stored, Map<String, Source> sources) {
+    Source source = stored != null ? sources.get(stored.getSourceName()) : null;
+    if (source == null) {
+      source = sources.values().iterator().next();
+    }
+    ZoneState muted = new ZoneState();
+    muted.setName(zone.getName());
+    muted.setVolume(stored != null ? stored.getVolume() : 0);
+    muted.setMuted(true);
+    muted.setSourceName(source.getName());
+    return new ZoneSync(zone, source, muted);
+  }
+
+  /** Rejects lists with a nameless zone or source, a missing channel, or no source at all. */
+  static void validate(List<Zone> zones, List<Source> sources) {
+    if (sources.isEmpty()) {
+      throw new IllegalArgumentException("At least one source must be configured");
+    }
+    for (Zone zone : zones) {
+      if (zone.getName() == null || zone.getName().isBlank()
+          || name(zone.getLeftOutput()) == null || name(zone.getRightOutput()) == null) {
+        throw new IllegalArgumentException("Zone needs a name and left and right outputs: " + zone.getName());
+      }
+    }
+    for (Source source : sources) {
+      if (source.getName() == null || source.getName().isBlank()
+          || name(source.getLeftInput()) == null || name(source.getRightInput()) == null) {
+        throw new IllegalArgumentException("Source needs a name and left and right inputs: " + source.getName());
+      }
+    }
+  }
+
+  private static boolean sameZone(Zone a, Zone b) {
+    return Objects.equals(name(a.getLeftOutput()), name(b.getLeftOutput()))
+        && Objects.equals(name(a.getRightOutput()), name(b.getRightOutput()))
+        && Objects.equals(a.getDescription(), b.getDescription());
+  }
+
+  private static boolean sameSource(Source a, Source b) {
+    return Objects.equals(name(a.getLeftInput()), name(b.getLeftInput()))
+        && Objects.equals(name(a.getRightInput()), name(b.getRightInput()));
+  }
+
+  private static String name(Output output) {
+    return output != null ? output.getName() : null;
+  }
+
+  private static String name(Input input) {
+    return input != null ? input.getName() : null;
+  }
+
+  private static <T> Map<String, T> byName(
+      Collection<T> items, Function<T, String> name) {
+    Map<String, T> indexed = new LinkedHashMap<>();
+    for (T item : items) {
+      indexed.putIfAbsent(name.apply(item), item);
+    }
+    return indexed;
+  }
+
+  /** Names in {@code after} but not in {@code before}. */
+  private static Set<String> added(Map<String, ?> before, Map<String, ?> after) {
+    Set<String> names = new TreeSet<>(after.keySet());
+    names.removeAll(before.keySet());
+    return names;
+  }
+
+  private static <T> Set<String> changed(
+      Map<String, T> before, Map<String, T> after, BiPredicate<T, T> same) {
+    Set<String> names = new TreeSet<>();
+    before.forEach(
+        (name, old) -> {
+          T updated = after.get(name);
+          if (updated != null && !same.test(old, updated)) {
+            names.add(name);
+          }
+        });
+    return names;
+  }
+
+  private Binder binder() {
+    try {
+      List<PropertySource<?>> loaded =
+          new YamlPropertySourceLoader().load(reloadFile, new FileSystemResource(reloadFile));
+      return new Binder(ConfigurationPropertySources.from(loaded));
+    } catch (IOException e) {
+      throw new RuntimeException("Failed to read " + reloadFile, e);
+    }
+  }
+
+  private long modifiedTime() {
+    try {
+      return Files.getLastModifiedTime(Path.of(reloadFile)).toMillis();
+    } catch (IOException e) {
+      throw new RuntimeException("Failed to read " + reloadFile, e);
+    }
+  }
+}
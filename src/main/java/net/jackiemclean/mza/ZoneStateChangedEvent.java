@@ -0,0 +1,7 @@
+package net.jackiemclean.mza;
+
+/**
+ * Published after a zone's persisted state changes. A null {@code state} means the stored state
+ * was deleted and the zone is back to its defaults.
+ */
+public record ZoneStateChangedEvent(String zoneName, ZoneState state) {}
@@ -0,0 +1,14 @@
+package net.jackiemclean.mza;
+
+/**
+ * One zone's resolved routing and state, ready to be applied by an {@link AudioInterface}.
+ *
+ * @param previousSource the source the zone is playing from when this is a route switch (see
+ *     {@link AudioInterface#switchRoute}), otherwise null
+ */
+public record ZoneSync(Zone zone, Source source, ZoneState zoneState, Source previousSource) {
+
+  public ZoneSync(Zone zone, Source source, ZoneState zoneState) {
+    this(zone, source, zoneState, null);
+  }
+}
@@ -0,0 +1,18 @@
+package net.jackiemclean.mza;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+
+/** A {@link ZoneChange} for a named zone, as sent to the bulk zone endpoint. */
+public record ZoneUpdate(
+    @NotBlank String name, @Min(0) @Max(100) Integer volume, Boolean muted, String sourceName) {
+
+  public ZoneUpdate(String name, ZoneChange change) {
+    this(name, change.volume(), change.muted(), change.sourceName());
+  }
+
+  public ZoneChange change() {
+    return new ZoneChange(volume, muted, sourceName);
+  }
+}
@@ -0,0 +1,91 @@
+package net.jackiemclean.mza.jsonrpc;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.RawValue;
+import org.springframework.web.socket.TextMessage;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A JSON-RPC message encoded once as newline-terminated UTF-8.
+ *
+ * Messages are queued per session before being written (see
+ * {@link OutboundQueue}), so the encoded form has to outlive the call that
+ * produced it and cannot be streamed straight into a socket.
+ *
+ * The encoded bytes are never modified after construction, so a single instance
+ * can be handed to every WebSocket and TCP session a notification fans out to.
+ */
+public final class EncodedMessage {
+
+    private final byte[] bytes;
+    private final String coalesceKey;
+    private volatile TextMessage textMessage;
+
+    private EncodedMessage(byte[] bytes, String coalesceKey) {
+        this.bytes = bytes;
+        this.coalesceKey = coalesceKey;
+    }
+
+    public static EncodedMessage encode(ObjectMapper objectMapper, Object message) throws IOException {
+        return encode(objectMapper, message, null);
+    }
+
+    /**
+     * @param coalesceKey identifies the entity whose state the message carries
+     *                    (e.g. "Client.OnVolumeChanged:kitchen"); a newer message
+     *                    with the same key supersedes an older one. May be null.
+     */
+    public static EncodedMessage encode(ObjectMapper objectMapper, Object message, String coalesceKey)
+            throws IOException {
+        // The generator buffers through the mapper's recycler pool and the
+        // newline is written with the message, so the only copy is the final
+        // exact-size array
+        ByteArrayBuilder builder = new ByteArrayBuilder();
+        try (JsonGenerator generator = objectMapper.createGenerator(builder)) {
+            objectMapper.writeValue(generator, message);
+            generator.writeRaw('\n');
+        }
+        return new EncodedMessage(builder.toByteArray(), coalesceKey);
+    }
+
+    public String coalesceKey() {
+        return coalesceKey;
+    }
+
+    public int length() {
+        return bytes.length;
+    }
+
+    /** A read-only view of the encoded bytes, positioned at the start. */
+    public ByteBuffer asByteBuffer() {
+        return ByteBuffer.wrap(bytes).asReadOnlyBuffer();
+    }
+
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(bytes);
+    }
+
+    /** Embeds this message, as already encoded, into a larger JSON document. */
+    public RawValue asRawValue() {
+        return new RawValue(new String(bytes, 0, bytes.length - 1, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * The WebSocket form of this message. The TextMessage wraps the shared bytes
+     * rather than a decoded String copy.
+     */
+    public TextMessage asTextMessage() {
+        TextMessage message = textMessage;
+        if (message == null) {
+            message = new TextMessage(bytes);
+            textMessage = message;
+        }
+        return message;
+    }
+}
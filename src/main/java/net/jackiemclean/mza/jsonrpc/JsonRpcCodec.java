@@ -0,0 +1,139 @@
+package net.jackiemclean.mza.jsonrpc;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Shared JSON-RPC decoding and encoding for the TCP, WebSocket and HTTP
+ * transports.
+ *
+ * Payloads are decoded straight from their UTF-8 bytes with a streaming
+ * {@link MappingIterator} into {@link JsonRpcRequest}s. Newline-delimited
+ * requests need no splitting or trimming, and batches are not parsed to a tree
+ * first. One {@link ObjectMapper} and one pre-built reader are shared by every
+ * connection.
+ */
+@Component
+public class JsonRpcCodec {
+
+    /** One decoded top-level message from a payload. */
+    public sealed interface Message permits Single, Batch, ParseError {
+    }
+
+    public record Single(JsonRpcRequest request) implements Message {
+    }
+
+    /**
+     * A batch array. Entries that could not be mapped to a request are null, so
+     * responses can be produced in batch order.
+     */
+    public record Batch(List<JsonRpcRequest> requests) implements Message {
+    }
+
+    /** The payload (or the remainder of it) is not valid JSON. */
+    public record ParseError() implements Message {
+    }
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ObjectReader requestReader = objectMapper.readerFor(JsonRpcRequest.class);
+
+    /**
+     * Decodes a payload holding a batch array or one or more whitespace or
+     * newline separated request objects.
+     */
+    public List<Message> decode(byte[] data, int offset, int length) {
+        int start = offset;
+        int end = offset + length;
+        while (start < end && isWhitespace(data[start])) {
+            start++;
+        }
+        if (start == end) {
+            return List.of();
+        }
+        int from = start;
+        return decode(data[start] == '[', () -> requestReader.readValues(data, from, end - from));
+    }
+
+    public List<Message> decode(byte[] data) {
+        return decode(data, 0, data.length);
+    }
+
+    /**
+     * Decodes a text payload (e.g. a WebSocket message) without converting it to
+     * bytes first.
+     */
+    public List<Message> decode(String text) {
+        int start = 0;
+        while (start < text.length() && isWhitespace(text.charAt(start))) {
+            start++;
+        }
+        if (start == text.length()) {
+            return List.of();
+        }
+        return decode(text.charAt(start) == '[', () -> requestReader.readValues(text));
+    }
+
+    @FunctionalInterface
+    private interface IteratorSource {
+        MappingIterator<JsonRpcRequest> open() throws IOException;
+    }
+
+    private List<Message> decode(boolean batch, IteratorSource source) {
+        List<Message> messages = new ArrayList<>(1);
+        List<JsonRpcRequest> batchRequests = new ArrayList<>();
+        // A root-level array is unwrapped by the iterator: it yields the elements
+        try (MappingIterator<JsonRpcRequest> it = source.open()) {
+            while (it.hasNextValue()) {
+                try {
+                    JsonRpcRequest request = it.nextValue();
+                    if (batch) {
+                        batchRequests.add(request);
+                    } else {
+                        messages.add(new Single(request));
+                    }
+                } catch (JsonParseException e) {
+                    throw e;
+                } catch (JsonProcessingException e) {
+                    // Well-formed JSON that is not a request; the iterator skips it
+                    if (batch) {
+                        batchRequests.add(null);
+                    } else {
+                        messages.add(new ParseError());
+                    }
+                }
+            }
+        } catch (IOException e) {
+            // Malformed JSON: a broken batch is rejected as a whole
+            if (batch) {
+                return List.of(new ParseError());
+            }
+            messages.add(new ParseError());
+            return messages;
+        }
+
+        if (batch) {
+            messages.add(new Batch(batchRequests));
+        }
+        return messages;
+    }
+
+    public EncodedMessage encode(Object message) throws IOException {
+        return EncodedMessage.encode(objectMapper, message);
+    }
+
+    public ObjectMapper objectMapper() {
+        return objectMapper;
+    }
+
+    private static boolean isWhitespace(int b) {
+        return b == ' ' || b == '\t' || b == '\r' || b == '\n';
+    }
+}
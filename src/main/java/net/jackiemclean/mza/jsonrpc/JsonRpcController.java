@@ -1,27 +1,49 @@
 package net.jackiemclean.mza.jsonrpc;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
 /**
  * HTTP endpoint for Snapcast JSON-RPC protocol.
- * Handles POST requests to /jsonrpc for one-shot requests.
+ * Handles POST requests to /api/jsonrpc for one-shot requests and batches.
  */
 @RestController
 public class JsonRpcController {
 
     private static final Logger LOG = LoggerFactory.getLogger(JsonRpcController.class);
-    private final ObjectMapper objectMapper = new ObjectMapper();
 
     @Autowired
     private SnapcastMethodHandler methodHandler;
 
+    @Autowired
+    private OrderedRequestExecutor requestExecutor;
+
+    @Autowired
+    private JsonRpcCodec codec;
+
     @PostMapping(value = "/api/jsonrpc", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
-    public JsonRpcResponse handleRequest(@RequestBody JsonRpcRequest request) {
+    public Object handleRequest(@RequestBody byte[] body) {
+        List<JsonRpcCodec.Message> messages = codec.decode(body);
+        if (messages.size() != 1) {
+            // Empty body, or several ndjson lines which a single HTTP response cannot answer
+            return JsonRpcResponse.error(null, JsonRpcError.invalidRequest());
+        }
+
+        return switch (messages.get(0)) {
+            case JsonRpcCodec.Single single -> handleSingle(single.request());
+            case JsonRpcCodec.Batch batch -> handleBatch(batch.requests());
+            case JsonRpcCodec.ParseError error -> JsonRpcResponse.error(null, JsonRpcError.parseError());
+        };
+    }
+
+    private JsonRpcResponse handleSingle(JsonRpcRequest request) {
         LOG.debug("HTTP JSON-RPC request: {}", request.getMethod());
 
         // Validate JSON-RPC version
@@ -31,4 +53,29 @@ public class JsonRpcController {
 
         return methodHandler.handleRequest(request);
     }
+
+    private List<JsonRpcResponse> handleBatch(List<JsonRpcRequest> batch) {
+        List<JsonRpcRequest> valid = new ArrayList<>();
+        for (JsonRpcRequest request : batch) {
+            if (request != null && "2.0".equals(request.getJsonrpc())) {
+                valid.add(request);
+            }
+        }
+        Iterator<JsonRpcResponse> results = requestExecutor.executeAll(valid).iterator();
+
+        List<JsonRpcResponse> responses = new ArrayList<>();
+        for (JsonRpcRequest request : batch) {
+            if (request == null) {
+                responses.add(JsonRpcResponse.error(null, JsonRpcError.parseError()));
+            } else if (!"2.0".equals(request.getJsonrpc())) {
+                responses.add(JsonRpcResponse.error(request.getId(), JsonRpcError.invalidRequest()));
+            } else {
+                JsonRpcResponse response = results.next();
+                if (request.getId() != null) {
+                    responses.add(response);
+                }
+            }
+        }
+        return responses;
+    }
 }
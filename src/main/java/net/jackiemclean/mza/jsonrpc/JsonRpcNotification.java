@@ -1,5 +1,6 @@
 package net.jackiemclean.mza.jsonrpc;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 /**
@@ -17,6 +18,15 @@ public class JsonRpcNotification {
     @JsonProperty("params")
     private Object params;
 
+    /**
+     * Position in the global notification sequence, used by clients to resume
+     * after a reconnect (see Server.Resume). Assigned when the notification is
+     * sent.
+     */
+    @JsonProperty("seq")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long seq;
+
     public JsonRpcNotification() {
     }
 
@@ -44,4 +54,12 @@ public class JsonRpcNotification {
     public void setParams(Object params) {
         this.params = params;
     }
+
+    public Long getSeq() {
+        return seq;
+    }
+
+    public void setSeq(Long seq) {
+        this.seq = seq;
+    }
 }
@@ -1,8 +1,5 @@
 package net.jackiemclean.mza.jsonrpc;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -22,7 +19,6 @@ import java.util.List;
 public class JsonRpcWebSocketHandler extends TextWebSocketHandler {
 
     private static final Logger LOG = LoggerFactory.getLogger(JsonRpcWebSocketHandler.class);
-    private final ObjectMapper objectMapper = new ObjectMapper();
 
     @Autowired
     private SnapcastMethodHandler methodHandler;
@@ -30,6 +26,12 @@ public class JsonRpcWebSocketHandler extends TextWebSocketHandler {
     @Autowired
     private SnapcastNotificationService notificationService;
 
+    @Autowired
+    private OrderedRequestExecutor requestExecutor;
+
+    @Autowired
+    private JsonRpcCodec codec;
+
     @Override
     public void afterConnectionEstablished(WebSocketSession session) throws Exception {
         LOG.info("WebSocket connection established: {}", session.getId());
@@ -44,107 +46,91 @@ public class JsonRpcWebSocketHandler extends TextWebSocketHandler {
 
     @Override
     protected void handleTextMessage(WebSocketSession session, TextMessage message) throws Exception {
-        String payload = message.getPayload().trim();
+        String payload = message.getPayload();
         LOG.debug("Received message: {}", payload);
 
-        if (payload.isEmpty()) {
-            return;
+        // A single request, several ndjson lines, or a batch (JSON array)
+        for (JsonRpcCodec.Message decoded : codec.decode(payload)) {
+            switch (decoded) {
+                case JsonRpcCodec.Single single -> handleSingleRequest(session, single.request());
+                case JsonRpcCodec.Batch batch -> handleBatchRequest(session, batch.requests());
+                case JsonRpcCodec.ParseError error -> {
+                    LOG.error("Failed to parse JSON-RPC request on session {}", session.getId());
+                    sendResponse(session, JsonRpcResponse.error(null, JsonRpcError.parseError()));
+                }
+            }
         }
+    }
 
-        // Handle batch requests (JSON array)
-        if (payload.startsWith("[")) {
-            handleBatchRequest(session, payload);
+    private void handleSingleRequest(WebSocketSession session, JsonRpcRequest request) {
+        // Validate JSON-RPC version
+        if (!"2.0".equals(request.getJsonrpc())) {
+            sendResponse(session, JsonRpcResponse.error(request.getId(), JsonRpcError.invalidRequest()));
             return;
         }
 
-        // Handle single request (possibly multiple lines for ndjson)
-        String[] lines = payload.split("\n");
-        for (String line : lines) {
-            line = line.trim();
-            if (!line.isEmpty()) {
-                handleSingleRequest(session, line);
-            }
+        JsonRpcResponse response = methodHandler.handleRequest(request);
+
+        // Only send response if it has an id (not a notification)
+        if (request.getId() != null) {
+            sendResponse(session, response);
         }
     }
 
-    private void handleSingleRequest(WebSocketSession session, String json) {
-        try {
-            JsonRpcRequest request = objectMapper.readValue(json, JsonRpcRequest.class);
-
-            // Validate JSON-RPC version
+    /**
+     * @param batch the decoded entries; null marks an entry that was not a valid
+     *              request object
+     */
+    private void handleBatchRequest(WebSocketSession session, List<JsonRpcRequest> batch) {
+        // Validate everything first, then execute the valid requests
+        // concurrently; responses keep the batch order
+        List<JsonRpcResponse> responses = new ArrayList<>();
+        List<JsonRpcRequest> requests = new ArrayList<>();
+        List<Integer> slots = new ArrayList<>();
+        for (JsonRpcRequest request : batch) {
+            if (request == null) {
+                responses.add(JsonRpcResponse.error(null, JsonRpcError.parseError()));
+                continue;
+            }
             if (!"2.0".equals(request.getJsonrpc())) {
-                sendResponse(session, JsonRpcResponse.error(request.getId(), JsonRpcError.invalidRequest()));
-                return;
+                responses.add(JsonRpcResponse.error(request.getId(), JsonRpcError.invalidRequest()));
+                continue;
             }
-
-            JsonRpcResponse response = methodHandler.handleRequest(request);
-
-            // Only send response if it has an id (not a notification)
             if (request.getId() != null) {
-                sendResponse(session, response);
+                slots.add(responses.size());
+                responses.add(null);
+            } else {
+                slots.add(-1);
             }
-
-        } catch (JsonProcessingException e) {
-            LOG.error("Failed to parse JSON-RPC request: {}", e.getMessage());
-            sendResponse(session, JsonRpcResponse.error(null, JsonRpcError.parseError()));
+            requests.add(request);
         }
-    }
 
-    private void handleBatchRequest(WebSocketSession session, String json) {
-        try {
-            JsonNode batchNode = objectMapper.readTree(json);
-            if (!batchNode.isArray()) {
-                sendResponse(session, JsonRpcResponse.error(null, JsonRpcError.invalidRequest()));
-                return;
-            }
-
-            List<JsonRpcResponse> responses = new ArrayList<>();
-            for (JsonNode node : batchNode) {
-                try {
-                    JsonRpcRequest request = objectMapper.treeToValue(node, JsonRpcRequest.class);
-                    if (!"2.0".equals(request.getJsonrpc())) {
-                        responses.add(JsonRpcResponse.error(request.getId(), JsonRpcError.invalidRequest()));
-                        continue;
-                    }
-                    JsonRpcResponse response = methodHandler.handleRequest(request);
-                    if (request.getId() != null) {
-                        responses.add(response);
-                    }
-                } catch (JsonProcessingException e) {
-                    responses.add(JsonRpcResponse.error(null, JsonRpcError.parseError()));
-                }
-            }
-
-            // Send batch response
-            if (!responses.isEmpty()) {
-                sendBatchResponse(session, responses);
+        List<JsonRpcResponse> results = requestExecutor.executeAll(requests);
+        for (int i = 0; i < results.size(); i++) {
+            if (slots.get(i) >= 0) {
+                responses.set(slots.get(i), results.get(i));
             }
+        }
 
-        } catch (JsonProcessingException e) {
-            LOG.error("Failed to parse batch request: {}", e.getMessage());
-            sendResponse(session, JsonRpcResponse.error(null, JsonRpcError.parseError()));
+        // Send batch response
+        if (!responses.isEmpty()) {
+            sendBatchResponse(session, responses);
         }
     }
 
     private void sendResponse(WebSocketSession session, JsonRpcResponse response) {
         try {
-            String json = objectMapper.writeValueAsString(response) + "\n";
-            synchronized (session) {
-                session.sendMessage(new TextMessage(json));
-            }
+            notificationService.sendResponse(session, codec.encode(response));
         } catch (IOException e) {
-            LOG.error("Failed to send response to session {}", session.getId(), e);
+            LOG.error("Failed to serialize response for session {}", session.getId(), e);
         }
     }
 
     private void sendBatchResponse(WebSocketSession session, List<JsonRpcResponse> responses) {
         try {
-            String json = objectMapper.writeValueAsString(responses) + "\n";
-            synchronized (session) {
-                session.sendMessage(new TextMessage(json));
-            }
+            notificationService.sendResponse(session, codec.encode(responses));
         } catch (IOException e) {
-            LOG.error("Failed to send batch response to session {}", session.getId(), e);
+            LOG.error("Failed to serialize batch response for session {}", session.getId(), e);
         }
     }
 
@@ -0,0 +1,99 @@
+package net.jackiemclean.mza.jsonrpc;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Splits a byte stream into newline-delimited JSON frames without decoding
+ * them to Strings.
+ *
+ * Frames are returned as views into a single read buffer that grows only when a
+ * line does not fit, up to {@code maxFrameLength}. A returned frame is valid
+ * until the next call to {@link #next()}. Leading and trailing whitespace
+ * (including the '\r' of CRLF line endings) is trimmed and blank lines are
+ * skipped.
+ */
+public final class NdjsonFrameReader {
+
+    private final ReadableByteChannel channel;
+    private final int maxFrameLength;
+
+    private byte[] buf;
+    private int start; // first byte of the current (incomplete) frame
+    private int scan;  // next byte to check for '\n'
+    private int end;   // end of valid data
+    private boolean eof;
+
+    public NdjsonFrameReader(ReadableByteChannel channel, int initialCapacity, int maxFrameLength) {
+        this.channel = channel;
+        this.maxFrameLength = maxFrameLength;
+        this.buf = new byte[Math.min(initialCapacity, maxFrameLength)];
+    }
+
+    /**
+     * Returns the next non-blank frame, or null once the channel is exhausted.
+     * An unterminated final line is returned as a frame.
+     *
+     * @throws IOException if reading fails or a line exceeds the maximum length
+     */
+    public ByteBuffer next() throws IOException {
+        while (true) {
+            while (scan < end) {
+                if (buf[scan++] == '\n') {
+                    ByteBuffer frame = frame(start, scan - 1);
+                    start = scan;
+                    if (frame != null) {
+                        return frame;
+                    }
+                }
+            }
+
+            if (eof || !fill()) {
+                ByteBuffer frame = frame(start, end);
+                start = end;
+                return frame;
+            }
+        }
+    }
+
+    private ByteBuffer frame(int from, int to) {
+        while (from < to && isWhitespace(buf[from])) {
+            from++;
+        }
+        while (to > from && isWhitespace(buf[to - 1])) {
+            to--;
+        }
+        return from == to ? null : ByteBuffer.wrap(buf, from, to - from).slice();
+    }
+
+    private boolean fill() throws IOException {
+        if (start > 0) {
+            // Keep only the incomplete frame; everything before it has been returned
+            System.arraycopy(buf, start, buf, 0, end - start);
+            scan -= start;
+            end -= start;
+            start = 0;
+        }
+        if (end == buf.length) {
+            if (buf.length >= maxFrameLength) {
+                throw new IOException("JSON-RPC message exceeds " + maxFrameLength + " bytes");
+            }
+            byte[] grown = new byte[Math.min(buf.length * 2, maxFrameLength)];
+            System.arraycopy(buf, 0, grown, 0, end);
+            buf = grown;
+        }
+
+        int n = channel.read(ByteBuffer.wrap(buf, end, buf.length - end));
+        if (n < 0) {
+            eof = true;
+            return false;
+        }
+        end += n;
+        return true;
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t' || b == '\r' || b == '\n';
+    }
+}
@@ -0,0 +1,91 @@
+package net.jackiemclean.mza.jsonrpc;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Stamps every broadcast notification with a global sequence number and keeps
+ * the most recent ones in a fixed-size ring buffer, so a reconnecting client can
+ * catch up on what it missed instead of fetching the whole server status.
+ *
+ * The sequence starts at the current time in milliseconds rather than 1. A
+ * client holding a sequence number from before a server restart is therefore
+ * always behind the buffer and gets a full snapshot, never someone else's deltas.
+ */
+@Component
+public class NotificationLog {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final int capacity;
+
+    // Guarded by lock
+    private final EncodedMessage[] ring;
+    private final long firstSeq;
+    private long nextSeq;
+
+    public NotificationLog(@Value("${snapcast.notify.replay-buffer:1024}") int capacity) {
+        this.capacity = Math.max(1, capacity);
+        this.ring = new EncodedMessage[this.capacity];
+        this.firstSeq = System.currentTimeMillis();
+        this.nextSeq = firstSeq;
+    }
+
+    /**
+     * Assigns the next sequence number to the notification, encodes it and
+     * records it. Callers must deliver notifications in the order they were
+     * appended.
+     */
+    public EncodedMessage append(JsonRpcNotification notification, String coalesceKey) throws IOException {
+        lock.lock();
+        try {
+            notification.setSeq(nextSeq);
+            EncodedMessage message = EncodedMessage.encode(objectMapper, notification, coalesceKey);
+            ring[(int) (nextSeq % capacity)] = message;
+            nextSeq++;
+            return message;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** The sequence number of the most recent notification. */
+    public long lastSequence() {
+        lock.lock();
+        try {
+            return nextSeq - 1;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the notifications sent after {@code since}, oldest first, or empty
+     * if some of them are no longer buffered (or {@code since} was never issued
+     * by this server) and the client needs a full snapshot instead.
+     */
+    public Optional<List<EncodedMessage>> since(long since) {
+        lock.lock();
+        try {
+            long oldest = Math.max(firstSeq, nextSeq - capacity);
+            if (since < oldest - 1 || since >= nextSeq) {
+                return Optional.empty();
+            }
+            List<EncodedMessage> missed = new ArrayList<>((int) (nextSeq - since - 1));
+            for (long seq = since + 1; seq < nextSeq; seq++) {
+                missed.add(ring[(int) (seq % capacity)]);
+            }
+            return Optional.of(missed);
+        } finally {
+            lock.unlock();
+        }
+    }
+}
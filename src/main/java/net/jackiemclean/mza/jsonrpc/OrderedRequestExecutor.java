@@ -0,0 +1,186 @@
+package net.jackiemclean.mza.jsonrpc;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import jakarta.annotation.PreDestroy;
+import net.jackiemclean.mza.snapcast.SnapClient;
+import net.jackiemclean.mza.snapcast.SnapGroup;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Runs JSON-RPC requests concurrently on virtual threads while preserving the
+ * order of requests that touch the same zone or group.
+ *
+ * Each request is mapped to the entities it touches: a Client.* request to its
+ * zone, a Group.* request to the group and its member zones. A request starts
+ * only after the earlier requests in its {@link Sequence} that share an entity
+ * have finished. Requests that change topology or whose targets cannot be
+ * determined (Group.SetClients, Server.DeleteClient, Server.GetStatus, unknown
+ * methods) are barriers: they wait for everything before them and everything
+ * after them waits for them. Stateless calls such as Server.GetRPCVersion
+ * never wait. Group membership is read when a request is submitted, so while a
+ * Group.SetClients is still pending, the Group.* requests after it are barriers
+ * too: the members they were keyed on may be about to change.
+ */
+@Component
+public class OrderedRequestExecutor {
+
+    private static final Set<String> STATELESS_METHODS = Set.of("Server.GetRPCVersion");
+    private static final int PRUNE_THRESHOLD = 64;
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    @Autowired
+    private SnapcastMethodHandler methodHandler;
+
+    @Autowired
+    private SnapServerView serverView;
+
+    /**
+     * Starts a new ordering scope, e.g. one batch.
+     */
+    public Sequence newSequence() {
+        return new Sequence();
+    }
+
+    /**
+     * Executes the requests and returns their responses in request order.
+     * Responses to notifications (requests without an id) are included; callers
+     * filter them out.
+     */
+    public List<JsonRpcResponse> executeAll(List<JsonRpcRequest> requests) {
+        return newSequence().submitAll(requests).join();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * An ordering scope. Requests submitted to the same sequence that touch a
+     * common entity run in submission order; others run concurrently.
+     * Submission itself must happen from one thread.
+     */
+    public class Sequence {
+
+        private final Map<String, CompletableFuture<?>> tails = new HashMap<>();
+        private CompletableFuture<?> barrier = CompletableFuture.completedFuture(null);
+        private CompletableFuture<?> membershipChange = CompletableFuture.completedFuture(null);
+
+        private Sequence() {
+        }
+
+        public CompletableFuture<JsonRpcResponse> submit(JsonRpcRequest request) {
+            if (tails.size() > PRUNE_THRESHOLD) {
+                tails.values().removeIf(CompletableFuture::isDone);
+            }
+
+            Set<String> keys = entityKeys(request);
+            if (keys != null && isGroupMethod(request) && !membershipChange.isDone()) {
+                keys = null;
+            }
+            if (keys == null) {
+                List<CompletableFuture<?>> dependencies = new ArrayList<>(tails.values());
+                dependencies.add(barrier);
+                CompletableFuture<JsonRpcResponse> future = runAfter(dependencies, request);
+                tails.clear();
+                barrier = future;
+                if ("Group.SetClients".equals(request.getMethod())) {
+                    membershipChange = future;
+                }
+                return future;
+            }
+
+            if (keys.isEmpty()) {
+                // Stateless: no need to wait for anything, not even a barrier
+                return runAfter(List.of(), request);
+            }
+
+            List<CompletableFuture<?>> dependencies = new ArrayList<>(keys.size() + 1);
+            dependencies.add(barrier);
+            for (String key : keys) {
+                CompletableFuture<?> tail = tails.get(key);
+                if (tail != null) {
+                    dependencies.add(tail);
+                }
+            }
+            CompletableFuture<JsonRpcResponse> future = runAfter(dependencies, request);
+            for (String key : keys) {
+                tails.put(key, future);
+            }
+            return future;
+        }
+
+        /**
+         * Submits the requests in order, like {@link #executeAll} but without
+         * waiting. Completes once all of them have, with their responses in
+         * request order.
+         */
+        public CompletableFuture<List<JsonRpcResponse>> submitAll(List<JsonRpcRequest> requests) {
+            List<CompletableFuture<JsonRpcResponse>> futures = new ArrayList<>(requests.size());
+            for (JsonRpcRequest request : requests) {
+                futures.add(submit(request));
+            }
+            return CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new))
+                    .thenApply(ignored -> futures.stream().map(CompletableFuture::join).toList());
+        }
+
+        private CompletableFuture<JsonRpcResponse> runAfter(List<CompletableFuture<?>> dependencies,
+                JsonRpcRequest request) {
+            // handleRequest never throws, so a dependency cannot fail; the
+            // handle() only guards against that ever changing
+            return CompletableFuture.allOf(dependencies.toArray(CompletableFuture[]::new))
+                    .handleAsync((ignored, error) -> methodHandler.handleRequest(request), executor);
+        }
+    }
+
+    /**
+     * The entities the request reads or writes (empty if it touches no state),
+     * or null if it must be serialized with everything else.
+     */
+    private Set<String> entityKeys(JsonRpcRequest request) {
+        String method = request.getMethod();
+        if (method == null || STATELESS_METHODS.contains(method)) {
+            return Set.of();
+        }
+
+        String id = idParam(request.getParams());
+        if (id == null) {
+            return null;
+        }
+
+        if (method.startsWith("Client.")) {
+            return Set.of("zone:" + id);
+        }
+        if (method.startsWith("Group.") && !method.equals("Group.SetClients")) {
+            for (SnapGroup group : serverView.snapshot().server().getGroups()) {
+                if (id.equals(group.getId())) {
+                    Set<String> keys = new HashSet<>();
+                    keys.add("group:" + id);
+                    for (SnapClient client : group.getClients()) {
+                        keys.add("zone:" + client.getId());
+                    }
+                    return keys;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static boolean isGroupMethod(JsonRpcRequest request) {
+        return request.getMethod() != null && request.getMethod().startsWith("Group.");
+    }
+
+    private static String idParam(JsonNode params) {
+        if (params == null || !params.hasNonNull("id")) {
+            return null;
+        }
+        return params.get("id").asText();
+    }
+}
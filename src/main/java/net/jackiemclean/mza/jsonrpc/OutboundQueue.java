@@ -0,0 +1,227 @@
+package net.jackiemclean.mza.jsonrpc;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded per-session outbound queue drained by its own virtual thread.
+ *
+ * Broadcasting and request threads only enqueue; the actual (possibly slow)
+ * socket write happens on the drainer, so one stalled client cannot hold up
+ * notifications to everyone else. Responses are never dropped. When the queue
+ * is full, notifications are handled according to the {@link OverflowPolicy}.
+ */
+public class OutboundQueue {
+
+    private static final Logger LOG = LoggerFactory.getLogger(OutboundQueue.class);
+    private static final int MAX_BATCH = 64;
+
+    public enum OverflowPolicy {
+        /** Evict the oldest queued notification to make room. */
+        DROP_OLDEST,
+        /**
+         * Replace a queued notification for the same entity (e.g. the same
+         * client's volume) with the newer one, otherwise evict the oldest.
+         */
+        COALESCE,
+        /** Close the session; the client is expected to reconnect and resync. */
+        DISCONNECT
+    }
+
+    /**
+     * Writes a batch of messages to the underlying transport. Called only from
+     * the drainer thread, so implementations need no locking of their own.
+     */
+    @FunctionalInterface
+    public interface Sink {
+        void write(List<EncodedMessage> batch) throws IOException;
+    }
+
+    public record Stats(String sessionId, String transport, int depth, int capacity, int highWater,
+            long sent, long dropped, long coalesced) {
+    }
+
+    private record Entry(EncodedMessage message, boolean notification) {
+    }
+
+    private final String sessionId;
+    private final String transport;
+    private final int capacity;
+    private final OverflowPolicy policy;
+    private final Sink sink;
+    private final Runnable onDisconnect;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+
+    // Guarded by lock
+    private final ArrayDeque<Entry> queue = new ArrayDeque<>();
+    private boolean closed;
+    private int highWater;
+    private long sent;
+    private long dropped;
+    private long coalesced;
+
+    public OutboundQueue(String sessionId, String transport, int capacity, OverflowPolicy policy,
+            Sink sink, Runnable onDisconnect) {
+        this.sessionId = sessionId;
+        this.transport = transport;
+        this.capacity = Math.max(1, capacity);
+        this.policy = Objects.requireNonNull(policy);
+        this.sink = sink;
+        this.onDisconnect = onDisconnect;
+    }
+
+    public void start() {
+        Thread.ofVirtual().name("outbound-" + sessionId).start(this::drain);
+    }
+
+    /** Queues a response. Responses are never dropped or coalesced. */
+    public boolean offerResponse(EncodedMessage message) {
+        return offer(new Entry(message, false));
+    }
+
+    /** Queues a notification, applying the overflow policy if the queue is full. */
+    public boolean offerNotification(EncodedMessage message) {
+        return offer(new Entry(message, true));
+    }
+
+    private boolean offer(Entry entry) {
+        lock.lock();
+        try {
+            if (closed) {
+                return false;
+            }
+            if (queue.size() < capacity || makeRoom(entry)) {
+                queue.addLast(entry);
+                highWater = Math.max(highWater, queue.size());
+                notEmpty.signal();
+                return true;
+            }
+            closed = true;
+            queue.clear();
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+
+        LOG.warn("Outbound queue for {} session {} overflowed ({} messages), disconnecting",
+                transport, sessionId, capacity);
+        onDisconnect.run();
+        return false;
+    }
+
+    /**
+     * Tries to free a slot for the given entry. Returns false if the session
+     * should be disconnected instead.
+     */
+    private boolean makeRoom(Entry entry) {
+        if (policy == OverflowPolicy.DISCONNECT) {
+            return false;
+        }
+
+        if (policy == OverflowPolicy.COALESCE && entry.notification()
+                && entry.message().coalesceKey() != null) {
+            // Newest queued value for the same entity is superseded by this one
+            String key = entry.message().coalesceKey();
+            Iterator<Entry> it = queue.descendingIterator();
+            while (it.hasNext()) {
+                Entry queued = it.next();
+                if (queued.notification() && key.equals(queued.message().coalesceKey())) {
+                    it.remove();
+                    coalesced++;
+                    return true;
+                }
+            }
+        }
+
+        Iterator<Entry> it = queue.iterator();
+        while (it.hasNext()) {
+            if (it.next().notification()) {
+                it.remove();
+                dropped++;
+                return true;
+            }
+        }
+
+        // Queue is full of responses: dropping a notification would not help
+        return false;
+    }
+
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            queue.clear();
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int depth() {
+        lock.lock();
+        try {
+            return queue.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Stats stats() {
+        lock.lock();
+        try {
+            return new Stats(sessionId, transport, queue.size(), capacity, highWater, sent, dropped, coalesced);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void drain() {
+        List<EncodedMessage> batch = new ArrayList<>();
+        while (true) {
+            lock.lock();
+            try {
+                while (queue.isEmpty() && !closed) {
+                    notEmpty.await();
+                }
+                if (closed) {
+                    return;
+                }
+                while (!queue.isEmpty() && batch.size() < MAX_BATCH) {
+                    batch.add(queue.pollFirst().message());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                lock.unlock();
+            }
+
+            try {
+                sink.write(batch);
+                lock.lock();
+                try {
+                    sent += batch.size();
+                } finally {
+                    lock.unlock();
+                }
+            } catch (IOException e) {
+                LOG.debug("Write to {} session {} failed: {}", transport, sessionId, e.getMessage());
+                close();
+                onDisconnect.run();
+                return;
+            }
+            batch.clear();
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package net.jackiemclean.mza.jsonrpc;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Creates the outbound queues for WebSocket and TCP sessions from the shared
+ * configuration and keeps track of them so their depth can be reported.
+ */
+@Component
+public class OutboundQueueRegistry {
+
+    private final Map<String, OutboundQueue> queues = new ConcurrentHashMap<>();
+
+    @Value("${snapcast.outbound.capacity:256}")
+    private int capacity;
+
+    @Value("${snapcast.outbound.overflow-policy:COALESCE}")
+    private OutboundQueue.OverflowPolicy overflowPolicy;
+
+    public OutboundQueue open(String sessionId, String transport, OutboundQueue.Sink sink, Runnable onDisconnect) {
+        OutboundQueue queue = new OutboundQueue(sessionId, transport, capacity, overflowPolicy, sink, onDisconnect);
+        OutboundQueue previous = queues.put(sessionId, queue);
+        if (previous != null) {
+            previous.close();
+        }
+        queue.start();
+        return queue;
+    }
+
+    public void close(String sessionId) {
+        OutboundQueue queue = queues.remove(sessionId);
+        if (queue != null) {
+            queue.close();
+        }
+    }
+
+    public List<OutboundQueue.Stats> stats() {
+        return queues.values().stream()
+                .map(OutboundQueue::stats)
+                .sorted(Comparator.comparing(OutboundQueue.Stats::sessionId))
+                .toList();
+    }
+}
@@ -0,0 +1,116 @@
+package net.jackiemclean.mza.jsonrpc;
+
+import net.jackiemclean.mza.snapcast.*;
+
+import java.util.*;
+
+/**
+ * Expresses the difference between two server models as the per-entity
+ * notifications a Snapcast client already understands (Client.OnVolumeChanged,
+ * Group.OnMute, ...), so a full Server.OnUpdate is only needed when the
+ * topology changed or too many entities changed at once.
+ */
+public final class SnapServerDiff {
+
+    private SnapServerDiff() {
+    }
+
+    /**
+     * @param limit the maximum number of notifications worth sending instead of
+     *              a full update
+     * @return the notifications that turn {@code before} into {@code after}
+     *         (possibly empty), or null if a full Server.OnUpdate is needed
+     */
+    public static List<JsonRpcNotification> diff(SnapServer before, SnapServer after, int limit) {
+        if (before == null || !streamIds(before).equals(streamIds(after))) {
+            return null;
+        }
+
+        Map<String, SnapGroup> oldGroups = new HashMap<>();
+        for (SnapGroup group : before.getGroups()) {
+            oldGroups.put(group.getId(), group);
+        }
+        if (oldGroups.size() != after.getGroups().size()) {
+            return null;
+        }
+
+        List<JsonRpcNotification> notifications = new ArrayList<>();
+        for (SnapGroup group : after.getGroups()) {
+            SnapGroup old = oldGroups.get(group.getId());
+            if (old == null || !clientIds(old).equals(clientIds(group))) {
+                return null;
+            }
+
+            if (old.isMuted() != group.isMuted()) {
+                notifications.add(notification("Group.OnMute", group.getId(), "mute", group.isMuted()));
+            }
+            if (!Objects.equals(old.getStreamId(), group.getStreamId())) {
+                notifications.add(notification("Group.OnStreamChanged", group.getId(), "stream_id",
+                        group.getStreamId()));
+            }
+            if (!Objects.equals(old.getName(), group.getName())) {
+                notifications.add(notification("Group.OnNameChanged", group.getId(), "name", group.getName()));
+            }
+
+            Map<String, SnapClient> oldClients = new HashMap<>();
+            for (SnapClient client : old.getClients()) {
+                oldClients.put(client.getId(), client);
+            }
+            for (SnapClient client : group.getClients()) {
+                diffClient(oldClients.get(client.getId()), client, notifications);
+            }
+
+            if (notifications.size() > limit) {
+                return null;
+            }
+        }
+        return notifications;
+    }
+
+    private static void diffClient(SnapClient old, SnapClient client, List<JsonRpcNotification> out) {
+        if (old == client) {
+            return;
+        }
+        if (old.isConnected() != client.isConnected()) {
+            out.add(notification(client.isConnected() ? "Client.OnConnect" : "Client.OnDisconnect",
+                    client.getId(), "client", client));
+            return;
+        }
+
+        SnapClientConfig oldConfig = old.getConfig();
+        SnapClientConfig config = client.getConfig();
+        if (oldConfig.getVolume().isMuted() != config.getVolume().isMuted()
+                || oldConfig.getVolume().getPercent() != config.getVolume().getPercent()) {
+            out.add(notification("Client.OnVolumeChanged", client.getId(), "volume", config.getVolume()));
+        }
+        if (oldConfig.getLatency() != config.getLatency()) {
+            out.add(notification("Client.OnLatencyChanged", client.getId(), "latency", config.getLatency()));
+        }
+        if (!Objects.equals(oldConfig.getName(), config.getName())) {
+            out.add(notification("Client.OnNameChanged", client.getId(), "name", config.getName()));
+        }
+    }
+
+    private static JsonRpcNotification notification(String method, String id, String key, Object value) {
+        Map<String, Object> params = new HashMap<>();
+        params.put("id", id);
+        params.put(key, value);
+        return new JsonRpcNotification(method, params);
+    }
+
+    private static Set<String> streamIds(SnapServer server) {
+        Set<String> ids = new HashSet<>();
+        for (SnapStream stream : server.getStreams()) {
+            ids.add(stream.getId());
+        }
+        return ids;
+    }
+
+    private static Set<String> clientIds(SnapGroup group) {
+        Set<String> ids = new HashSet<>();
+        for (SnapClient client : group.getClients()) {
+            ids.add(client.getId());
+        }
+        return ids;
+    }
+}
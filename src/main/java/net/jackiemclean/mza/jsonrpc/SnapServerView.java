@@ -0,0 +1,263 @@
+package net.jackiemclean.mza.jsonrpc;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.RawValue;
+import net.jackiemclean.mza.*;
+import net.jackiemclean.mza.snapcast.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Live Snapcast view of the MZA zone and group model.
+ *
+ * Instead of rebuilding the {@link SnapServer} from the repositories on every
+ * Server.GetStatus, one {@link SnapClient} is kept per zone and replaced when a
+ * {@link ZoneStateChangedEvent} arrives. Group membership is only reloaded after a
+ * {@link GroupTopologyChangedEvent}. Each version of the model is serialized once;
+ * the resulting JSON is shared by every GetStatus response and Server.OnUpdate
+ * broadcast until the next change.
+ */
+@Component
+public class SnapServerView {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SnapServerView.class);
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Autowired
+    private ZoneRepository zoneRepository;
+    @Autowired
+    private ZoneStateRepository zoneStateRepository;
+    @Autowired
+    private SourceRepository sourceRepository;
+    @Autowired
+    private GroupStateRepository groupStateRepository;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    // Guarded by lock
+    private final Map<String, ZoneState> zoneStates = new HashMap<>();
+    private final Map<String, SnapClient> clients = new HashMap<>();
+    private List<GroupState> groups;
+    private List<SnapStream> streams;
+    private SnapServer.SnapServerMeta meta;
+    private boolean zonesLoaded;
+    private long version;
+
+    private volatile Snapshot current;
+
+    /**
+     * A serialized version of the server model. {@link #json()} caches its UTF-8
+     * encoding, so writing it through {@link #raw()} is a plain byte copy.
+     */
+    public record Snapshot(long version, SnapServer server, SerializableString json) {
+
+        /** Embeds the pre-serialized server into a larger JSON document. */
+        public RawValue raw() {
+            return new RawValue(json);
+        }
+    }
+
+    /**
+     * Returns the current server model, serializing it only if it changed since
+     * the last call.
+     */
+    public Snapshot snapshot() {
+        Snapshot snapshot = current;
+        if (snapshot != null) {
+            return snapshot;
+        }
+
+        lock.lock();
+        try {
+            if (current == null) {
+                current = build();
+            }
+            return current;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getVersion() {
+        lock.lock();
+        try {
+            return version;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Runs after the commit: a zone change that rolls back must not reach the
+     * cached snapshot, as no later event would take it out again.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onZoneStateChanged(ZoneStateChangedEvent event) {
+        lock.lock();
+        try {
+            if (zonesLoaded) {
+                updateZone(event.zoneName(), event.state());
+            }
+            invalidate();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Runs after the commit: dropping the groups earlier would let a concurrent
+     * snapshot reload the old membership and cache it under the new version.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onGroupTopologyChanged(GroupTopologyChangedEvent event) {
+        lock.lock();
+        try {
+            groups = null;
+            invalidate();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Zones or sources were reconfigured: rebuild the whole model on next use. */
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onCatalogueChanged(CatalogueChangedEvent event) {
+        lock.lock();
+        try {
+            zonesLoaded = false;
+            groups = null;
+            streams = null;
+            invalidate();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void invalidate() {
+        version++;
+        current = null;
+    }
+
+    private void updateZone(String zoneName, ZoneState state) {
+        Optional<Zone> zone = zoneRepository.findByName(zoneName);
+        if (zone.isEmpty()) {
+            zoneStates.remove(zoneName);
+            clients.remove(zoneName);
+            return;
+        }
+
+        if (state == null) {
+            zoneStates.remove(zoneName);
+        } else {
+            zoneStates.put(zoneName, copyOf(state));
+        }
+        clients.put(zoneName, SnapClient.fromZone(zone.get(), zoneStates.get(zoneName)));
+    }
+
+    private Snapshot build() {
+        if (!zonesLoaded) {
+            loadZones();
+        }
+        if (groups == null) {
+            groups = groupStateRepository.findAll();
+        }
+        if (streams == null) {
+            streams = sourceRepository.findAll().stream()
+                    .map(SnapStream::fromSource)
+                    .toList();
+        }
+        if (meta == null) {
+            meta = new SnapServer.SnapServerMeta();
+        }
+
+        SnapServer server = new SnapServer();
+        server.setServer(meta);
+        server.setGroups(buildGroups());
+        server.setStreams(streams);
+
+        try {
+            String json = objectMapper.writeValueAsString(server);
+            LOG.debug("Serialized server view version {} ({} chars)", version, json.length());
+            return new Snapshot(version, server, new SerializedString(json));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize server status", e);
+        }
+    }
+
+    private void loadZones() {
+        zoneStates.clear();
+        clients.clear();
+        for (ZoneState state : zoneStateRepository.findAll()) {
+            zoneStates.put(state.getName(), copyOf(state));
+        }
+        for (Zone zone : zoneRepository.findAll()) {
+            clients.put(zone.getName(), SnapClient.fromZone(zone, zoneStates.get(zone.getName())));
+        }
+        zonesLoaded = true;
+    }
+
+    private List<SnapGroup> buildGroups() {
+        Set<String> zonesInGroups = new HashSet<>();
+        List<SnapGroup> result = new ArrayList<>();
+
+        for (GroupState group : groups) {
+            List<SnapClient> groupClients = new ArrayList<>();
+            String streamId = null;
+            for (String zoneName : group.getZones()) {
+                zonesInGroups.add(zoneName);
+                SnapClient client = clients.get(zoneName);
+                if (client == null) {
+                    continue;
+                }
+                groupClients.add(client);
+                // Use first zone's source as stream_id
+                ZoneState state = zoneStates.get(zoneName);
+                if (streamId == null && state != null && state.getSourceName() != null) {
+                    streamId = state.getSourceName();
+                }
+            }
+            result.add(SnapGroup.fromGroupState(group, groupClients, streamId));
+        }
+
+        // Implicit single-zone groups for zones not in any group
+        for (Zone zone : zoneRepository.findAll()) {
+            if (zonesInGroups.contains(zone.getName())) {
+                continue;
+            }
+            ZoneState state = zoneStates.get(zone.getName());
+
+            SnapGroup implicitGroup = new SnapGroup();
+            implicitGroup.setId(zone.getName());
+            implicitGroup.setName(zone.getDescription() != null ? zone.getDescription() : zone.getName());
+            implicitGroup.setClients(List.of(clients.get(zone.getName())));
+            implicitGroup.setStreamId(state != null ? state.getSourceName() : null);
+            implicitGroup.setMuted(state != null && state.isMuted());
+            result.add(implicitGroup);
+        }
+
+        return result;
+    }
+
+    private static ZoneState copyOf(ZoneState state) {
+        ZoneState copy = new ZoneState();
+        copy.setName(state.getName());
+        copy.setSourceName(state.getSourceName());
+        copy.setVolume(state.getVolume());
+        copy.setMuted(state.isMuted());
+        return copy;
+    }
+}
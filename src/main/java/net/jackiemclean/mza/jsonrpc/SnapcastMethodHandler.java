@@ -6,12 +6,14 @@ import net.jackiemclean.mza.snapcast.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
-import java.util.stream.Collectors;
-import java.util.stream.StreamSupport;
 
 /**
  * Handles all Snapcast JSON-RPC method calls.
@@ -36,9 +38,17 @@ public class SnapcastMethodHandler {
     @Autowired
     private GroupService groupService;
     @Autowired
-    private ZoneController zoneController;
+    private ZoneService zoneService;
     @Autowired
     private SnapcastNotificationService notificationService;
+    @Autowired
+    private SnapServerView serverView;
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    @Autowired
+    private NotificationLog notificationLog;
+    @Autowired
+    private ZoneSourceCatalogue catalogue;
 
     /**
      * Dispatch a JSON-RPC request to the appropriate handler method.
@@ -67,6 +77,7 @@ public class SnapcastMethodHandler {
                 case "Server.GetRPCVersion" -> handleServerGetRPCVersion();
                 case "Server.GetStatus" -> handleServerGetStatus();
                 case "Server.DeleteClient" -> handleServerDeleteClient(request.getParams());
+                case "Server.Resume" -> handleServerResume(request.getParams());
 
                 // Stream methods
                 case "Stream.Control" -> handleStreamControl(request.getParams());
@@ -104,20 +115,19 @@ public class SnapcastMethodHandler {
         return result;
     }
 
-    @Transactional
     private Object handleClientSetVolume(JsonNode params) throws JsonRpcException {
         String clientId = requireParam(params, "id").asText();
         JsonNode volumeNode = requireParam(params, "volume");
 
-        int percent = volumeNode.has("percent") ? volumeNode.get("percent").asInt() : 100;
-        boolean muted = volumeNode.has("muted") && volumeNode.get("muted").asBoolean();
+        // Fields left out of the volume object are not changed
+        Integer percent = volumeNode.has("percent") ? volumeNode.get("percent").asInt() : null;
+        Boolean muted = volumeNode.has("muted") ? volumeNode.get("muted").asBoolean() : null;
 
-        // Apply volume change via ZoneController
-        zoneController.changeVolume(clientId, percent);
-        zoneController.muteZone(clientId, muted);
+        // Volume and mute are applied as a single zone update
+        ZoneState state = zoneService.applyChange(clientId, new ZoneChange(percent, muted, null));
 
         // Send notification to other clients
-        SnapVolume volume = new SnapVolume(muted, percent);
+        SnapVolume volume = new SnapVolume(state.isMuted(), state.getVolume());
         notificationService.broadcastClientVolumeChanged(clientId, volume);
 
         Map<String, Object> result = new HashMap<>();
@@ -167,17 +177,14 @@ public class SnapcastMethodHandler {
         return result;
     }
 
-    @Transactional
     private Object handleGroupSetMute(JsonNode params) throws JsonRpcException {
         String groupId = requireParam(params, "id").asText();
         boolean mute = requireParam(params, "mute").asBoolean();
 
         GroupState groupState = findGroupById(groupId);
 
-        // Mute/unmute all zones in the group
-        for (String zoneName : groupState.getZones()) {
-            zoneController.muteZone(zoneName, mute);
-        }
+        // Mute/unmute all zones in the group as one update
+        zoneService.applyChanges(groupState.getZones(), state -> ZoneChange.muted(mute));
 
         notificationService.broadcastGroupMute(groupId, mute);
 
@@ -186,7 +193,6 @@ public class SnapcastMethodHandler {
         return result;
     }
 
-    @Transactional
     private Object handleGroupSetStream(JsonNode params) throws JsonRpcException {
         String groupId = requireParam(params, "id").asText();
         String streamId = requireParam(params, "stream_id").asText();
@@ -198,10 +204,8 @@ public class SnapcastMethodHandler {
 
         GroupState groupState = findGroupById(groupId);
 
-        // Change source for all zones in the group
-        for (String zoneName : groupState.getZones()) {
-            zoneController.changeSource(zoneName, streamId);
-        }
+        // Change source for all zones in the group as one update
+        zoneService.applyChanges(groupState.getZones(), state -> ZoneChange.source(streamId));
 
         notificationService.broadcastGroupStreamChanged(groupId, streamId);
 
@@ -210,7 +214,6 @@ public class SnapcastMethodHandler {
         return result;
     }
 
-    @Transactional
     private Object handleGroupSetClients(JsonNode params) throws JsonRpcException {
         String groupId = requireParam(params, "id").asText();
         JsonNode clientsNode = requireParam(params, "clients");
@@ -249,12 +252,12 @@ public class SnapcastMethodHandler {
         }
 
         // Return full server status like Snapcast does
-        SnapServer server = buildFullServerStatus();
+        SnapServerView.Snapshot server = serverView.snapshot();
 
         notificationService.broadcastServerUpdate(server);
 
         Map<String, Object> result = new HashMap<>();
-        result.put("server", server);
+        result.put("server", server.raw());
         return result;
     }
 
@@ -301,25 +304,46 @@ public class SnapcastMethodHandler {
     }
 
     private Object handleServerGetStatus() {
-        SnapServer server = buildFullServerStatus();
         Map<String, Object> result = new HashMap<>();
-        result.put("server", server);
+        result.put("server", serverView.snapshot().raw());
+        return result;
+    }
+
+    /**
+     * MZA extension: returns the notifications broadcast after the client's last
+     * seen {@code seq}, or the full server status (like Server.GetStatus) if they
+     * are no longer buffered. Either way {@code seq} in the result is the
+     * sequence the client is now up to date with; live notifications with a
+     * lower or equal seq can be ignored.
+     */
+    private Object handleServerResume(JsonNode params) throws JsonRpcException {
+        long since = requireParam(params, "since").asLong();
+
+        Map<String, Object> result = new HashMap<>();
+        Optional<List<EncodedMessage>> missed = notificationLog.since(since);
+        if (missed.isPresent()) {
+            result.put("seq", since + missed.get().size());
+            result.put("notifications", missed.get().stream().map(EncodedMessage::asRawValue).toList());
+        } else {
+            // Read the sequence first: the snapshot is at least that recent
+            result.put("seq", notificationLog.lastSequence());
+            result.put("server", serverView.snapshot().raw());
+        }
         return result;
     }
 
-    @Transactional
     private Object handleServerDeleteClient(JsonNode params) throws JsonRpcException {
         String clientId = requireParam(params, "id").asText();
 
         // Delete zone state (reset to defaults)
-        zoneStateRepository.deleteById(clientId);
+        zoneService.reset(clientId);
 
-        SnapServer server = buildFullServerStatus();
+        SnapServerView.Snapshot server = serverView.snapshot();
 
         notificationService.broadcastServerUpdate(server);
 
         Map<String, Object> result = new HashMap<>();
-        result.put("server", server);
+        result.put("server", server.raw());
         return result;
     }
 
@@ -341,18 +365,86 @@ public class SnapcastMethodHandler {
         throw new JsonRpcException(-32602, "Property not supported");
     }
 
+    /**
+     * Adds a source when the catalogue is stored in the database. The stream URI
+     * names the source and its inputs, e.g.
+     * {@code mza:///?name=tv&left=Input%2011&right=Input%2012}; a missing
+     * {@code right} uses the left input for both channels.
+     */
     private Object handleStreamAddStream(JsonNode params) throws JsonRpcException {
-        // MZA sources are configured in YAML, not dynamically
-        throw new JsonRpcException(-32602, "Dynamic stream addition not supported");
+        String streamUri = requireParam(params, "streamUri").asText();
+        if (!catalogue.isWritable()) {
+            // MZA sources are configured in YAML, not dynamically
+            throw new JsonRpcException(-32602, "Dynamic stream addition not supported");
+        }
+
+        Map<String, String> query = queryParams(streamUri);
+        String left = query.get("left");
+        if (query.get("name") == null || left == null) {
+            throw new JsonRpcException(JsonRpcError.INVALID_PARAMS,
+                    "Stream URI needs name and left parameters");
+        }
+        Source source = new Source();
+        source.setName(query.get("name"));
+        source.setLeftInput(input(left));
+        source.setRightInput(input(query.getOrDefault("right", left)));
+        try {
+            catalogue.addSource(source);
+        } catch (IllegalArgumentException e) {
+            throw new JsonRpcException(JsonRpcError.INVALID_PARAMS, e.getMessage());
+        }
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("stream_id", source.getName());
+        return result;
     }
 
     private Object handleStreamRemoveStream(JsonNode params) throws JsonRpcException {
-        // MZA sources are configured in YAML, not dynamically
-        throw new JsonRpcException(-32602, "Dynamic stream removal not supported");
+        String streamId = requireParam(params, "id").asText();
+        if (!catalogue.isWritable()) {
+            // MZA sources are configured in YAML, not dynamically
+            throw new JsonRpcException(-32602, "Dynamic stream removal not supported");
+        }
+
+        try {
+            catalogue.removeSource(streamId);
+        } catch (IllegalArgumentException e) {
+            throw new JsonRpcException(JsonRpcError.INVALID_PARAMS, e.getMessage());
+        }
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("stream_id", streamId);
+        return result;
     }
 
     // ===== Helper Methods =====
 
+    private static Map<String, String> queryParams(String uri) throws JsonRpcException {
+        String query;
+        try {
+            query = new URI(uri).getRawQuery();
+        } catch (URISyntaxException e) {
+            throw new JsonRpcException(JsonRpcError.INVALID_PARAMS, "Invalid stream URI: " + uri);
+        }
+        Map<String, String> params = new HashMap<>();
+        if (query != null) {
+            for (String pair : query.split("&")) {
+                int eq = pair.indexOf('=');
+                if (eq > 0) {
+                    params.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                            URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+                }
+            }
+        }
+        return params;
+    }
+
+    private static Input input(String name) {
+        Input input = new Input();
+        input.setName(name);
+        return input;
+    }
+
     private JsonNode requireParam(JsonNode params, String name) throws JsonRpcException {
         if (params == null || !params.has(name)) {
             throw new JsonRpcException(JsonRpcError.INVALID_PARAMS,
@@ -401,7 +493,9 @@ public class SnapcastMethodHandler {
             LOG.warn("Self-repairing GroupState '{}' with empty zones - adding zone '{}'",
                     groupState.getName(), groupId);
             groupState.setZones(Set.of(groupId));
-            return groupStateRepository.save(groupState);
+            GroupState repaired = groupStateRepository.save(groupState);
+            eventPublisher.publishEvent(new GroupTopologyChangedEvent(repaired.getName()));
+            return repaired;
         }
 
         // No matching zone found, return as-is (will result in no-op for operations)
@@ -430,54 +524,6 @@ public class SnapcastMethodHandler {
         return SnapGroup.fromGroupState(groupState, clients, streamId);
     }
 
-    private SnapServer buildFullServerStatus() {
-        SnapServer server = new SnapServer();
-
-        // Get all zones that are already in groups
-        Set<String> zonesInGroups = new HashSet<>();
-        List<GroupState> existingGroups = groupStateRepository.findAll();
-        for (GroupState group : existingGroups) {
-            zonesInGroups.addAll(group.getZones());
-        }
-
-        // Build groups from existing groups
-        List<SnapGroup> groups = existingGroups.stream()
-                .map(this::buildSnapGroup)
-                .collect(Collectors.toList());
-
-        // Create implicit single-zone groups for zones not in any group
-        for (Zone zone : zoneRepository.findAll()) {
-            if (!zonesInGroups.contains(zone.getName())) {
-                // Create an implicit group for this ungrouped zone
-                ZoneState state = zoneStateRepository.findById(zone.getName()).orElse(null);
-                SnapClient client = SnapClient.fromZone(zone, state);
-
-                String streamId = (state != null && state.getSourceName() != null)
-                        ? state.getSourceName()
-                        : null;
-
-                SnapGroup implicitGroup = new SnapGroup();
-                implicitGroup.setId(zone.getName());
-                implicitGroup.setName(zone.getDescription() != null ? zone.getDescription() : zone.getName());
-                implicitGroup.setClients(List.of(client));
-                implicitGroup.setStreamId(streamId);
-                implicitGroup.setMuted(state != null && state.isMuted());
-
-                groups.add(implicitGroup);
-            }
-        }
-        server.setGroups(groups);
-
-        // Build streams from sources
-        List<SnapStream> streams = StreamSupport.stream(
-                sourceRepository.findAll().spliterator(), false)
-                .map(SnapStream::fromSource)
-                .collect(Collectors.toList());
-        server.setStreams(streams);
-
-        return server;
-    }
-
     /**
      * Exception for JSON-RPC specific errors.
      */
@@ -1,97 +1,260 @@
 package net.jackiemclean.mza.jsonrpc;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import net.jackiemclean.mza.CatalogueChangedEvent;
 import net.jackiemclean.mza.snapcast.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Service;
-import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.CloseStatus;
 import org.springframework.web.socket.WebSocketSession;
 
 import java.io.IOException;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Set;
-import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Manages WebSocket sessions and broadcasts notifications to all connected
  * clients (both WebSocket and TCP).
+ *
+ * Notifications are not sent immediately but collected for a short window
+ * ({@code snapcast.notify.coalesce-window-ms}). Within a window only the last
+ * notification per method and entity is kept, so dragging a group volume
+ * slider sends one Client.OnVolumeChanged per client rather than dozens. A
+ * pending Server.OnUpdate is compared with the last server model sent and, when
+ * only a few clients or groups changed, replaced by the equivalent per-entity
+ * notifications.
  */
 @Service
 public class SnapcastNotificationService {
 
     private static final Logger LOG = LoggerFactory.getLogger(SnapcastNotificationService.class);
-    private final ObjectMapper objectMapper = new ObjectMapper();
 
-    private final Set<WebSocketSession> sessions = new CopyOnWriteArraySet<>();
+    private final Map<String, WebSocketClient> sessions = new ConcurrentHashMap<>();
 
     @Autowired(required = false)
     @Lazy
     private SnapcastTcpServer tcpServer;
 
+    @Autowired
+    private OutboundQueueRegistry queueRegistry;
+
+    @Autowired
+    private NotificationLog notificationLog;
+
+    @Autowired
+    private SnapServerView serverView;
+
+    @Value("${snapcast.notify.coalesce-window-ms:20}")
+    private long coalesceWindowMs;
+
+    @Value("${snapcast.notify.max-delta:8}")
+    private int maxDeltaNotifications;
+
+    /** Methods whose content is part of the server model a Server.OnUpdate carries. */
+    private static final Set<String> MODEL_METHODS = Set.of(
+            "Client.OnVolumeChanged", "Group.OnMute", "Group.OnStreamChanged", "Group.OnNameChanged");
+
+    private final ScheduledExecutorService flushScheduler =
+            Executors.newSingleThreadScheduledExecutor(Thread.ofVirtual().name("snapcast-notify").factory());
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /** Keeps sequence order and delivery order the same. */
+    private final ReentrantLock deliverLock = new ReentrantLock();
+
+    // Guarded by lock
+    private final Map<String, JsonRpcNotification> pending = new LinkedHashMap<>();
+    private SnapServerView.Snapshot pendingServer;
+    // Notifications that arrived after pendingServer was taken; sent after it
+    private final Map<String, JsonRpcNotification> afterServer = new LinkedHashMap<>();
+    private SnapServer lastServerSent;
+    private boolean flushScheduled;
+
+    /**
+     * A WebSocket session together with the queue that serializes all writes to it.
+     */
+    private record WebSocketClient(WebSocketSession session, OutboundQueue queue) {
+    }
+
     public void addSession(WebSocketSession session) {
-        sessions.add(session);
+        String queueId = "ws:" + session.getId();
+        OutboundQueue queue = queueRegistry.open(queueId, "websocket",
+                batch -> {
+                    for (EncodedMessage message : batch) {
+                        session.sendMessage(message.asTextMessage());
+                    }
+                },
+                () -> closeSlowSession(session));
+        sessions.put(session.getId(), new WebSocketClient(session, queue));
         LOG.debug("WebSocket session added: {}, total sessions: {}", session.getId(), sessions.size());
     }
 
     public void removeSession(WebSocketSession session) {
-        sessions.remove(session);
+        sessions.remove(session.getId());
+        queueRegistry.close("ws:" + session.getId());
         LOG.debug("WebSocket session removed: {}, total sessions: {}", session.getId(), sessions.size());
     }
 
+    /**
+     * Queues a response for a single WebSocket session.
+     */
+    public void sendResponse(WebSocketSession session, EncodedMessage message) {
+        WebSocketClient client = sessions.get(session.getId());
+        if (client == null) {
+            LOG.debug("Dropping response for unknown WebSocket session {}", session.getId());
+            return;
+        }
+        client.queue().offerResponse(message);
+    }
+
+    /**
+     * Schedules a notification for every WebSocket session and TCP client. A
+     * later notification for the same method and entity within the coalescing
+     * window replaces this one. Once a Server.OnUpdate is pending, later
+     * notifications go out after it, so the last value a client sees for an
+     * entity is the latest one.
+     */
     public void broadcast(JsonRpcNotification notification) {
-        String message;
+        lock.lock();
         try {
-            message = objectMapper.writeValueAsString(notification) + "\n";
-        } catch (JsonProcessingException e) {
-            LOG.error("Failed to serialize notification", e);
+            String key = coalesceKey(notification);
+            if (pendingServer != null) {
+                pending.remove(key);
+                afterServer.put(key, notification);
+            } else {
+                pending.put(key, notification);
+            }
+            scheduleFlush();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Guarded by lock
+    private void scheduleFlush() {
+        if (flushScheduled) {
             return;
         }
+        flushScheduled = true;
+        if (coalesceWindowMs <= 0) {
+            flushScheduler.execute(this::flush);
+        } else {
+            flushScheduler.schedule(this::flush, coalesceWindowMs, TimeUnit.MILLISECONDS);
+        }
+    }
 
-        // Broadcast to WebSocket clients
-        TextMessage textMessage = new TextMessage(message);
-        for (WebSocketSession session : sessions) {
-            if (session.isOpen()) {
-                try {
-                    synchronized (session) {
-                        session.sendMessage(textMessage);
-                    }
-                } catch (IOException e) {
-                    LOG.error("Failed to send notification to WebSocket session {}", session.getId(), e);
+    /**
+     * Sends everything collected during the window, in the order the entities
+     * first changed.
+     */
+    void flush() {
+        List<JsonRpcNotification> toSend;
+        lock.lock();
+        try {
+            flushScheduled = false;
+            toSend = new ArrayList<>(pending.values());
+            pending.clear();
+
+            if (pendingServer != null) {
+                SnapServer server = pendingServer.server();
+                List<JsonRpcNotification> delta =
+                        SnapServerDiff.diff(lastServerSent, server, maxDeltaNotifications);
+                if (delta == null) {
+                    Map<String, Object> params = new HashMap<>();
+                    params.put("server", pendingServer.raw());
+                    toSend.add(new JsonRpcNotification("Server.OnUpdate", params));
+                } else {
+                    LOG.debug("Replacing Server.OnUpdate with {} per-entity notifications", delta.size());
+                    toSend.addAll(delta);
                 }
+                lastServerSent = server;
+                pendingServer = null;
+                toSend.addAll(afterServer.values());
+                afterServer.clear();
             }
+        } finally {
+            lock.unlock();
         }
 
-        // Broadcast to TCP clients
-        if (tcpServer != null) {
-            tcpServer.broadcast(notification);
+        for (JsonRpcNotification notification : toSend) {
+            deliver(notification);
         }
     }
 
-    public void broadcastExcept(WebSocketSession sender, JsonRpcNotification notification) {
-        String message;
+    private void deliver(JsonRpcNotification notification) {
+        deliver(notification, null);
+    }
+
+    /**
+     * Sequences and encodes the notification once and delivers the same bytes to
+     * every WebSocket session (except {@code excludedSessionId}, if set) and TCP
+     * client.
+     */
+    private void deliver(JsonRpcNotification notification, String excludedSessionId) {
+        deliverLock.lock();
         try {
-            message = objectMapper.writeValueAsString(notification) + "\n";
-        } catch (JsonProcessingException e) {
-            LOG.error("Failed to serialize notification", e);
-            return;
-        }
+            EncodedMessage message;
+            try {
+                message = notificationLog.append(notification, coalesceKey(notification));
+            } catch (IOException e) {
+                LOG.error("Failed to serialize notification", e);
+                return;
+            }
 
-        TextMessage textMessage = new TextMessage(message);
-        for (WebSocketSession session : sessions) {
-            if (session.isOpen() && !session.getId().equals(sender.getId())) {
-                try {
-                    synchronized (session) {
-                        session.sendMessage(textMessage);
-                    }
-                } catch (IOException e) {
-                    LOG.error("Failed to send notification to session {}", session.getId(), e);
+            // Broadcast to WebSocket clients
+            for (WebSocketClient client : sessions.values()) {
+                if (!client.session().getId().equals(excludedSessionId)) {
+                    client.queue().offerNotification(message);
                 }
             }
+
+            // Broadcast to TCP clients
+            if (excludedSessionId == null && tcpServer != null) {
+                tcpServer.broadcast(message);
+            }
+        } finally {
+            deliverLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flushScheduler.shutdown();
+    }
+
+    public void broadcastExcept(WebSocketSession sender, JsonRpcNotification notification) {
+        deliver(notification, sender.getId());
+    }
+
+    /**
+     * Notifications about the same entity (method plus target id) carry
+     * successive values of the same state, so only the latest one matters.
+     */
+    private static String coalesceKey(JsonRpcNotification notification) {
+        if (notification.getParams() instanceof Map<?, ?> params && params.get("id") != null) {
+            return notification.getMethod() + ":" + params.get("id");
+        }
+        return notification.getMethod();
+    }
+
+    private void closeSlowSession(WebSocketSession session) {
+        sessions.remove(session.getId());
+        queueRegistry.close("ws:" + session.getId());
+        try {
+            session.close(CloseStatus.SESSION_NOT_RELIABLE);
+        } catch (IOException e) {
+            LOG.debug("Failed to close WebSocket session {}: {}", session.getId(), e.getMessage());
         }
     }
 
@@ -175,9 +338,36 @@ public class SnapcastNotificationService {
 
     // ===== Server Notifications =====
 
-    public void broadcastServerUpdate(SnapServer server) {
-        Map<String, Object> params = new HashMap<>();
-        params.put("server", server);
-        broadcast(new JsonRpcNotification("Server.OnUpdate", params));
+    /**
+     * Zones or sources were reconfigured: clients get the new model. Runs after
+     * {@link SnapServerView} has dropped the old one.
+     */
+    @EventListener
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public void onCatalogueChanged(CatalogueChangedEvent event) {
+        broadcastServerUpdate(serverView.snapshot());
+    }
+
+    /**
+     * Schedules a Server.OnUpdate. The snapshot already reflects every model
+     * change notified so far in this window, so those pending notifications are
+     * dropped in its favour; the update itself may go out as a delta on flush.
+     * An older snapshot than the one already pending is ignored.
+     */
+    public void broadcastServerUpdate(SnapServerView.Snapshot server) {
+        lock.lock();
+        try {
+            if (pendingServer == null || server.version() >= pendingServer.version()) {
+                pending.values().removeIf(n -> MODEL_METHODS.contains(n.getMethod()));
+                afterServer.values().removeIf(n -> MODEL_METHODS.contains(n.getMethod()));
+                // What is left came before this snapshot
+                pending.putAll(afterServer);
+                afterServer.clear();
+                pendingServer = server;
+            }
+            scheduleFlush();
+        } finally {
+            lock.unlock();
+        }
     }
 }
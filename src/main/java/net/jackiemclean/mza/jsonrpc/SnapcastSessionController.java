@@ -0,0 +1,23 @@
+package net.jackiemclean.mza.jsonrpc;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ * Reports the outbound queue of every connected Snapcast JSON-RPC session
+ * (WebSocket and TCP): current depth, high-water mark and drop counters.
+ */
+@RestController
+public class SnapcastSessionController {
+
+    @Autowired
+    private OutboundQueueRegistry queueRegistry;
+
+    @GetMapping("/api/jsonrpc/sessions")
+    public List<OutboundQueue.Stats> getSessions() {
+        return queueRegistry.stats();
+    }
+}
@@ -1,7 +1,6 @@
 package net.jackiemclean.mza.jsonrpc;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -10,26 +9,49 @@ import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
 
-import java.io.*;
-import java.net.ServerSocket;
-import java.net.Socket;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
 
 /**
  * Raw TCP socket server for Snapcast JSON-RPC protocol.
  * Snapcast clients (like Snapdroid) connect via TCP on port 1705 (default).
  * Messages are newline-delimited JSON (ndjson).
+ *
+ * Each connection is a blocking {@link SocketChannel} served by a virtual
+ * thread. Incoming lines are framed directly from a reusable read buffer and
+ * decoded from bytes by the shared {@link JsonRpcCodec}. Outgoing messages are pre-encoded; everything queued for a
+ * client is written with one gathering write of read-only views of the shared
+ * buffers, with Nagle's algorithm disabled so a single small notification is
+ * not delayed.
+ *
+ * Reading is decoupled from execution: each parsed request is handed to the
+ * connection's {@link OrderedRequestExecutor.Sequence} and the reader moves on
+ * to the next line. Up to {@code snapcast.tcp.max-in-flight} requests per
+ * connection run at once; responses are written as they complete and are
+ * matched to requests by their id. A batch is pipelined the same way, but its
+ * responses are written together, in request order, once all of its entries
+ * have completed.
  */
 @Component
 public class SnapcastTcpServer {
 
     private static final Logger LOG = LoggerFactory.getLogger(SnapcastTcpServer.class);
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    private static final int READ_BUFFER_SIZE = 4096;
+    private static final int MAX_MESSAGE_SIZE = 1024 * 1024;
     private final Map<String, TcpClientSession> sessions = new ConcurrentHashMap<>();
 
     @Value("${snapcast.tcp.port:1705}")
@@ -38,13 +60,22 @@ public class SnapcastTcpServer {
     @Value("${snapcast.tcp.enabled:true}")
     private boolean enabled;
 
-    @Autowired
-    private SnapcastMethodHandler methodHandler;
+    @Value("${snapcast.tcp.max-in-flight:16}")
+    private int maxInFlight;
 
     @Autowired
     private SnapcastNotificationService notificationService;
 
-    private ServerSocket serverSocket;
+    @Autowired
+    private OutboundQueueRegistry queueRegistry;
+
+    @Autowired
+    private OrderedRequestExecutor requestExecutor;
+
+    @Autowired
+    private JsonRpcCodec codec;
+
+    private ServerSocketChannel serverChannel;
     private ExecutorService executorService;
 
     @EventListener(ApplicationReadyEvent.class)
@@ -60,16 +91,17 @@ public class SnapcastTcpServer {
 
     private void runServer() {
         try {
-            serverSocket = new ServerSocket(tcpPort);
-            LOG.info("Snapcast TCP server listening on port {}", tcpPort);
+            serverChannel = ServerSocketChannel.open();
+            serverChannel.bind(new InetSocketAddress(tcpPort));
+            LOG.info("Snapcast TCP server listening on port {}", getLocalPort());
 
-            while (!serverSocket.isClosed()) {
+            while (serverChannel.isOpen()) {
                 try {
-                    Socket clientSocket = serverSocket.accept();
-                    LOG.info("New TCP connection from {}", clientSocket.getRemoteSocketAddress());
-                    executorService.submit(() -> handleClient(clientSocket));
+                    SocketChannel channel = serverChannel.accept();
+                    LOG.info("New TCP connection from {}", channel.getRemoteAddress());
+                    executorService.submit(() -> handleClient(channel));
                 } catch (IOException e) {
-                    if (!serverSocket.isClosed()) {
+                    if (serverChannel.isOpen()) {
                         LOG.error("Error accepting connection", e);
                     }
                 }
@@ -79,112 +111,203 @@ public class SnapcastTcpServer {
         }
     }
 
-    private void handleClient(Socket socket) {
-        String sessionId = socket.getRemoteSocketAddress().toString();
-        TcpClientSession session = new TcpClientSession(sessionId, socket);
+    private void handleClient(SocketChannel channel) {
+        String sessionId;
+        try {
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            sessionId = channel.getRemoteAddress().toString();
+        } catch (IOException e) {
+            LOG.debug("Client disconnected before setup: {}", e.getMessage());
+            closeQuietly(channel);
+            return;
+        }
+
+        TcpClientSession session = new TcpClientSession(sessionId, channel,
+                requestExecutor.newSequence(), new Semaphore(inFlightLimit()));
         sessions.put(sessionId, session);
 
-        try (
-                BufferedReader reader = new BufferedReader(
-                        new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
-                PrintWriter writer = new PrintWriter(
-                        new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8), true)) {
-            session.setWriter(writer);
-
-            String line;
-            while ((line = reader.readLine()) != null) {
-                line = line.trim();
-                if (line.isEmpty()) {
-                    continue;
+        try {
+            session.setQueue(queueRegistry.open("tcp:" + sessionId, "tcp",
+                    batch -> write(channel, batch),
+                    () -> closeQuietly(channel)));
+
+            NdjsonFrameReader reader = new NdjsonFrameReader(channel, READ_BUFFER_SIZE, MAX_MESSAGE_SIZE);
+            ByteBuffer frame;
+            while ((frame = reader.next()) != null) {
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug("Received from {}: {}", sessionId, StandardCharsets.UTF_8.decode(frame.duplicate()));
                 }
-
-                LOG.debug("Received from {}: {}", sessionId, line);
-                handleMessage(session, line);
+                handleMessage(session, frame);
             }
         } catch (IOException e) {
             LOG.debug("Client {} disconnected: {}", sessionId, e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         } finally {
             sessions.remove(sessionId);
-            try {
-                socket.close();
-            } catch (IOException e) {
-                // Ignore
-            }
+            queueRegistry.close("tcp:" + sessionId);
+            closeQuietly(channel);
             LOG.info("TCP connection closed: {}", sessionId);
         }
     }
 
-    private void handleMessage(TcpClientSession session, String json) {
+    /**
+     * Writes a batch of queued messages with a single gathering write, looping
+     * only if the socket buffer accepts part of it.
+     */
+    private static void write(SocketChannel channel, List<EncodedMessage> batch) throws IOException {
+        ByteBuffer[] buffers = new ByteBuffer[batch.size()];
+        long remaining = 0;
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = batch.get(i).asByteBuffer();
+            remaining += buffers[i].remaining();
+        }
+        while (remaining > 0) {
+            remaining -= channel.write(buffers);
+        }
+    }
+
+    private static void closeQuietly(SocketChannel channel) {
         try {
-            json = json.trim();
+            channel.close();
+        } catch (IOException e) {
+            // Ignore
+        }
+    }
 
-            // Check if this is a batch request (starts with '[')
-            if (json.startsWith("[")) {
-                handleBatchRequest(session, json);
-                return;
+    /**
+     * The port the server is bound to, or -1 if it is not listening.
+     */
+    public int getLocalPort() {
+        try {
+            ServerSocketChannel channel = serverChannel;
+            if (channel != null && channel.getLocalAddress() instanceof InetSocketAddress address) {
+                return address.getPort();
             }
+        } catch (IOException e) {
+            // Closed
+        }
+        return -1;
+    }
 
-            JsonRpcRequest request = objectMapper.readValue(json, JsonRpcRequest.class);
+    @PreDestroy
+    public void stop() {
+        if (serverChannel != null) {
+            try {
+                serverChannel.close();
+            } catch (IOException e) {
+                // Ignore
+            }
+        }
+        sessions.values().forEach(session -> closeQuietly(session.getChannel()));
+        if (executorService != null) {
+            executorService.shutdown();
+        }
+    }
 
-            // Validate JSON-RPC version
-            if (!"2.0".equals(request.getJsonrpc())) {
-                sendResponse(session, JsonRpcResponse.error(request.getId(), JsonRpcError.invalidRequest()));
-                return;
+    private void handleMessage(TcpClientSession session, ByteBuffer frame) throws InterruptedException {
+        List<JsonRpcCodec.Message> messages =
+                codec.decode(frame.array(), frame.arrayOffset() + frame.position(), frame.remaining());
+        for (JsonRpcCodec.Message message : messages) {
+            switch (message) {
+                case JsonRpcCodec.Single single -> dispatch(session, single.request());
+                case JsonRpcCodec.Batch batch -> dispatchBatch(session, batch.requests());
+                case JsonRpcCodec.ParseError error -> {
+                    LOG.error("Failed to parse JSON-RPC request from {}", session.getId());
+                    sendResponse(session, JsonRpcResponse.error(null, JsonRpcError.parseError()));
+                }
             }
+        }
+    }
 
-            JsonRpcResponse response = methodHandler.handleRequest(request);
+    /**
+     * Hands the request to the connection's pipeline and returns without waiting
+     * for it to run. Blocks the reader only while the connection already has
+     * the maximum number of requests in flight.
+     */
+    private void dispatch(TcpClientSession session, JsonRpcRequest request) throws InterruptedException {
+        // Validate JSON-RPC version
+        if (!"2.0".equals(request.getJsonrpc())) {
+            sendResponse(session, JsonRpcResponse.error(request.getId(), JsonRpcError.invalidRequest()));
+            return;
+        }
 
+        session.getInFlight().acquire();
+        session.getPipeline().submit(request).whenComplete((response, error) -> {
+            session.getInFlight().release();
             // Only send response if it has an id (not a notification)
-            if (request.getId() != null) {
-                sendResponse(session, response);
+            if (request.getId() == null) {
+                return;
             }
-        } catch (JsonProcessingException e) {
-            LOG.error("Failed to parse JSON-RPC request: {}", e.getMessage());
-            sendResponse(session, JsonRpcResponse.error(null, JsonRpcError.parseError()));
-        }
+            if (error != null) {
+                LOG.error("Request {} from {} failed", request.getMethod(), session.getId(), error);
+                response = JsonRpcResponse.error(request.getId(), JsonRpcError.internalError(error.getMessage()));
+            }
+            sendResponse(session, response);
+        });
     }
 
-    private void handleBatchRequest(TcpClientSession session, String json) {
-        try {
-            JsonRpcRequest[] requests = objectMapper.readValue(json, JsonRpcRequest[].class);
+    /**
+     * Hands the batch to the connection's pipeline like {@link #dispatch}, holding
+     * one in-flight permit per entry until the whole batch has completed. The
+     * responses are then written one per line, in request order.
+     *
+     * @param batch the decoded entries; null marks an entry that was not a valid
+     *              request object
+     */
+    private void dispatchBatch(TcpClientSession session, List<JsonRpcRequest> batch) throws InterruptedException {
+        List<JsonRpcRequest> valid = new ArrayList<>();
+        for (JsonRpcRequest request : batch) {
+            if (request != null && "2.0".equals(request.getJsonrpc())) {
+                valid.add(request);
+            }
+        }
 
-            for (JsonRpcRequest request : requests) {
-                // Validate JSON-RPC version
-                if (!"2.0".equals(request.getJsonrpc())) {
+        // A batch larger than the limit takes every permit rather than waiting forever
+        int permits = Math.min(valid.size(), inFlightLimit());
+        session.getInFlight().acquire(permits);
+        session.getPipeline().submitAll(valid).whenComplete((results, error) -> {
+            session.getInFlight().release(permits);
+            if (error != null) {
+                LOG.error("Batch from {} failed", session.getId(), error);
+            }
+            Iterator<JsonRpcResponse> responses = results != null ? results.iterator() : null;
+            for (JsonRpcRequest request : batch) {
+                if (request == null) {
+                    sendResponse(session, JsonRpcResponse.error(null, JsonRpcError.parseError()));
+                } else if (!"2.0".equals(request.getJsonrpc())) {
                     sendResponse(session, JsonRpcResponse.error(request.getId(), JsonRpcError.invalidRequest()));
-                    continue;
-                }
-
-                JsonRpcResponse response = methodHandler.handleRequest(request);
-
-                // Only send response if it has an id (not a notification)
-                if (request.getId() != null) {
-                    sendResponse(session, response);
+                } else {
+                    JsonRpcResponse response = responses != null
+                            ? responses.next()
+                            : JsonRpcResponse.error(request.getId(), JsonRpcError.internalError(error.getMessage()));
+                    // Only send response if it has an id (not a notification)
+                    if (request.getId() != null) {
+                        sendResponse(session, response);
+                    }
                 }
             }
-        } catch (JsonProcessingException e) {
-            LOG.error("Failed to parse batch request: {}", e.getMessage());
-            sendResponse(session, JsonRpcResponse.error(null, JsonRpcError.parseError()));
-        }
+        });
+    }
+
+    private int inFlightLimit() {
+        return Math.max(1, maxInFlight);
     }
 
     private void sendResponse(TcpClientSession session, JsonRpcResponse response) {
         try {
-            String json = objectMapper.writeValueAsString(response);
-            session.send(json);
-        } catch (JsonProcessingException e) {
+            session.sendResponse(codec.encode(response));
+        } catch (IOException e) {
             LOG.error("Failed to serialize response", e);
         }
     }
 
-    public void broadcast(JsonRpcNotification notification) {
-        try {
-            String json = objectMapper.writeValueAsString(notification);
-            for (TcpClientSession session : sessions.values()) {
-                session.send(json);
-            }
-        } catch (JsonProcessingException e) {
-            LOG.error("Failed to serialize notification", e);
+    /**
+     * Sends an already-encoded notification to every connected client.
+     */
+    public void broadcast(EncodedMessage message) {
+        for (TcpClientSession session : sessions.values()) {
+            session.sendNotification(message);
         }
     }
 
@@ -197,22 +320,46 @@ public class SnapcastTcpServer {
      */
     public static class TcpClientSession {
         private final String id;
-        private final Socket socket;
-        private PrintWriter writer;
+        private final SocketChannel channel;
+        private final OrderedRequestExecutor.Sequence pipeline;
+        private final Semaphore inFlight;
+        private volatile OutboundQueue queue;
 
-        public TcpClientSession(String id, Socket socket) {
+        public TcpClientSession(String id, SocketChannel channel, OrderedRequestExecutor.Sequence pipeline,
+                Semaphore inFlight) {
             this.id = id;
-            this.socket = socket;
+            this.channel = channel;
+            this.pipeline = pipeline;
+            this.inFlight = inFlight;
         }
 
-        public void setWriter(PrintWriter writer) {
-            this.writer = writer;
+        /**
+         * Orders this connection's requests: those on the same zone or group run
+         * in arrival order, the rest run concurrently.
+         */
+        public OrderedRequestExecutor.Sequence getPipeline() {
+            return pipeline;
+        }
+
+        public Semaphore getInFlight() {
+            return inFlight;
+        }
+
+        public void setQueue(OutboundQueue queue) {
+            this.queue = queue;
+        }
+
+        public void sendResponse(EncodedMessage message) {
+            OutboundQueue q = queue;
+            if (q != null) {
+                q.offerResponse(message);
+            }
         }
 
-        public synchronized void send(String message) {
-            if (writer != null) {
-                writer.println(message);
-                writer.flush();
+        public void sendNotification(EncodedMessage message) {
+            OutboundQueue q = queue;
+            if (q != null) {
+                q.offerNotification(message);
             }
         }
 
@@ -220,8 +367,8 @@ public class SnapcastTcpServer {
             return id;
         }
 
-        public Socket getSocket() {
-            return socket;
+        public SocketChannel getChannel() {
+            return channel;
         }
     }
 }
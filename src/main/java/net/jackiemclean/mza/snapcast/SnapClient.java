@@ -1,6 +1,7 @@
 package net.jackiemclean.mza.snapcast;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import net.jackiemclean.mza.Zone;
 import net.jackiemclean.mza.ZoneState;
 
@@ -8,6 +9,7 @@ import net.jackiemclean.mza.ZoneState;
  * Snapcast-compatible client object.
  * Maps from MZA Zone + ZoneState.
  */
+@JsonSerialize(using = SnapClientSerializer.class)
 public class SnapClient {
 
     @JsonProperty("config")
@@ -0,0 +1,95 @@
+package net.jackiemclean.mza.snapcast;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+
+/**
+ * Writes {@link SnapClient}, including its config, host, lastSeen and
+ * snapclient objects, without bean introspection. Clients make up most of a
+ * Server.GetStatus result. Field names and order match the annotated fields.
+ */
+public class SnapClientSerializer extends StdSerializer<SnapClient> {
+
+    private static final SnapVolumeSerializer VOLUME = new SnapVolumeSerializer();
+
+    public SnapClientSerializer() {
+        super(SnapClient.class);
+    }
+
+    @Override
+    public void serialize(SnapClient client, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        gen.writeStartObject();
+
+        gen.writeFieldName("config");
+        writeConfig(client.getConfig(), gen, provider);
+        gen.writeBooleanField("connected", client.isConnected());
+        gen.writeFieldName("host");
+        writeHost(client.getHost(), gen);
+        gen.writeStringField("id", client.getId());
+        gen.writeFieldName("lastSeen");
+        writeTimestamp(client.getLastSeen(), gen);
+        gen.writeFieldName("snapclient");
+        writeClientInfo(client.getSnapclient(), gen);
+
+        gen.writeEndObject();
+    }
+
+    private static void writeConfig(SnapClientConfig config, JsonGenerator gen, SerializerProvider provider)
+            throws IOException {
+        if (config == null) {
+            gen.writeNull();
+            return;
+        }
+        gen.writeStartObject();
+        gen.writeNumberField("instance", config.getInstance());
+        gen.writeNumberField("latency", config.getLatency());
+        gen.writeStringField("name", config.getName());
+        gen.writeFieldName("volume");
+        if (config.getVolume() == null) {
+            gen.writeNull();
+        } else {
+            VOLUME.serialize(config.getVolume(), gen, provider);
+        }
+        gen.writeEndObject();
+    }
+
+    private static void writeHost(SnapHost host, JsonGenerator gen) throws IOException {
+        if (host == null) {
+            gen.writeNull();
+            return;
+        }
+        gen.writeStartObject();
+        gen.writeStringField("arch", host.getArch());
+        gen.writeStringField("ip", host.getIp());
+        gen.writeStringField("mac", host.getMac());
+        gen.writeStringField("name", host.getName());
+        gen.writeStringField("os", host.getOs());
+        gen.writeEndObject();
+    }
+
+    private static void writeTimestamp(SnapTimestamp timestamp, JsonGenerator gen) throws IOException {
+        if (timestamp == null) {
+            gen.writeNull();
+            return;
+        }
+        gen.writeStartObject();
+        gen.writeNumberField("sec", timestamp.getSec());
+        gen.writeNumberField("usec", timestamp.getUsec());
+        gen.writeEndObject();
+    }
+
+    private static void writeClientInfo(SnapClientInfo info, JsonGenerator gen) throws IOException {
+        if (info == null) {
+            gen.writeNull();
+            return;
+        }
+        gen.writeStartObject();
+        gen.writeStringField("name", info.getName());
+        gen.writeNumberField("protocolVersion", info.getProtocolVersion());
+        gen.writeStringField("version", info.getVersion());
+        gen.writeEndObject();
+    }
+}
@@ -1,6 +1,7 @@
 package net.jackiemclean.mza.snapcast;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import java.util.ArrayList;
 import java.util.List;
 import net.jackiemclean.mza.GroupState;
@@ -9,6 +10,7 @@ import net.jackiemclean.mza.GroupState;
  * Snapcast-compatible group object.
  * Maps from MZA GroupState.
  */
+@JsonSerialize(using = SnapGroupSerializer.class)
 public class SnapGroup {
 
     @JsonProperty("clients")
@@ -0,0 +1,46 @@
+package net.jackiemclean.mza.snapcast;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+
+/**
+ * Writes {@link SnapGroup} and its clients without bean introspection. Field
+ * names and order match the annotated fields.
+ */
+public class SnapGroupSerializer extends StdSerializer<SnapGroup> {
+
+    private static final SnapClientSerializer CLIENT = new SnapClientSerializer();
+
+    public SnapGroupSerializer() {
+        super(SnapGroup.class);
+    }
+
+    @Override
+    public void serialize(SnapGroup group, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        gen.writeStartObject();
+
+        gen.writeFieldName("clients");
+        if (group.getClients() == null) {
+            gen.writeNull();
+        } else {
+            gen.writeStartArray();
+            for (SnapClient client : group.getClients()) {
+                if (client == null) {
+                    gen.writeNull();
+                } else {
+                    CLIENT.serialize(client, gen, provider);
+                }
+            }
+            gen.writeEndArray();
+        }
+        gen.writeStringField("id", group.getId());
+        gen.writeBooleanField("muted", group.isMuted());
+        gen.writeStringField("name", group.getName());
+        gen.writeStringField("stream_id", group.getStreamId());
+
+        gen.writeEndObject();
+    }
+}
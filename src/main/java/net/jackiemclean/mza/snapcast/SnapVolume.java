@@ -1,10 +1,12 @@
 package net.jackiemclean.mza.snapcast;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 
 /**
  * Snapcast-compatible volume object.
  */
+@JsonSerialize(using = SnapVolumeSerializer.class)
 public class SnapVolume {
 
     @JsonProperty("muted")
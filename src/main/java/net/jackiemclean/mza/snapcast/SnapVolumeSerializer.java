@@ -0,0 +1,26 @@
+package net.jackiemclean.mza.snapcast;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+
+/**
+ * Writes {@link SnapVolume} without bean introspection. Produces the same JSON
+ * as the annotated fields.
+ */
+public class SnapVolumeSerializer extends StdSerializer<SnapVolume> {
+
+    public SnapVolumeSerializer() {
+        super(SnapVolume.class);
+    }
+
+    @Override
+    public void serialize(SnapVolume volume, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        gen.writeStartObject();
+        gen.writeBooleanField("muted", volume.isMuted());
+        gen.writeNumberField("percent", volume.getPercent());
+        gen.writeEndObject();
+    }
+}
@@ -0,0 +1,122 @@
+package net.jackiemclean.mza;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+class AmixerAudioInterfaceTest {
+
+    private static final List<String> SCONTENTS = List.of(
+            "Simple mixer control 'Out1 In1',0",
+            "  Capabilities: volume volume-joined",
+            "  Limits: 0 - 127",
+            "  Mono: 64 [50%]",
+            "Simple mixer control 'Out2 In2',0",
+            "  Mono: 63 [49%]",
+            "Simple mixer control 'Out1 In3',0",
+            "  Mono: 127 [100%]",
+            "Simple mixer control 'Out2 In4',0",
+            "  Mono: 0 [0%]");
+
+    private CommandExecutor commandExecutor;
+    private AmixerAudioInterface audioInterface;
+    private Source mpd;
+    private Source upnp;
+
+    @BeforeEach
+    void setUp() {
+        commandExecutor = mock(CommandExecutor.class);
+        audioInterface = new AmixerAudioInterface("1", "amixer", commandExecutor);
+        mpd = source("mpd", "In1", "In2");
+        upnp = source("upnp1", "In3", "In4");
+    }
+
+    @Test
+    void testReadsFirstLevelOfEachControl() {
+        when(commandExecutor.executeAndGetOutput(eq("amixer -c'1' scontents"), any())).thenReturn(SCONTENTS);
+
+        assertEquals(Map.of("Out1 In1", 50, "Out2 In2", 49, "Out1 In3", 100, "Out2 In4", 0),
+                audioInterface.readLevels());
+    }
+
+    @Test
+    void testWarmStartSetsOnlyControlsThatDiffer() {
+        when(commandExecutor.executeAndGetOutput(anyString(), any())).thenReturn(SCONTENTS);
+
+        AudioInterface.WarmStart result = audioInterface.warmStart(
+                List.of(new ZoneSync(zone("kitchen"), mpd, state(50, false))), List.of(mpd, upnp));
+
+        // mpd crosspoints are within rounding of 50%; only the stray upnp1 route needs silencing
+        assertEquals(new AudioInterface.WarmStart(0, 1, 1), result);
+        ArgumentCaptor<String> script = ArgumentCaptor.forClass(String.class);
+        verify(commandExecutor).execute(script.capture(), any());
+        assertEquals("amixer -c'1' -s <<'EOF'\nsset 'Out1 In3' 0%\nEOF", script.getValue());
+    }
+
+    @Test
+    void testWarmStartAdoptsMatchingMixer() {
+        when(commandExecutor.executeAndGetOutput(anyString(), any())).thenReturn(List.of(
+                "Simple mixer control 'Out1 In1',0", "  Mono: 0 [0%]",
+                "Simple mixer control 'Out2 In2',0", "  Mono: 0 [0%]",
+                "Simple mixer control 'Out1 In3',0", "  Mono: 0 [0%]",
+                "Simple mixer control 'Out2 In4',0", "  Mono: 0 [0%]"));
+
+        AudioInterface.WarmStart result = audioInterface.warmStart(
+                List.of(new ZoneSync(zone("kitchen"), mpd, state(50, true))), List.of(mpd, upnp));
+
+        assertEquals(new AudioInterface.WarmStart(1, 0, 0), result);
+        verify(commandExecutor, never()).execute(anyString(), any());
+    }
+
+    @Test
+    void testWarmStartFallsBackToColdStartWhenMixerUnreadable() {
+        when(commandExecutor.executeAndGetOutput(anyString(), any()))
+                .thenThrow(new RuntimeException("Command failed with exit code 1"));
+
+        AudioInterface.WarmStart result = audioInterface.warmStart(
+                List.of(new ZoneSync(zone("kitchen"), mpd, state(50, false))), List.of(mpd, upnp));
+
+        // Muted on upnp1, then synced on mpd
+        assertEquals(new AudioInterface.WarmStart(0, 1, 2), result);
+        verify(commandExecutor).execute(eq("amixer -c'1' set 'Out1 In3' 0%; amixer -c'1' set 'Out2 In4' 0%"), any());
+        verify(commandExecutor).execute(eq("amixer -c'1' set 'Out1 In1' 50%; amixer -c'1' set 'Out2 In2' 50%"), any());
+    }
+
+    private static Zone zone(String name) {
+        Zone zone = new Zone();
+        zone.setName(name);
+        Output left = new Output();
+        left.setName("Out1");
+        Output right = new Output();
+        right.setName("Out2");
+        zone.setLeftOutput(left);
+        zone.setRightOutput(right);
+        return zone;
+    }
+
+    private static Source source(String name, String leftInput, String rightInput) {
+        Source source = new Source();
+        source.setName(name);
+        Input left = new Input();
+        left.setName(leftInput);
+        Input right = new Input();
+        right.setName(rightInput);
+        source.setLeftInput(left);
+        source.setRightInput(right);
+        return source;
+    }
+
+    private static ZoneState state(int volume, boolean muted) {
+        ZoneState state = new ZoneState();
+        state.setName("kitchen");
+        state.setVolume(volume);
+        state.setMuted(muted);
+        return state;
+    }
+}
@@ -0,0 +1,67 @@
+package net.jackiemclean.mza;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class AudioInterfaceTest {
+
+    @Test
+    void testSyncAll_ZonesRunInParallel() {
+        // Each sync waits for the others: only completes if all run at once
+        CyclicBarrier allStarted = new CyclicBarrier(3);
+        AudioInterface audioInterface = (zone, source, state) -> {
+            try {
+                allStarted.await(5, TimeUnit.SECONDS);
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        };
+
+        audioInterface.syncAll(List.of(sync("a"), sync("b"), sync("c")));
+    }
+
+    @Test
+    void testSyncAll_FailureRethrownAfterOthersComplete() {
+        List<String> synced = new CopyOnWriteArrayList<>();
+        AudioInterface audioInterface = (zone, source, state) -> {
+            if ("bad".equals(zone.getName())) {
+                throw new IllegalStateException("boom");
+            }
+            synced.add(zone.getName());
+        };
+
+        assertThrows(IllegalStateException.class,
+                () -> audioInterface.syncAll(List.of(sync("a"), sync("bad"), sync("c"))));
+        assertEquals(2, synced.size());
+    }
+
+    @Test
+    void testSwitchRoute_DefaultMutesOldSourceFirst() {
+        List<String> calls = new CopyOnWriteArrayList<>();
+        AudioInterface audioInterface = (zone, source, state) ->
+                calls.add(source.getName() + (state.isMuted() ? ":muted" : ":" + state.getVolume()));
+        Source mpd = new Source();
+        mpd.setName("mpd");
+        Source upnp = new Source();
+        upnp.setName("upnp1");
+        ZoneSync sync = sync("a");
+        sync.zoneState().setVolume(40);
+
+        audioInterface.syncAll(List.of(new ZoneSync(sync.zone(), upnp, sync.zoneState(), mpd)));
+
+        assertEquals(List.of("mpd:muted", "upnp1:40"), calls);
+    }
+
+    private ZoneSync sync(String zoneName) {
+        Zone zone = new Zone();
+        zone.setName(zoneName);
+        ZoneState state = new ZoneState();
+        state.setName(zoneName);
+        return new ZoneSync(zone, new Source(), state);
+    }
+}
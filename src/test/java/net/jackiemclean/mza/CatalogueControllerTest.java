@@ -0,0 +1,64 @@
+package net.jackiemclean.mza;
+
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+class CatalogueControllerTest {
+
+    private ZoneCatalogueRepository zoneStore;
+    private SourceCatalogueRepository sourceStore;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        Zone zone = new Zone();
+        zone.setName("kitchen");
+        ZoneConfig zoneConfig = new ZoneConfig();
+        zoneConfig.setZones(List.of(zone));
+        Source source = new Source();
+        source.setName("tv");
+        SourceConfig sourceConfig = new SourceConfig();
+        sourceConfig.setSources(List.of(source));
+
+        zoneStore = mock(ZoneCatalogueRepository.class);
+        sourceStore = mock(SourceCatalogueRepository.class);
+        ZoneSourceCatalogue catalogue = new ZoneSourceCatalogue();
+        ReflectionTestUtils.setField(catalogue, "registry",
+                new ZoneSourceRegistry(zoneConfig, sourceConfig, "mza/zone/"));
+        ReflectionTestUtils.setField(catalogue, "zoneStore", zoneStore);
+        ReflectionTestUtils.setField(catalogue, "sourceStore", sourceStore);
+        ReflectionTestUtils.setField(catalogue, "store", ZoneSourceCatalogue.Store.YAML);
+
+        CatalogueController controller = new CatalogueController();
+        ReflectionTestUtils.setField(controller, "catalogue", catalogue);
+        mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+    }
+
+    @Test
+    void testYamlStore_ChangesRejectedWithConflict() throws Exception {
+        mockMvc.perform(post("/api/catalogue/sources")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"radio\"}"))
+                .andExpect(status().isConflict());
+        mockMvc.perform(delete("/api/catalogue/zones/kitchen")).andExpect(status().isConflict());
+
+        verifyNoInteractions(zoneStore, sourceStore);
+    }
+
+    @Test
+    void testYamlStore_Listed() throws Exception {
+        mockMvc.perform(get("/api/catalogue/zones"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total").value(1))
+                .andExpect(jsonPath("$.items[0].name").value("kitchen"));
+    }
+}
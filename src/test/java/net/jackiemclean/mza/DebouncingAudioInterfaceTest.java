@@ -3,6 +3,7 @@ package net.jackiemclean.mza;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 
+import java.util.List;
 import java.util.concurrent.*;
 
 import org.junit.jupiter.api.BeforeEach;
@@ -177,6 +178,70 @@ class DebouncingAudioInterfaceTest {
                 argThat(state -> "source2".equals(state.getSourceName())));
     }
 
+    @Test
+    void testBatch_FlushedAsOneSyncAll() throws Exception {
+        debouncer = new DebouncingAudioInterface(mockDelegate, 100, testScheduler);
+        Zone zone2 = createZone("Zone2");
+
+        debouncer.syncAll(List.of(
+                new ZoneSync(zone, source, createState(30, false, "src1")),
+                new ZoneSync(zone2, source, createState(60, false, "src1"))));
+
+        Thread.sleep(150);
+
+        verify(mockDelegate, times(1)).syncAll(argThat(syncs -> syncs.size() == 2));
+        verify(mockDelegate, never()).sync(any(), any(), any());
+    }
+
+    @Test
+    void testBatch_RequeuedZoneDoesNotCancelOthers() throws Exception {
+        debouncer = new DebouncingAudioInterface(mockDelegate, 100, testScheduler);
+        Zone zone2 = createZone("Zone2");
+
+        debouncer.syncAll(List.of(
+                new ZoneSync(zone, source, createState(30, false, "src1")),
+                new ZoneSync(zone2, source, createState(60, false, "src1"))));
+        Thread.sleep(50);
+        debouncer.sync(zone, source, createState(90, false, "src1"));
+
+        Thread.sleep(150);
+
+        // Zone2 flushes with the original batch, TestZone with its later value
+        verify(mockDelegate, times(1)).sync(eq(zone2), eq(source), argThat(state -> state.getVolume() == 60));
+        verify(mockDelegate, times(1)).sync(eq(zone), eq(source), argThat(state -> state.getVolume() == 90));
+        verify(mockDelegate, never()).syncAll(any());
+    }
+
+    @Test
+    void testSwitchRoute_BypassesDebounceAndDropsPendingState() throws Exception {
+        debouncer = new DebouncingAudioInterface(mockDelegate, 100, testScheduler);
+        Source source2 = new Source();
+        source2.setName("NewSource");
+
+        debouncer.sync(zone, source, createState(40, false, "src1"));
+        debouncer.switchRoute(zone, source, source2, createState(40, false, "NewSource"));
+
+        // Applied immediately, keeping the previous source for the protective mute
+        verify(mockDelegate, times(1)).syncAll(argThat(syncs ->
+                syncs.size() == 1 && syncs.get(0).previousSource() == source && syncs.get(0).source() == source2));
+
+        Thread.sleep(150);
+
+        verify(mockDelegate, never()).sync(any(), any(), any());
+    }
+
+    private Zone createZone(String name) {
+        Zone z = new Zone();
+        z.setName(name);
+        Output l = new Output();
+        l.setName(name + "_L");
+        Output r = new Output();
+        r.setName(name + "_R");
+        z.setLeftOutput(l);
+        z.setRightOutput(r);
+        return z;
+    }
+
     private ZoneState createState(int volume, boolean muted, String sourceName) {
         ZoneState state = new ZoneState();
         state.setName(zone.getName());
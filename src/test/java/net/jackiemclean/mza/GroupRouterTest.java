@@ -1,14 +1,12 @@
 package net.jackiemclean.mza;
 
+import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import java.time.Instant;
-import java.util.Optional;
 import java.util.Set;
-import org.eclipse.paho.client.mqttv3.MqttClient;
-import org.eclipse.paho.client.mqttv3.MqttMessage;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -22,7 +20,7 @@ import org.springframework.test.util.ReflectionTestUtils;
 class GroupRouterTest {
 
     @Mock
-    private MqttClient mqttClient;
+    private MqttPublisher mqttPublisher;
 
     @Spy
     private ObjectMapper objectMapper = new ObjectMapper();
@@ -35,7 +33,8 @@ class GroupRouterTest {
     void setUp() {
         groupRouter = new GroupRouter();
         ReflectionTestUtils.setField(groupRouter, "topicBase", "mza/group/");
-        ReflectionTestUtils.setField(groupRouter, "mqttClient", Optional.of(mqttClient));
+        ReflectionTestUtils.setField(groupRouter, "mqttPublisher", mqttPublisher);
+        when(mqttPublisher.topicMode()).thenReturn(MqttPublisher.TopicMode.FIELDS);
 
         testGroup = new GroupState();
         testGroup.setName("test_group");
@@ -53,19 +52,13 @@ class GroupRouterTest {
 
         // Assert
         ArgumentCaptor<String> topicCaptor = ArgumentCaptor.forClass(String.class);
-        ArgumentCaptor<MqttMessage> messageCaptor = ArgumentCaptor.forClass(MqttMessage.class);
+        ArgumentCaptor<byte[]> payloadCaptor = ArgumentCaptor.forClass(byte[].class);
 
-        verify(mqttClient, times(5)).publish(topicCaptor.capture(), messageCaptor.capture());
+        verify(mqttPublisher, times(5)).publish(topicCaptor.capture(), payloadCaptor.capture(), eq(true));
 
         var topics = topicCaptor.getAllValues();
-        var messages = messageCaptor.getAllValues();
-
         // Verify zones topic
         assert topics.contains("mza/group/test_group/zones");
-        // Verify all messages are retained
-        for (MqttMessage msg : messages) {
-            assert msg.isRetained();
-        }
     }
 
     @Test
@@ -78,25 +71,41 @@ class GroupRouterTest {
 
         // Assert
         ArgumentCaptor<String> topicCaptor = ArgumentCaptor.forClass(String.class);
-        verify(mqttClient, times(4)).publish(topicCaptor.capture(), any(MqttMessage.class));
+        verify(mqttPublisher, times(4)).publish(topicCaptor.capture(), any(), eq(true));
 
         var topics = topicCaptor.getAllValues();
         // Should not publish description topic
         assert !topics.contains("mza/group/test_group/description");
     }
 
+    @Test
+    void testPublishGroupToMqtt_JsonMode() throws Exception {
+        when(mqttPublisher.topicMode()).thenReturn(MqttPublisher.TopicMode.JSON);
+
+        groupRouter.publishGroupToMqtt(testGroup);
+
+        ArgumentCaptor<byte[]> payloadCaptor = ArgumentCaptor.forClass(byte[].class);
+        verify(mqttPublisher).publish(eq("mza/group/test_group"), payloadCaptor.capture(), eq(true));
+        verifyNoMoreInteractions(ignoreStubs(mqttPublisher));
+
+        var document = objectMapper.readTree(payloadCaptor.getValue());
+        assertEquals("Test Group", document.get("displayName").asText());
+        assertEquals("[\"zone1\",\"zone2\"]", document.get("zones").toString());
+        assertEquals("2026-01-11T10:30:00Z", document.get("updated_at").asText());
+    }
+
     @Test
     void testPublishGroupToMqtt_HandlesException() throws Exception {
         // Arrange
         doThrow(new RuntimeException("MQTT error"))
-                .when(mqttClient)
-                .publish(anyString(), any(MqttMessage.class));
+                .when(mqttPublisher)
+                .publish(anyString(), any(), anyBoolean());
 
         // Act - should not throw exception
         groupRouter.publishGroupToMqtt(testGroup);
 
         // Assert - verify it attempted to publish
-        verify(mqttClient, atLeastOnce()).publish(anyString(), any(MqttMessage.class));
+        verify(mqttPublisher, atLeastOnce()).publish(anyString(), any(), anyBoolean());
     }
 
     @Test
@@ -106,12 +115,12 @@ class GroupRouterTest {
 
         // Assert
         ArgumentCaptor<String> topicCaptor = ArgumentCaptor.forClass(String.class);
-        ArgumentCaptor<MqttMessage> messageCaptor = ArgumentCaptor.forClass(MqttMessage.class);
+        ArgumentCaptor<byte[]> payloadCaptor = ArgumentCaptor.forClass(byte[].class);
 
-        verify(mqttClient, times(5)).publish(topicCaptor.capture(), messageCaptor.capture());
+        verify(mqttPublisher, times(5)).publish(topicCaptor.capture(), payloadCaptor.capture(), eq(true));
 
         var topics = topicCaptor.getAllValues();
-        var messages = messageCaptor.getAllValues();
+        var payloads = payloadCaptor.getAllValues();
 
         // Verify all topics
         assert topics.contains("mza/group/test_group/zones");
@@ -120,10 +129,9 @@ class GroupRouterTest {
         assert topics.contains("mza/group/test_group/created_at");
         assert topics.contains("mza/group/test_group/updated_at");
 
-        // Verify all messages are empty and retained
-        for (MqttMessage msg : messages) {
-            assert msg.getPayload().length == 0;
-            assert msg.isRetained();
+        // Verify all payloads are empty (retained is checked by the verify above)
+        for (byte[] payload : payloads) {
+            assert payload.length == 0;
         }
     }
 
@@ -131,13 +139,13 @@ class GroupRouterTest {
     void testPublishGroupDeletion_HandlesException() throws Exception {
         // Arrange
         doThrow(new RuntimeException("MQTT error"))
-                .when(mqttClient)
-                .publish(anyString(), any(MqttMessage.class));
+                .when(mqttPublisher)
+                .publish(anyString(), any(), anyBoolean());
 
         // Act - should not throw exception
         groupRouter.publishGroupDeletion("test_group");
 
         // Assert - verify it attempted to publish
-        verify(mqttClient, atLeastOnce()).publish(anyString(), any(MqttMessage.class));
+        verify(mqttPublisher, atLeastOnce()).publish(anyString(), any(), anyBoolean());
     }
 }
@@ -14,6 +14,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 
 @ExtendWith(MockitoExtension.class)
 class GroupServiceTest {
@@ -24,6 +25,8 @@ class GroupServiceTest {
     private ZoneRepository zoneRepository;
     @Mock
     private GroupRouter groupRouter;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
 
     @InjectMocks
     private GroupService groupService;
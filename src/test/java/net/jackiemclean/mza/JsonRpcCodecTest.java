@@ -0,0 +1,54 @@
+package net.jackiemclean.mza;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import net.jackiemclean.mza.jsonrpc.JsonRpcCodec;
+import org.junit.jupiter.api.Test;
+
+class JsonRpcCodecTest {
+
+    private final JsonRpcCodec codec = new JsonRpcCodec();
+
+    @Test
+    void testNdjson_DecodesEachLine() {
+        String payload = " {\"jsonrpc\":\"2.0\",\"method\":\"Server.GetStatus\",\"id\":1}\r\n\r\n"
+                + "{\"jsonrpc\":\"2.0\",\"method\":\"Client.GetStatus\",\"id\":2,\"params\":{\"id\":\"kitchen\"}}\n";
+
+        List<JsonRpcCodec.Message> messages = codec.decode(payload.getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(2, messages.size());
+        JsonRpcCodec.Single second = assertInstanceOf(JsonRpcCodec.Single.class, messages.get(1));
+        assertEquals("Client.GetStatus", second.request().getMethod());
+        assertEquals("kitchen", second.request().getParams().get("id").asText());
+        assertEquals(messages.size(), codec.decode(payload).size());
+    }
+
+    @Test
+    void testBatch_KeepsOrderAndMarksInvalidEntries() {
+        String payload = "[{\"jsonrpc\":\"2.0\",\"method\":\"A\",\"id\":1}, 42,"
+                + " {\"jsonrpc\":\"2.0\",\"method\":\"B\",\"id\":2}]";
+
+        List<JsonRpcCodec.Message> messages = codec.decode(payload);
+
+        assertEquals(1, messages.size());
+        JsonRpcCodec.Batch batch = assertInstanceOf(JsonRpcCodec.Batch.class, messages.get(0));
+        assertEquals(3, batch.requests().size());
+        assertEquals("A", batch.requests().get(0).getMethod());
+        assertNull(batch.requests().get(1));
+        assertEquals("B", batch.requests().get(2).getMethod());
+    }
+
+    @Test
+    void testMalformed_ReportsParseError() {
+        assertInstanceOf(JsonRpcCodec.ParseError.class, codec.decode("[{\"method\":").get(0));
+
+        List<JsonRpcCodec.Message> messages = codec.decode("{\"jsonrpc\":\"2.0\",\"method\":\"A\"}\n{oops");
+        assertEquals(2, messages.size());
+        assertInstanceOf(JsonRpcCodec.Single.class, messages.get(0));
+        assertInstanceOf(JsonRpcCodec.ParseError.class, messages.get(1));
+
+        assertTrue(codec.decode("  \n").isEmpty());
+    }
+}
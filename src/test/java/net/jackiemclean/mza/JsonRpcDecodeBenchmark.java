@@ -0,0 +1,93 @@
+package net.jackiemclean.mza;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import net.jackiemclean.mza.jsonrpc.JsonRpcCodec;
+import net.jackiemclean.mza.jsonrpc.JsonRpcRequest;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares the previous String-based request decoding (trim, split lines,
+ * readValue per line; batches via readTree and treeToValue) with
+ * {@link JsonRpcCodec} decoding from bytes.
+ *
+ * Run with:
+ * {@code ./mvnw test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=net.jackiemclean.mza.JsonRpcDecodeBenchmark}
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonRpcDecodeBenchmark {
+
+    private static final String REQUEST =
+            "{\"id\":%d,\"jsonrpc\":\"2.0\",\"method\":\"Client.SetVolume\","
+                    + "\"params\":{\"id\":\"zone_%d\",\"volume\":{\"muted\":false,\"percent\":%d}}}";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final JsonRpcCodec codec = new JsonRpcCodec();
+
+    private String ndjson;
+    private byte[] ndjsonBytes;
+    private String batch;
+    private byte[] batchBytes;
+
+    @Setup
+    public void setUp() {
+        List<String> requests = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            requests.add(String.format(REQUEST, i, i, 10 * i));
+        }
+        ndjson = String.join("\r\n", requests) + "\r\n";
+        ndjsonBytes = ndjson.getBytes(StandardCharsets.UTF_8);
+        batch = "[" + String.join(",", requests) + "]";
+        batchBytes = batch.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public List<JsonRpcRequest> ndjsonLegacy() throws Exception {
+        List<JsonRpcRequest> result = new ArrayList<>();
+        for (String line : ndjson.trim().split("\n")) {
+            line = line.trim();
+            if (!line.isEmpty()) {
+                result.add(objectMapper.readValue(line, JsonRpcRequest.class));
+            }
+        }
+        return result;
+    }
+
+    @Benchmark
+    public List<JsonRpcCodec.Message> ndjsonCodec() {
+        return codec.decode(ndjsonBytes);
+    }
+
+    @Benchmark
+    public List<JsonRpcRequest> batchLegacy() throws Exception {
+        List<JsonRpcRequest> result = new ArrayList<>();
+        for (JsonNode node : objectMapper.readTree(batch.trim())) {
+            result.add(objectMapper.treeToValue(node, JsonRpcRequest.class));
+        }
+        return result;
+    }
+
+    @Benchmark
+    public List<JsonRpcCodec.Message> batchCodec() {
+        return codec.decode(batchBytes);
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(JsonRpcDecodeBenchmark.class.getSimpleName())
+                .addProfiler("gc")
+                .build()).run();
+    }
+}
@@ -0,0 +1,171 @@
+package net.jackiemclean.mza;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import io.moquette.broker.Server;
+import io.moquette.broker.config.MemoryConfig;
+import java.net.ServerSocket;
+import java.util.List;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import org.eclipse.paho.client.mqttv3.MqttClient;
+import org.eclipse.paho.client.mqttv3.MqttMessage;
+import org.eclipse.paho.client.mqttv3.persist.MemoryPersistence;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class MqttCommandListenerTest {
+
+    private ZoneService zoneService;
+    private GroupStateRepository groupStateRepository;
+    private MqttCommandListener listener;
+
+    private final List<List<ZoneUpdate>> applied = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        zoneService = mock(ZoneService.class);
+        groupStateRepository = mock(GroupStateRepository.class);
+        doAnswer(inv -> {
+            applied.add(List.copyOf(inv.<List<ZoneUpdate>>getArgument(0)));
+            return List.of();
+        }).when(zoneService).applyChanges(anyList());
+
+        listener = new MqttCommandListener();
+        ReflectionTestUtils.setField(listener, "zoneService", zoneService);
+        ReflectionTestUtils.setField(listener, "groupStateRepository", groupStateRepository);
+        ReflectionTestUtils.setField(listener, "enabled", true);
+        ReflectionTestUtils.setField(listener, "zoneTopicBase", "mza/zone/");
+        ReflectionTestUtils.setField(listener, "groupTopicBase", "mza/group/");
+        ReflectionTestUtils.setField(listener, "batchWindowMs", 50L);
+        ReflectionTestUtils.setField(listener, "queueCapacity", 64);
+    }
+
+    @Test
+    void testParsesCommands() {
+        assertEquals(new MqttCommandListener.Command(false, "kitchen", ZoneChange.volume(40)),
+                listener.parse("mza/zone/kitchen/set/volume", "40"));
+        assertEquals(new MqttCommandListener.Command(false, "kitchen", ZoneChange.muted(true)),
+                listener.parse("mza/zone/kitchen/set/muted", "TRUE"));
+        assertEquals(new MqttCommandListener.Command(true, "downstairs", ZoneChange.source("mpd")),
+                listener.parse("mza/group/downstairs/set/source", "mpd"));
+    }
+
+    @Test
+    void testRejectsInvalidCommands() {
+        assertNull(listener.parse("mza/zone/kitchen/set/volume", "loud"));
+        assertNull(listener.parse("mza/zone/kitchen/set/volume", "101"));
+        assertNull(listener.parse("mza/zone/kitchen/set/muted", "maybe"));
+        assertNull(listener.parse("mza/zone/kitchen/set/bass", "3"));
+        assertNull(listener.parse("mza/zone/kitchen/volume", "40"));
+        assertNull(listener.parse("other/kitchen/set/volume", "40"));
+    }
+
+    @Test
+    void testFoldsBurstIntoOneChangePerZone() {
+        GroupState group = new GroupState();
+        group.setName("downstairs");
+        group.setZones(Set.of("kitchen"));
+        when(groupStateRepository.findByName("downstairs")).thenReturn(Optional.of(group));
+
+        listener.apply(List.of(
+                new MqttCommandListener.Command(false, "kitchen", ZoneChange.volume(10)),
+                new MqttCommandListener.Command(false, "office", ZoneChange.muted(false)),
+                new MqttCommandListener.Command(false, "kitchen", ZoneChange.volume(30)),
+                new MqttCommandListener.Command(true, "downstairs", ZoneChange.source("mpd")),
+                new MqttCommandListener.Command(true, "attic", ZoneChange.muted(true))));
+
+        assertEquals(List.of(List.of(
+                new ZoneUpdate("kitchen", 30, null, "mpd"),
+                new ZoneUpdate("office", null, false, null))), applied);
+    }
+
+    @Test
+    void testFailedBatchIsAppliedZoneByZone() {
+        doThrow(new RuntimeException("Source not found")).when(zoneService).applyChanges(anyList());
+        doThrow(new RuntimeException("Source not found"))
+                .when(zoneService).applyChange(eq("kitchen"), any(ZoneChange.class));
+
+        listener.apply(List.of(
+                new MqttCommandListener.Command(false, "kitchen", ZoneChange.source("nope")),
+                new MqttCommandListener.Command(false, "office", ZoneChange.volume(20))));
+
+        verify(zoneService).applyChange("office", ZoneChange.volume(20));
+    }
+
+    @Test
+    void testCommandsFromEmbeddedBroker() throws Exception {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        Properties config = new Properties();
+        config.setProperty("host", "127.0.0.1");
+        config.setProperty("port", String.valueOf(port));
+        config.setProperty("allow_anonymous", "true");
+        config.setProperty("persistence_enabled", "false");
+        Server broker = new Server();
+        broker.startServer(new MemoryConfig(config));
+
+        String url = "tcp://127.0.0.1:" + port;
+        MqttPublisher publisher = new MqttPublisher();
+        ReflectionTestUtils.setField(publisher, "mqttClient",
+                Optional.of(new MqttClient(url, "mza-test", new MemoryPersistence())));
+        ReflectionTestUtils.setField(publisher, "capacity", 64);
+        ReflectionTestUtils.setField(publisher, "initialBackoffMs", 50L);
+        ReflectionTestUtils.setField(publisher, "maxBackoffMs", 200L);
+        ReflectionTestUtils.setField(listener, "mqttPublisher", publisher);
+        MqttClient controller = new MqttClient(url, "controller", new MemoryPersistence());
+        try {
+            publisher.start();
+            listener.start();
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while ((int) ReflectionTestUtils.getField(publisher, "subscribed") < 2) {
+                assertTrue(System.nanoTime() < deadline, "listener did not subscribe");
+                Thread.sleep(10);
+            }
+
+            controller.connect();
+            for (int volume = 1; volume <= 20; volume++) {
+                controller.publish("mza/zone/kitchen/set/volume", new MqttMessage(String.valueOf(volume).getBytes()));
+            }
+            controller.publish("mza/zone/kitchen/set/muted", new MqttMessage("false".getBytes()));
+
+            // Applied in arrival order, each burst folded into one update
+            Integer volume = null;
+            Boolean muted = null;
+            while (!Boolean.FALSE.equals(muted)) {
+                assertTrue(System.nanoTime() < deadline, "commands not applied: " + applied);
+                Thread.sleep(10);
+                volume = null;
+                muted = null;
+                for (List<ZoneUpdate> batch : applied) {
+                    assertEquals(1, batch.size());
+                    ZoneUpdate update = batch.get(0);
+                    if (update.volume() != null) {
+                        assertTrue(volume == null || update.volume() > volume, "out of order: " + applied);
+                        volume = update.volume();
+                    }
+                    if (update.muted() != null) {
+                        muted = update.muted();
+                    }
+                }
+            }
+            assertEquals(20, volume);
+            assertTrue(applied.size() < 21, "burst was not batched: " + applied.size() + " updates");
+        } finally {
+            if (controller.isConnected()) {
+                controller.disconnect();
+            }
+            listener.stop();
+            publisher.stop();
+            broker.stopServer();
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package net.jackiemclean.mza;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.eclipse.paho.client.mqttv3.MqttCallbackExtended;
+import org.eclipse.paho.client.mqttv3.MqttClient;
+import org.eclipse.paho.client.mqttv3.MqttConnectOptions;
+import org.eclipse.paho.client.mqttv3.MqttException;
+import org.eclipse.paho.client.mqttv3.MqttMessage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class MqttPublisherTest {
+
+    private final AtomicBoolean connected = new AtomicBoolean();
+    private final AtomicBoolean brokerUp = new AtomicBoolean();
+    private final List<String> published = new CopyOnWriteArrayList<>();
+
+    private MqttClient client;
+    private MqttPublisher publisher;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        client = mock(MqttClient.class);
+        when(client.isConnected()).thenAnswer(inv -> connected.get());
+        doAnswer(inv -> {
+            if (!brokerUp.get()) {
+                throw new MqttException(MqttException.REASON_CODE_SERVER_CONNECT_ERROR);
+            }
+            connected.set(true);
+            return null;
+        }).when(client).connect(any(MqttConnectOptions.class));
+        doAnswer(inv -> {
+            MqttMessage message = inv.getArgument(1);
+            published.add(inv.getArgument(0) + "=" + new String(message.getPayload()));
+            return null;
+        }).when(client).publish(anyString(), any(MqttMessage.class));
+
+        publisher = new MqttPublisher();
+        ReflectionTestUtils.setField(publisher, "mqttClient", Optional.of(client));
+        ReflectionTestUtils.setField(publisher, "capacity", 16);
+        ReflectionTestUtils.setField(publisher, "initialBackoffMs", 5L);
+        ReflectionTestUtils.setField(publisher, "maxBackoffMs", 20L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        publisher.stop();
+    }
+
+    @Test
+    void testPublishesLastValuePerTopicAfterReconnect() throws Exception {
+        publisher.start();
+
+        // Broker down: updates to one topic collapse into the newest
+        for (int volume = 0; volume <= 50; volume++) {
+            publisher.publish("mza/zone/kitchen/volume", String.valueOf(volume).getBytes(), true);
+        }
+        publisher.publish("mza/zone/kitchen/muted", "false".getBytes(), true);
+        assertEquals(2, publisher.pendingCount());
+        assertTrue(published.isEmpty());
+
+        brokerUp.set(true);
+        awaitPublished(2);
+
+        assertEquals(List.of("mza/zone/kitchen/volume=50", "mza/zone/kitchen/muted=false"), published);
+        verify(client, atLeastOnce()).connect(any(MqttConnectOptions.class));
+    }
+
+    @Test
+    void testPublishDoesNotBlockWhileDisconnected() {
+        publisher.start();
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 1000; i++) {
+            publisher.publish("mza/zone/z" + i + "/volume", "1".getBytes(), true);
+        }
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertTrue(elapsedMs < 1000, "publish blocked for " + elapsedMs + "ms");
+        // Bounded: the oldest topics are dropped
+        assertEquals(16, publisher.pendingCount());
+    }
+
+    @Test
+    void testRequeuesFailedPublish() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        doAnswer(inv -> {
+            if (attempts.getAndIncrement() == 0) {
+                connected.set(false);
+                throw new MqttException(MqttException.REASON_CODE_CONNECTION_LOST);
+            }
+            MqttMessage message = inv.getArgument(1);
+            published.add(inv.getArgument(0) + "=" + new String(message.getPayload()));
+            return null;
+        }).when(client).publish(anyString(), any(MqttMessage.class));
+        brokerUp.set(true);
+        publisher.start();
+
+        publisher.publish("mza/zone/kitchen/sourceName", "radio".getBytes(), true);
+        awaitPublished(1);
+
+        assertEquals(List.of("mza/zone/kitchen/sourceName=radio"), published);
+        assertEquals(0, publisher.pendingCount());
+    }
+
+    @Test
+    void testSkipsUnchangedRetainedPayloads() throws Exception {
+        brokerUp.set(true);
+        publisher.start();
+
+        assertTrue(publisher.publish("mza/zone/kitchen/volume", "40".getBytes(), true));
+        awaitPublished(1);
+        // A periodic resync of the same state costs nothing
+        assertFalse(publisher.publish("mza/zone/kitchen/volume", "40".getBytes(), true));
+        assertTrue(publisher.publish("mza/zone/kitchen/volume", "41".getBytes(), true));
+        awaitPublished(2);
+
+        assertEquals(List.of("mza/zone/kitchen/volume=40", "mza/zone/kitchen/volume=41"), published);
+        assertEquals(1, publisher.unchangedCount());
+    }
+
+    @Test
+    void testRepublishesRetainedValuesAfterReconnect() throws Exception {
+        brokerUp.set(true);
+        publisher.start();
+        ArgumentCaptor<MqttCallbackExtended> callback = ArgumentCaptor.forClass(MqttCallbackExtended.class);
+        verify(client).setCallback(callback.capture());
+
+        publisher.publish("mza/zone/kitchen/volume", "40".getBytes(), true);
+        publisher.publish("mza/zone/kitchen/event", "x".getBytes(), false);
+        awaitPublished(2);
+
+        // Broker restarted without persistence: its retained messages are gone
+        connected.set(false);
+        callback.getValue().connectionLost(new MqttException(MqttException.REASON_CODE_CONNECTION_LOST));
+        awaitPublished(3);
+
+        assertEquals("mza/zone/kitchen/volume=40", published.get(2));
+        // Still skipped while unchanged
+        assertFalse(publisher.publish("mza/zone/kitchen/volume", "40".getBytes(), true));
+        Thread.sleep(50);
+        assertEquals(3, published.size());
+    }
+
+    @Test
+    void testNonRetainedMessagesAreNeverSkipped() {
+        assertTrue(publisher.publish("mza/zone/kitchen/event", "x".getBytes(), false));
+        assertTrue(publisher.publish("mza/zone/kitchen/event", "x".getBytes(), false));
+        assertEquals(0, publisher.unchangedCount());
+    }
+
+    @Test
+    void testDroppedTopicIsPublishedAgain() {
+        ReflectionTestUtils.setField(publisher, "capacity", 1);
+
+        assertTrue(publisher.publish("mza/zone/a/volume", "1".getBytes(), true));
+        // Drops a/volume, which the broker never got
+        assertTrue(publisher.publish("mza/zone/b/volume", "1".getBytes(), true));
+
+        assertTrue(publisher.publish("mza/zone/a/volume", "1".getBytes(), true));
+    }
+
+    @Test
+    void testDisabledWithoutClient() {
+        MqttPublisher disabled = new MqttPublisher();
+        ReflectionTestUtils.setField(disabled, "mqttClient", Optional.empty());
+        disabled.start();
+
+        disabled.publish("mza/zone/kitchen/volume", "1".getBytes(), true);
+
+        assertFalse(disabled.isEnabled());
+        assertEquals(0, disabled.pendingCount());
+        disabled.stop();
+    }
+
+    private void awaitPublished(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (published.size() < count) {
+            assertTrue(System.nanoTime() < deadline, "only published " + published);
+            Thread.sleep(5);
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package net.jackiemclean.mza;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import net.jackiemclean.mza.jsonrpc.JsonRpcRequest;
+import net.jackiemclean.mza.jsonrpc.JsonRpcResponse;
+import net.jackiemclean.mza.jsonrpc.OrderedRequestExecutor;
+import net.jackiemclean.mza.jsonrpc.SnapServerView;
+import net.jackiemclean.mza.jsonrpc.SnapcastMethodHandler;
+import net.jackiemclean.mza.snapcast.SnapClient;
+import net.jackiemclean.mza.snapcast.SnapGroup;
+import net.jackiemclean.mza.snapcast.SnapServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class OrderedRequestExecutorTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private SnapcastMethodHandler methodHandler;
+    private OrderedRequestExecutor executor;
+
+    @BeforeEach
+    void setUp() {
+        methodHandler = mock(SnapcastMethodHandler.class);
+
+        SnapClient kitchen = new SnapClient();
+        kitchen.setId("kitchen");
+        SnapGroup group = new SnapGroup();
+        group.setId("g1");
+        group.setClients(List.of(kitchen));
+        SnapServer server = new SnapServer();
+        server.setGroups(List.of(group));
+        SnapServerView serverView = mock(SnapServerView.class);
+        when(serverView.snapshot()).thenReturn(new SnapServerView.Snapshot(1, server, new SerializedString("{}")));
+
+        executor = new OrderedRequestExecutor();
+        ReflectionTestUtils.setField(executor, "methodHandler", methodHandler);
+        ReflectionTestUtils.setField(executor, "serverView", serverView);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    void testIndependentClients_RunConcurrently() {
+        // Each request waits for the other to start: only completes if both run at once
+        CyclicBarrier bothStarted = new CyclicBarrier(2);
+        when(methodHandler.handleRequest(any())).thenAnswer(invocation -> {
+            bothStarted.await(5, TimeUnit.SECONDS);
+            JsonRpcRequest request = invocation.getArgument(0);
+            return JsonRpcResponse.success(request.getId(), "ok");
+        });
+
+        List<JsonRpcResponse> responses = executor.executeAll(List.of(
+                request(1, "Client.SetVolume", "kitchen"),
+                request(2, "Client.SetVolume", "lounge")));
+
+        assertEquals(1, responses.get(0).getId());
+        assertEquals(2, responses.get(1).getId());
+        assertNull(responses.get(0).getError());
+        assertNull(responses.get(1).getError());
+    }
+
+    @Test
+    void testSameZone_RunsInOrderAcrossClientAndGroupRequests() {
+        List<Object> started = new CopyOnWriteArrayList<>();
+        when(methodHandler.handleRequest(any())).thenAnswer(invocation -> {
+            JsonRpcRequest request = invocation.getArgument(0);
+            started.add(request.getId());
+            if (Integer.valueOf(1).equals(request.getId())) {
+                Thread.sleep(100);
+            }
+            return JsonRpcResponse.success(request.getId(), "ok");
+        });
+
+        // Group g1 contains kitchen, so request 2 must wait for request 1
+        List<JsonRpcResponse> responses = executor.executeAll(List.of(
+                request(1, "Client.SetVolume", "kitchen"),
+                request(2, "Group.SetMute", "g1")));
+
+        assertEquals(List.of(1, 2), started);
+        assertEquals(1, responses.get(0).getId());
+        assertEquals(2, responses.get(1).getId());
+    }
+
+    @Test
+    void testStatelessCall_DoesNotQueueBehindSlowRequest() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        when(methodHandler.handleRequest(any())).thenAnswer(invocation -> {
+            JsonRpcRequest request = invocation.getArgument(0);
+            if ("Group.SetClients".equals(request.getMethod())) {
+                release.await(5, TimeUnit.SECONDS);
+            }
+            return JsonRpcResponse.success(request.getId(), "ok");
+        });
+
+        OrderedRequestExecutor.Sequence pipeline = executor.newSequence();
+        CompletableFuture<JsonRpcResponse> slow = pipeline.submit(request(1, "Group.SetClients", "g1"));
+        CompletableFuture<JsonRpcResponse> version = pipeline.submit(request(2, "Server.GetRPCVersion", null));
+        CompletableFuture<JsonRpcResponse> behindBarrier = pipeline.submit(request(3, "Client.SetVolume", "lounge"));
+
+        assertEquals(2, version.get(5, TimeUnit.SECONDS).getId());
+        assertFalse(slow.isDone());
+        assertFalse(behindBarrier.isDone());
+
+        release.countDown();
+        assertEquals(3, behindBarrier.get(5, TimeUnit.SECONDS).getId());
+    }
+
+    @Test
+    void testGroupRequestBehindPendingSetClients_IsBarrier() throws Exception {
+        CountDownLatch releaseSetClients = new CountDownLatch(1);
+        CountDownLatch groupStarted = new CountDownLatch(1);
+        CountDownLatch releaseGroup = new CountDownLatch(1);
+        when(methodHandler.handleRequest(any())).thenAnswer(invocation -> {
+            JsonRpcRequest request = invocation.getArgument(0);
+            if ("Group.SetClients".equals(request.getMethod())) {
+                releaseSetClients.await(5, TimeUnit.SECONDS);
+            } else if ("Group.SetMute".equals(request.getMethod())) {
+                groupStarted.countDown();
+                releaseGroup.await(5, TimeUnit.SECONDS);
+            }
+            return JsonRpcResponse.success(request.getId(), "ok");
+        });
+
+        // SetClients moves lounge into g1, whose members were only kitchen at submission
+        OrderedRequestExecutor.Sequence pipeline = executor.newSequence();
+        pipeline.submit(request(1, "Group.SetClients", "g1"));
+        CompletableFuture<JsonRpcResponse> group = pipeline.submit(request(2, "Group.SetMute", "g1"));
+        CompletableFuture<JsonRpcResponse> lounge = pipeline.submit(request(3, "Client.SetVolume", "lounge"));
+
+        releaseSetClients.countDown();
+        assertTrue(groupStarted.await(5, TimeUnit.SECONDS));
+        Thread.sleep(100);
+        assertFalse(lounge.isDone());
+
+        releaseGroup.countDown();
+        assertEquals(2, group.get(5, TimeUnit.SECONDS).getId());
+        assertEquals(3, lounge.get(5, TimeUnit.SECONDS).getId());
+    }
+
+    private JsonRpcRequest request(int id, String method, String target) {
+        ObjectNode params = objectMapper.createObjectNode();
+        if (target != null) {
+            params.put("id", target);
+        }
+        JsonRpcRequest request = new JsonRpcRequest();
+        request.setJsonrpc("2.0");
+        request.setId(id);
+        request.setMethod(method);
+        request.setParams(params);
+        return request;
+    }
+}
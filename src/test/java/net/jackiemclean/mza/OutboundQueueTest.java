@@ -0,0 +1,99 @@
+package net.jackiemclean.mza;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import net.jackiemclean.mza.jsonrpc.EncodedMessage;
+import net.jackiemclean.mza.jsonrpc.OutboundQueue;
+import net.jackiemclean.mza.jsonrpc.OutboundQueue.OverflowPolicy;
+import org.junit.jupiter.api.Test;
+
+class OutboundQueueTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    // The queues below are never started, so nothing is drained and the
+    // overflow behaviour can be observed deterministically.
+
+    @Test
+    void testCoalesce_ReplacesQueuedValueForSameKey() throws Exception {
+        OutboundQueue queue = new OutboundQueue("s1", "tcp", 2, OverflowPolicy.COALESCE, batch -> {
+        }, () -> fail("should not disconnect"));
+
+        assertTrue(queue.offerNotification(message("a", 1, "vol:kitchen")));
+        assertTrue(queue.offerNotification(message("b", 1, "vol:lounge")));
+        assertTrue(queue.offerNotification(message("a", 2, "vol:kitchen")));
+
+        OutboundQueue.Stats stats = queue.stats();
+        assertEquals(2, stats.depth());
+        assertEquals(1, stats.coalesced());
+        assertEquals(0, stats.dropped());
+    }
+
+    @Test
+    void testDropOldest_EvictsNotificationButKeepsResponses() throws Exception {
+        OutboundQueue queue = new OutboundQueue("s1", "tcp", 2, OverflowPolicy.DROP_OLDEST, batch -> {
+        }, () -> fail("should not disconnect"));
+
+        assertTrue(queue.offerResponse(message("r", 1, null)));
+        assertTrue(queue.offerNotification(message("a", 1, "vol:kitchen")));
+        assertTrue(queue.offerNotification(message("a", 2, "vol:kitchen")));
+
+        OutboundQueue.Stats stats = queue.stats();
+        assertEquals(2, stats.depth());
+        assertEquals(1, stats.dropped());
+        assertEquals(2, stats.highWater());
+    }
+
+    @Test
+    void testDisconnect_ClosesOnOverflow() throws Exception {
+        AtomicInteger disconnects = new AtomicInteger();
+        OutboundQueue queue = new OutboundQueue("s1", "tcp", 1, OverflowPolicy.DISCONNECT, batch -> {
+        }, disconnects::incrementAndGet);
+
+        assertTrue(queue.offerNotification(message("a", 1, "vol:kitchen")));
+        assertFalse(queue.offerNotification(message("b", 1, "vol:lounge")));
+        assertFalse(queue.offerResponse(message("r", 1, null)));
+
+        assertEquals(1, disconnects.get());
+        assertEquals(0, queue.depth());
+    }
+
+    @Test
+    void testDrain_WritesInOrderAndDisconnectsOnWriteFailure() throws Exception {
+        List<EncodedMessage> written = new CopyOnWriteArrayList<>();
+        CountDownLatch disconnected = new CountDownLatch(1);
+        EncodedMessage poison = message("boom", 0, null);
+
+        OutboundQueue queue = new OutboundQueue("s1", "websocket", 8, OverflowPolicy.COALESCE, batch -> {
+            for (EncodedMessage m : batch) {
+                if (m == poison) {
+                    throw new IOException("broken pipe");
+                }
+                written.add(m);
+            }
+        }, disconnected::countDown);
+
+        EncodedMessage first = message("a", 1, null);
+        EncodedMessage second = message("b", 2, null);
+        queue.offerResponse(first);
+        queue.offerNotification(second);
+        queue.start();
+        queue.offerNotification(poison);
+
+        assertTrue(disconnected.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of(first, second), written);
+        assertFalse(queue.offerNotification(message("c", 3, null)));
+    }
+
+    private EncodedMessage message(String method, int value, String key) throws IOException {
+        return EncodedMessage.encode(objectMapper, Map.of("method", method, "value", value), key);
+    }
+}
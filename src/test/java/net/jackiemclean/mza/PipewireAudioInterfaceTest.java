@@ -9,9 +9,16 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
 
 class PipewireAudioInterfaceTest {
 
@@ -20,18 +27,18 @@ class PipewireAudioInterfaceTest {
     private Zone zone;
     private Source source;
     private ZoneState zoneState;
+    private final AtomicReference<GraphState> graph = new AtomicReference<>();
 
     @BeforeEach
     void setUp() throws Exception {
         commandExecutor = mock(CommandExecutor.class);
 
-        GraphState graph;
         try (InputStream is = getClass().getResourceAsStream("/pw-dump-test.json")) {
             String dump = new String(is.readAllBytes(), StandardCharsets.UTF_8);
             JsonNode array = new ObjectMapper().readTree(dump);
-            graph = PipewireGraphParser.parse(array);
+            graph.set(PipewireGraphParser.parse(array));
         }
-        PipewireGraphSource graphSource = () -> graph;
+        PipewireGraphSource graphSource = graph::get;
 
         audioInterface = new PipewireAudioInterface(
                 "/run/user/1000",
@@ -90,6 +97,107 @@ class PipewireAudioInterfaceTest {
         verify(commandExecutor, never()).executeAndGetOutput(contains("pw-dump"), anyMap());
     }
 
+    @Test
+    void switchRouteMutesRelinksThenUnmutesOnceLinksAreConfirmed() {
+        Source mpd = new Source();
+        mpd.setName("mpd");
+        // The monitor reports the new links once the second link command has run
+        doAnswer(invocation -> {
+            graph.set(withZoneInputsFrom(graph.get(), "input.zone6_laundry_room", "upnp2"));
+            return null;
+        }).when(commandExecutor).execute(contains("pw-link 'upnp2:monitor_FR'"), anyMap());
+
+        long start = System.nanoTime();
+        audioInterface.switchRoute(zone, mpd, source, zoneState);
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        InOrder inOrder = inOrder(commandExecutor);
+        inOrder.verify(commandExecutor).execute(contains("set-param 66 Props '{ mute = true"), anyMap());
+        inOrder.verify(commandExecutor).execute(contains("pw-link -d"), anyMap());
+        inOrder.verify(commandExecutor).execute(contains("pw-link 'upnp2:monitor_FR'"), anyMap());
+        inOrder.verify(commandExecutor).execute(contains("set-param 66 Props '{ mute = false, volume = 0.5000"), anyMap());
+        verify(commandExecutor, times(2)).execute(contains("set-param"), anyMap());
+        assertTrue(elapsedMs < 400, "switch waited for the link confirmation timeout: " + elapsedMs + "ms");
+    }
+
+    @Test
+    void switchRouteToMutedStateSkipsUnmute() {
+        Source mpd = new Source();
+        mpd.setName("mpd");
+        zoneState.setMuted(true);
+
+        audioInterface.switchRoute(zone, mpd, source, zoneState);
+
+        verify(commandExecutor, times(1)).execute(contains("set-param"), anyMap());
+        verify(commandExecutor).execute(contains("pw-link 'upnp2:monitor_FL'"), anyMap());
+    }
+
+    @Test
+    void warmStartAdoptsZoneThatAlreadyMatches() {
+        graph.set(withProps(withZoneInputsFrom(graph.get(), "input.zone6_laundry_room", "upnp2"), 66, false, 0.5f));
+
+        AudioInterface.WarmStart result = audioInterface.warmStart(
+                List.of(new ZoneSync(zone, source, zoneState)), List.of(source));
+
+        assertEquals(new AudioInterface.WarmStart(1, 0, 0), result);
+        verifyNoInteractions(commandExecutor);
+    }
+
+    @Test
+    void warmStartOnlyFixesProps() {
+        graph.set(withProps(withZoneInputsFrom(graph.get(), "input.zone6_laundry_room", "upnp2"), 66, true, 0.5f));
+
+        AudioInterface.WarmStart result = audioInterface.warmStart(
+                List.of(new ZoneSync(zone, source, zoneState)), List.of(source));
+
+        assertEquals(new AudioInterface.WarmStart(0, 1, 1), result);
+        verify(commandExecutor).execute(contains("set-param 66 Props '{ mute = false, volume = 0.5000"), anyMap());
+        verifyNoMoreInteractions(commandExecutor);
+    }
+
+    @Test
+    void warmStartRelinksZoneWithWrongInputs() {
+        graph.set(withProps(graph.get(), 66, false, 0.5f));
+
+        AudioInterface.WarmStart result = audioInterface.warmStart(
+                List.of(new ZoneSync(zone, source, zoneState)), List.of(source));
+
+        // Two stale links from mpd removed, two links from upnp2 created, props left alone
+        assertEquals(new AudioInterface.WarmStart(0, 1, 4), result);
+        verify(commandExecutor, never()).execute(contains("set-param"), anyMap());
+        verify(commandExecutor).execute(contains("pw-link -d 237"), anyMap());
+        verify(commandExecutor).execute(contains("pw-link -d 211"), anyMap());
+        verify(commandExecutor).execute(contains("pw-link 'upnp2:monitor_FL'"), anyMap());
+        verify(commandExecutor).execute(contains("pw-link 'upnp2:monitor_FR'"), anyMap());
+    }
+
+    /** Replaces every input link of the zone node with one from the same-named port suffix of the source. */
+    private static GraphState withZoneInputsFrom(GraphState g, String zoneNodeName, String sourceNodeName) {
+        int zoneNodeId = g.nodeIds().get(zoneNodeName);
+        int sourceNodeId = g.nodeIds().get(sourceNodeName);
+        List<LinkInfo> links = new ArrayList<>();
+        for (LinkInfo link : g.links()) {
+            if (link.inNodeId() != zoneNodeId) {
+                links.add(link);
+            }
+        }
+        int nextId = 10_000;
+        for (String channel : List.of("FL", "FR")) {
+            links.add(new LinkInfo(nextId++,
+                    zoneNodeId, g.inPorts().get(zoneNodeId + ":playback_" + channel),
+                    sourceNodeId, g.outPorts().get(sourceNodeId + ":monitor_" + channel)));
+        }
+        return new GraphState(g.nodeIds(), g.nodeNames(), g.inPorts(), g.outPorts(), g.portNames(), links,
+                g.nodeProps());
+    }
+
+    private static GraphState withProps(GraphState g, int nodeId, boolean muted, float volume) {
+        Map<Integer, GraphState.NodeProps> props = new HashMap<>(g.nodeProps());
+        props.put(nodeId, new GraphState.NodeProps(muted, volume));
+        return new GraphState(g.nodeIds(), g.nodeNames(), g.inPorts(), g.outPorts(), g.portNames(), g.links(),
+                props);
+    }
+
     @Nested
     class ParseNodePortTest {
 
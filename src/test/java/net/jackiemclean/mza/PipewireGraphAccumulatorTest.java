@@ -56,6 +56,23 @@ class PipewireGraphAccumulatorTest {
 		assertNull(afterRemove.nodeIds().get("new_node"));
 	}
 
+	@Test
+	void readsNodeMuteAndVolumeFromProps() throws Exception {
+		PipewireGraphAccumulator acc = new PipewireGraphAccumulator();
+		acc.apply(loadDump());
+
+		JsonNode propsChunk = MAPPER.readTree("""
+				[ { "id": 66, "type": "PipeWire:Interface:Node", "info": {
+				    "props": { "node.name": "output.zone6_laundry_room" },
+				    "params": { "Props": [ { "volume": 0.42, "mute": true, "channelVolumes": [ 0.42, 0.42 ] }, { "params": [] } ] } } } ]
+				""");
+		GraphState state = acc.apply(propsChunk);
+
+		assertEquals(new GraphState.NodeProps(true, 0.42f), state.nodeProps().get(66));
+		// Nodes without params report nothing
+		assertNull(state.nodeProps().get(67));
+	}
+
 	@Test
 	void removesLinkByRemovalChunk() throws Exception {
 		PipewireGraphAccumulator acc = new PipewireGraphAccumulator();
@@ -0,0 +1,56 @@
+package net.jackiemclean.mza;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.introspect.Annotated;
+import com.fasterxml.jackson.databind.introspect.JacksonAnnotationIntrospector;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import net.jackiemclean.mza.snapcast.SnapClient;
+import net.jackiemclean.mza.snapcast.SnapGroup;
+import net.jackiemclean.mza.snapcast.SnapVolume;
+import org.junit.jupiter.api.Test;
+
+class SnapSerializersTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    /** Ignores @JsonSerialize, i.e. serializes the DTOs reflectively as before. */
+    private final ObjectMapper reflective = new ObjectMapper().setAnnotationIntrospector(
+            new JacksonAnnotationIntrospector() {
+                @Override
+                public Object findSerializer(Annotated a) {
+                    return null;
+                }
+            });
+
+    @Test
+    void testHandWrittenSerializers_MatchReflectiveOutput() throws Exception {
+        Zone kitchen = new Zone();
+        kitchen.setName("kitchen");
+        kitchen.setDescription("Kitchen speakers");
+        ZoneState state = new ZoneState();
+        state.setName("kitchen");
+        state.setVolume(35);
+        state.setMuted(true);
+
+        Zone lounge = new Zone();
+        lounge.setName("lounge");
+
+        GroupState groupState = new GroupState();
+        groupState.setId("g1");
+        groupState.setName("downstairs");
+        groupState.setZones(Set.of("kitchen", "lounge"));
+
+        List<SnapClient> clients = Arrays.asList(SnapClient.fromZone(kitchen, state), SnapClient.fromZone(lounge, null));
+        SnapGroup withStream = SnapGroup.fromGroupState(groupState, clients, "mpd");
+        SnapGroup withoutStream = SnapGroup.fromGroupState(groupState, clients, null);
+
+        for (Object value : List.of(new SnapVolume(false, 80), clients.get(0), clients.get(1), withStream,
+                withoutStream)) {
+            assertEquals(reflective.writeValueAsString(value), objectMapper.writeValueAsString(value));
+        }
+    }
+}
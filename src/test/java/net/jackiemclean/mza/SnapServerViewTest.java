@@ -0,0 +1,184 @@
+package net.jackiemclean.mza;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import net.jackiemclean.mza.jsonrpc.SnapServerView;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListenerFactory;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+class SnapServerViewTest {
+
+    private ZoneRepository zoneRepository;
+    private ZoneStateRepository zoneStateRepository;
+    private SourceRepository sourceRepository;
+    private GroupStateRepository groupStateRepository;
+    private SnapServerView view;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @BeforeEach
+    void setUp() {
+        zoneRepository = mock(ZoneRepository.class);
+        zoneStateRepository = mock(ZoneStateRepository.class);
+        sourceRepository = mock(SourceRepository.class);
+        groupStateRepository = mock(GroupStateRepository.class);
+
+        Zone kitchen = zone("kitchen");
+        Zone lounge = zone("lounge");
+        when(zoneRepository.findAll()).thenReturn(List.of(kitchen, lounge));
+        when(zoneRepository.findByName("kitchen")).thenReturn(Optional.of(kitchen));
+        when(zoneRepository.findByName("lounge")).thenReturn(Optional.of(lounge));
+
+        Source mpd = new Source();
+        mpd.setName("mpd");
+        when(sourceRepository.findAll()).thenReturn(List.of(mpd));
+
+        when(zoneStateRepository.findAll()).thenReturn(List.of(state("kitchen", 40, false)));
+
+        GroupState group = new GroupState();
+        group.setId("g1");
+        group.setName("kitchen");
+        group.setZones(new HashSet<>(Set.of("kitchen")));
+        group.setCreatedAt(Instant.now());
+        group.setUpdatedAt(Instant.now());
+        when(groupStateRepository.findAll()).thenReturn(List.of(group));
+
+        view = new SnapServerView();
+        ReflectionTestUtils.setField(view, "zoneRepository", zoneRepository);
+        ReflectionTestUtils.setField(view, "zoneStateRepository", zoneStateRepository);
+        ReflectionTestUtils.setField(view, "sourceRepository", sourceRepository);
+        ReflectionTestUtils.setField(view, "groupStateRepository", groupStateRepository);
+    }
+
+    @Test
+    void testSnapshot_ReusedUntilChanged() throws Exception {
+        SnapServerView.Snapshot first = view.snapshot();
+        SnapServerView.Snapshot second = view.snapshot();
+
+        assertSame(first, second);
+        verify(zoneStateRepository, times(1)).findAll();
+        verify(groupStateRepository, times(1)).findAll();
+
+        JsonNode server = objectMapper.readTree(first.json().getValue());
+        // One real group plus an implicit group for the ungrouped lounge zone
+        assertEquals(2, server.get("groups").size());
+        assertEquals(1, server.get("streams").size());
+    }
+
+    @Test
+    void testZoneStateChange_UpdatesClientWithoutReload() throws Exception {
+        long before = view.snapshot().version();
+
+        view.onZoneStateChanged(new ZoneStateChangedEvent("kitchen", state("kitchen", 75, true)));
+        SnapServerView.Snapshot after = view.snapshot();
+
+        assertTrue(after.version() > before);
+        verify(zoneStateRepository, times(1)).findAll();
+        verify(groupStateRepository, times(1)).findAll();
+
+        JsonNode kitchen = objectMapper.readTree(after.json().getValue())
+                .get("groups").get(0).get("clients").get(0);
+        assertEquals("kitchen", kitchen.get("id").asText());
+        assertEquals(75, kitchen.get("config").get("volume").get("percent").asInt());
+        assertTrue(kitchen.get("config").get("volume").get("muted").asBoolean());
+    }
+
+    @Test
+    void testZoneStateChange_RolledBack_SnapshotUnchanged() throws Exception {
+        try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext()) {
+            context.registerBean(TransactionalEventListenerFactory.class);
+            context.registerBean(ZoneRepository.class, () -> zoneRepository);
+            context.registerBean(ZoneStateRepository.class, () -> zoneStateRepository);
+            context.registerBean(SourceRepository.class, () -> sourceRepository);
+            context.registerBean(GroupStateRepository.class, () -> groupStateRepository);
+            context.registerBean(SnapServerView.class, () -> view);
+            context.refresh();
+            TransactionTemplate transactionTemplate = new TransactionTemplate(new NoOpTransactionManager());
+            long before = view.snapshot().version();
+
+            transactionTemplate.executeWithoutResult(status -> {
+                context.publishEvent(new ZoneStateChangedEvent("kitchen", state("kitchen", 75, true)));
+                status.setRollbackOnly();
+            });
+
+            SnapServerView.Snapshot rolledBack = view.snapshot();
+            assertEquals(before, rolledBack.version());
+            assertEquals(40, kitchenVolume(rolledBack));
+
+            transactionTemplate.executeWithoutResult(status ->
+                    context.publishEvent(new ZoneStateChangedEvent("kitchen", state("kitchen", 75, true))));
+
+            SnapServerView.Snapshot committed = view.snapshot();
+            assertTrue(committed.version() > before);
+            assertEquals(75, kitchenVolume(committed));
+        }
+    }
+
+    @Test
+    void testGroupTopologyChange_ReloadsGroups() {
+        view.snapshot();
+
+        view.onGroupTopologyChanged(new GroupTopologyChangedEvent("kitchen"));
+        view.snapshot();
+
+        verify(groupStateRepository, times(2)).findAll();
+        verify(zoneStateRepository, times(1)).findAll();
+    }
+
+    private int kitchenVolume(SnapServerView.Snapshot snapshot) throws Exception {
+        return objectMapper.readTree(snapshot.json().getValue())
+                .get("groups").get(0).get("clients").get(0)
+                .get("config").get("volume").get("percent").asInt();
+    }
+
+    /** Runs transaction synchronizations, so after-commit listeners see commits and rollbacks. */
+    private static class NoOpTransactionManager extends AbstractPlatformTransactionManager {
+
+        @Override
+        protected Object doGetTransaction() {
+            return new Object();
+        }
+
+        @Override
+        protected void doBegin(Object transaction, TransactionDefinition definition) {
+        }
+
+        @Override
+        protected void doCommit(DefaultTransactionStatus status) {
+        }
+
+        @Override
+        protected void doRollback(DefaultTransactionStatus status) {
+        }
+    }
+
+    private static Zone zone(String name) {
+        Zone zone = new Zone();
+        zone.setName(name);
+        return zone;
+    }
+
+    private static ZoneState state(String name, int volume, boolean muted) {
+        ZoneState state = new ZoneState();
+        state.setName(name);
+        state.setVolume(volume);
+        state.setMuted(muted);
+        state.setSourceName("mpd");
+        return state;
+    }
+}
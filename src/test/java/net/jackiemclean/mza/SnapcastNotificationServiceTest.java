@@ -0,0 +1,185 @@
+package net.jackiemclean.mza;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import net.jackiemclean.mza.jsonrpc.EncodedMessage;
+import net.jackiemclean.mza.jsonrpc.NotificationLog;
+import net.jackiemclean.mza.jsonrpc.OutboundQueueRegistry;
+import net.jackiemclean.mza.jsonrpc.SnapServerView;
+import net.jackiemclean.mza.jsonrpc.SnapcastNotificationService;
+import net.jackiemclean.mza.jsonrpc.SnapcastTcpServer;
+import net.jackiemclean.mza.snapcast.SnapClient;
+import net.jackiemclean.mza.snapcast.SnapGroup;
+import net.jackiemclean.mza.snapcast.SnapServer;
+import net.jackiemclean.mza.snapcast.SnapVolume;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class SnapcastNotificationServiceTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private SnapcastTcpServer tcpServer;
+    private SnapcastNotificationService service;
+    private NotificationLog notificationLog;
+
+    @BeforeEach
+    void setUp() {
+        tcpServer = mock(SnapcastTcpServer.class);
+        notificationLog = new NotificationLog(4);
+        service = new SnapcastNotificationService();
+        ReflectionTestUtils.setField(service, "tcpServer", tcpServer);
+        ReflectionTestUtils.setField(service, "queueRegistry", mock(OutboundQueueRegistry.class));
+        ReflectionTestUtils.setField(service, "notificationLog", notificationLog);
+        // Long window: the tests flush explicitly
+        ReflectionTestUtils.setField(service, "coalesceWindowMs", 60_000L);
+        ReflectionTestUtils.setField(service, "maxDeltaNotifications", 8);
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    void testVolumeBurst_CoalescedToLastValuePerClient() throws Exception {
+        for (int percent = 10; percent <= 50; percent += 10) {
+            service.broadcastClientVolumeChanged("kitchen", new SnapVolume(false, percent));
+            service.broadcastClientVolumeChanged("lounge", new SnapVolume(false, percent + 1));
+        }
+        flush();
+
+        List<JsonNode> sent = sentNotifications();
+        assertEquals(2, sent.size());
+        assertEquals("kitchen", sent.get(0).get("params").get("id").asText());
+        assertEquals(50, sent.get(0).get("params").get("volume").get("percent").asInt());
+        assertEquals("lounge", sent.get(1).get("params").get("id").asText());
+        assertEquals(51, sent.get(1).get("params").get("volume").get("percent").asInt());
+    }
+
+    @Test
+    void testServerUpdate_SentInFullFirstThenAsDelta() throws Exception {
+        service.broadcastServerUpdate(snapshot(1, 40, false));
+        flush();
+
+        service.broadcastClientVolumeChanged("kitchen", new SnapVolume(false, 70));
+        service.broadcastServerUpdate(snapshot(2, 70, false));
+        flush();
+
+        List<JsonNode> sent = sentNotifications();
+        assertEquals(2, sent.size());
+        assertEquals("Server.OnUpdate", sent.get(0).get("method").asText());
+        assertEquals("Client.OnVolumeChanged", sent.get(1).get("method").asText());
+        assertEquals(70, sent.get(1).get("params").get("volume").get("percent").asInt());
+    }
+
+    @Test
+    void testServerUpdate_LaterVolumeChangeSentLast() throws Exception {
+        service.broadcastServerUpdate(snapshot(1, 40, false));
+        flush();
+
+        service.broadcastServerUpdate(snapshot(2, 40, true));
+        service.broadcastClientVolumeChanged("kitchen", new SnapVolume(false, 50));
+        flush();
+
+        List<JsonNode> sent = sentNotifications();
+        JsonNode last = sent.get(sent.size() - 1);
+        assertEquals("Client.OnVolumeChanged", last.get("method").asText());
+        assertEquals(50, last.get("params").get("volume").get("percent").asInt());
+        assertFalse(last.get("params").get("volume").get("muted").asBoolean());
+    }
+
+    @Test
+    void testServerUpdate_FullWhenTopologyChanges() throws Exception {
+        service.broadcastServerUpdate(snapshot(1, 40, false));
+        flush();
+
+        SnapServerView.Snapshot regrouped = snapshot(2, 40, false);
+        regrouped.server().getGroups().get(0).setId("g2");
+        service.broadcastServerUpdate(regrouped);
+        flush();
+
+        List<JsonNode> sent = sentNotifications();
+        assertEquals(2, sent.size());
+        assertEquals("Server.OnUpdate", sent.get(1).get("method").asText());
+    }
+
+    @Test
+    void testNotifications_SequencedAndReplayable() throws Exception {
+        long start = notificationLog.lastSequence();
+        service.broadcastClientLatencyChanged("kitchen", 10);
+        flush();
+        service.broadcastClientLatencyChanged("kitchen", 20);
+        service.broadcastClientNameChanged("kitchen", "Kitchen");
+        flush();
+
+        List<JsonNode> sent = sentNotifications();
+        assertEquals(3, sent.size());
+        for (int i = 0; i < sent.size(); i++) {
+            assertEquals(start + 1 + i, sent.get(i).get("seq").asLong());
+        }
+
+        assertEquals(2, notificationLog.since(start + 1).orElseThrow().size());
+        assertTrue(notificationLog.since(start + 3).orElseThrow().isEmpty());
+
+        // Ring of four: two more notifications push the first one out
+        service.broadcastClientLatencyChanged("lounge", 1);
+        service.broadcastClientNameChanged("lounge", "Lounge");
+        flush();
+        assertTrue(notificationLog.since(start).isEmpty());
+        assertEquals(4, notificationLog.since(start + 1).orElseThrow().size());
+        // A sequence this server never issued (e.g. from before a restart)
+        assertTrue(notificationLog.since(start + 100).isEmpty());
+    }
+
+    private void flush() {
+        ReflectionTestUtils.invokeMethod(service, "flush");
+    }
+
+    private List<JsonNode> sentNotifications() throws Exception {
+        ArgumentCaptor<EncodedMessage> captor = ArgumentCaptor.forClass(EncodedMessage.class);
+        verify(tcpServer, atLeast(0)).broadcast(captor.capture());
+        List<JsonNode> result = new ArrayList<>();
+        for (EncodedMessage message : captor.getAllValues()) {
+            ByteBuffer buffer = message.asByteBuffer();
+            byte[] bytes = new byte[buffer.remaining()];
+            buffer.get(bytes);
+            result.add(objectMapper.readTree(bytes));
+        }
+        return result;
+    }
+
+    private SnapServerView.Snapshot snapshot(long version, int volume, boolean muted) throws Exception {
+        Zone zone = new Zone();
+        zone.setName("kitchen");
+        ZoneState state = new ZoneState();
+        state.setName("kitchen");
+        state.setVolume(volume);
+        state.setMuted(muted);
+        state.setSourceName("mpd");
+
+        GroupState groupState = new GroupState();
+        groupState.setId("g1");
+        groupState.setName("kitchen");
+        groupState.setZones(Set.of("kitchen"));
+        groupState.setCreatedAt(Instant.now());
+        groupState.setUpdatedAt(Instant.now());
+
+        SnapServer server = new SnapServer();
+        server.setGroups(new ArrayList<>(List.of(
+                SnapGroup.fromGroupState(groupState, List.of(SnapClient.fromZone(zone, state)), "mpd"))));
+        return new SnapServerView.Snapshot(version, server,
+                new SerializedString(objectMapper.writeValueAsString(server)));
+    }
+}
@@ -0,0 +1,155 @@
+package net.jackiemclean.mza;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import net.jackiemclean.mza.jsonrpc.EncodedMessage;
+import net.jackiemclean.mza.jsonrpc.JsonRpcCodec;
+import net.jackiemclean.mza.jsonrpc.NdjsonFrameReader;
+import net.jackiemclean.mza.jsonrpc.OrderedRequestExecutor;
+import net.jackiemclean.mza.jsonrpc.OutboundQueue;
+import net.jackiemclean.mza.jsonrpc.OutboundQueueRegistry;
+import net.jackiemclean.mza.jsonrpc.SnapcastMethodHandler;
+import net.jackiemclean.mza.jsonrpc.SnapcastNotificationService;
+import net.jackiemclean.mza.jsonrpc.SnapcastTcpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Connects 1,000 TCP clients to the Snapcast server and measures how long a
+ * broadcast takes to reach all of them, plus the heap cost per connection.
+ *
+ * Excluded from the default build; run with {@code mvn test -Pload-test}.
+ * Needs a file descriptor limit of at least ~2,100 (client and server ends of
+ * each connection share this JVM).
+ */
+@Tag("load")
+class SnapcastTcpLoadTest {
+
+    private static final int CLIENTS = 1000;
+    private static final int ROUNDS = 50;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final List<SocketChannel> clients = new ArrayList<>();
+    private ExecutorService clientExecutor;
+    private SnapcastTcpServer server;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        OutboundQueueRegistry queueRegistry = new OutboundQueueRegistry();
+        ReflectionTestUtils.setField(queueRegistry, "capacity", 256);
+        ReflectionTestUtils.setField(queueRegistry, "overflowPolicy", OutboundQueue.OverflowPolicy.COALESCE);
+
+        OrderedRequestExecutor requestExecutor = new OrderedRequestExecutor();
+        ReflectionTestUtils.setField(requestExecutor, "methodHandler", mock(SnapcastMethodHandler.class));
+
+        server = new SnapcastTcpServer();
+        ReflectionTestUtils.setField(server, "tcpPort", 0);
+        ReflectionTestUtils.setField(server, "enabled", true);
+        ReflectionTestUtils.setField(server, "maxInFlight", 16);
+        ReflectionTestUtils.setField(server, "requestExecutor", requestExecutor);
+        ReflectionTestUtils.setField(server, "codec", new JsonRpcCodec());
+        ReflectionTestUtils.setField(server, "notificationService", mock(SnapcastNotificationService.class));
+        ReflectionTestUtils.setField(server, "queueRegistry", queueRegistry);
+        server.start();
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (server.getLocalPort() < 0) {
+            assertTrue(System.nanoTime() < deadline, "server did not start");
+            Thread.sleep(10);
+        }
+        clientExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        for (SocketChannel client : clients) {
+            client.close();
+        }
+        clientExecutor.shutdownNow();
+        server.stop();
+    }
+
+    @Test
+    void testBroadcastToThousandClients() throws Exception {
+        long heapBefore = usedHeap();
+
+        long[][] latencies = new long[CLIENTS][ROUNDS];
+        CountDownLatch received = new CountDownLatch(CLIENTS * ROUNDS);
+        InetSocketAddress address = new InetSocketAddress("localhost", server.getLocalPort());
+
+        for (int c = 0; c < CLIENTS; c++) {
+            SocketChannel client = SocketChannel.open(address);
+            clients.add(client);
+            long[] clientLatencies = latencies[c];
+            clientExecutor.submit(() -> {
+                NdjsonFrameReader reader = new NdjsonFrameReader(client, 4096, 64 * 1024);
+                ByteBuffer frame;
+                while ((frame = reader.next()) != null) {
+                    long now = System.nanoTime();
+                    JsonNode params = objectMapper.readTree(frame.array(),
+                            frame.arrayOffset() + frame.position(), frame.remaining()).get("params");
+                    clientLatencies[params.get("round").asInt()] = now - params.get("sentAt").asLong();
+                    received.countDown();
+                }
+                return null;
+            });
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (server.getConnectedClients().size() < CLIENTS) {
+            assertTrue(System.nanoTime() < deadline, "not all clients were accepted");
+            Thread.sleep(10);
+        }
+        long heapPerConnection = (usedHeap() - heapBefore) / CLIENTS;
+
+        for (int round = 0; round < ROUNDS; round++) {
+            Map<String, Object> params = Map.of(
+                    "id", "kitchen",
+                    "volume", Map.of("percent", round, "muted", false),
+                    "round", round,
+                    "sentAt", System.nanoTime());
+            server.broadcast(EncodedMessage.encode(objectMapper,
+                    Map.of("jsonrpc", "2.0", "method", "Client.OnVolumeChanged", "params", params)));
+            Thread.sleep(20);
+        }
+
+        assertTrue(received.await(60, TimeUnit.SECONDS),
+                "missing " + received.getCount() + " of " + (CLIENTS * ROUNDS) + " notifications");
+
+        long[] all = Arrays.stream(latencies).flatMapToLong(Arrays::stream).sorted().toArray();
+        long p50 = all[all.length / 2];
+        long p99 = all[(int) (all.length * 0.99)];
+        long max = all[all.length - 1];
+        System.out.printf("TCP broadcast to %d clients x %d rounds: p50=%.2fms p99=%.2fms max=%.2fms, "
+                + "~%d bytes heap per connection (client and server side)%n",
+                CLIENTS, ROUNDS, p50 / 1e6, p99 / 1e6, max / 1e6, heapPerConnection);
+
+        assertTrue(p99 < TimeUnit.SECONDS.toNanos(1), "p99 broadcast latency too high: " + p99 / 1e6 + "ms");
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,115 @@
+package net.jackiemclean.mza;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import net.jackiemclean.mza.jsonrpc.JsonRpcCodec;
+import net.jackiemclean.mza.jsonrpc.JsonRpcRequest;
+import net.jackiemclean.mza.jsonrpc.JsonRpcResponse;
+import net.jackiemclean.mza.jsonrpc.NdjsonFrameReader;
+import net.jackiemclean.mza.jsonrpc.OrderedRequestExecutor;
+import net.jackiemclean.mza.jsonrpc.OutboundQueue;
+import net.jackiemclean.mza.jsonrpc.OutboundQueueRegistry;
+import net.jackiemclean.mza.jsonrpc.SnapcastMethodHandler;
+import net.jackiemclean.mza.jsonrpc.SnapcastNotificationService;
+import net.jackiemclean.mza.jsonrpc.SnapcastTcpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class SnapcastTcpServerTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private SnapcastMethodHandler methodHandler;
+    private OrderedRequestExecutor requestExecutor;
+    private SnapcastTcpServer server;
+    private SocketChannel client;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        OutboundQueueRegistry queueRegistry = new OutboundQueueRegistry();
+        ReflectionTestUtils.setField(queueRegistry, "capacity", 256);
+        ReflectionTestUtils.setField(queueRegistry, "overflowPolicy", OutboundQueue.OverflowPolicy.COALESCE);
+
+        methodHandler = mock(SnapcastMethodHandler.class);
+        requestExecutor = new OrderedRequestExecutor();
+        ReflectionTestUtils.setField(requestExecutor, "methodHandler", methodHandler);
+
+        server = new SnapcastTcpServer();
+        ReflectionTestUtils.setField(server, "tcpPort", 0);
+        ReflectionTestUtils.setField(server, "enabled", true);
+        ReflectionTestUtils.setField(server, "maxInFlight", 16);
+        ReflectionTestUtils.setField(server, "requestExecutor", requestExecutor);
+        ReflectionTestUtils.setField(server, "codec", new JsonRpcCodec());
+        ReflectionTestUtils.setField(server, "notificationService", mock(SnapcastNotificationService.class));
+        ReflectionTestUtils.setField(server, "queueRegistry", queueRegistry);
+        server.start();
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (server.getLocalPort() < 0) {
+            assertTrue(System.nanoTime() < deadline, "server did not start");
+            Thread.sleep(10);
+        }
+        client = SocketChannel.open(new InetSocketAddress("localhost", server.getLocalPort()));
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        client.close();
+        server.stop();
+        requestExecutor.shutdown();
+    }
+
+    @Test
+    void testBatch_ResponsesInRequestOrderWithoutBlockingReader() throws Exception {
+        // The first entry only finishes after the second one and a later request have run
+        CountDownLatch othersDone = new CountDownLatch(2);
+        when(methodHandler.handleRequest(any())).thenAnswer(invocation -> {
+            JsonRpcRequest request = invocation.getArgument(0);
+            if ("kitchen".equals(request.getParams().get("id").asText())) {
+                assertTrue(othersDone.await(5, TimeUnit.SECONDS));
+            } else {
+                othersDone.countDown();
+            }
+            return JsonRpcResponse.success(request.getId(), "ok");
+        });
+
+        send("[" + request(1, "kitchen") + "," + request(2, "lounge") + "]\n" + request(3, "attic") + "\n");
+
+        NdjsonFrameReader reader = new NdjsonFrameReader(client, 4096, 64 * 1024);
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            ByteBuffer frame = reader.next();
+            assertNotNull(frame);
+            ids.add(objectMapper.readTree(frame.array(), frame.arrayOffset() + frame.position(), frame.remaining())
+                    .get("id").asInt());
+        }
+
+        // The later request was read and answered while the batch was still running
+        assertTrue(ids.contains(3));
+        assertEquals(List.of(1, 2), ids.stream().filter(id -> id != 3).toList());
+    }
+
+    private void send(String lines) throws Exception {
+        ByteBuffer buffer = ByteBuffer.wrap(lines.getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            client.write(buffer);
+        }
+    }
+
+    private static String request(int id, String zone) {
+        return "{\"jsonrpc\":\"2.0\",\"id\":" + id
+                + ",\"method\":\"Client.SetVolume\",\"params\":{\"id\":\"" + zone + "\"}}";
+    }
+}
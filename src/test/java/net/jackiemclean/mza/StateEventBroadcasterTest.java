@@ -0,0 +1,148 @@
+package net.jackiemclean.mza;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class StateEventBroadcasterTest {
+
+    private StateEventBroadcaster broadcaster;
+    private GroupStateRepository groupStateRepository;
+
+    @BeforeEach
+    void setUp() {
+        groupStateRepository = mock(GroupStateRepository.class);
+        when(groupStateRepository.findAll()).thenReturn(List.of(group("downstairs", "kitchen")));
+
+        broadcaster = new StateEventBroadcaster();
+        ReflectionTestUtils.setField(broadcaster, "objectMapper", new ObjectMapper().findAndRegisterModules());
+        ReflectionTestUtils.setField(broadcaster, "groupStateRepository", groupStateRepository);
+        ReflectionTestUtils.setField(broadcaster, "capacity", 4);
+        ReflectionTestUtils.setField(broadcaster, "queueCapacity", 16);
+        ReflectionTestUtils.setField(broadcaster, "heartbeatMs", 60_000L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        broadcaster.shutdown();
+    }
+
+    @Test
+    void testZoneFilter_OnlyMatchingZones() throws Exception {
+        BlockingQueue<StateEventBroadcaster.StateEvent> received = subscribe(Set.of("lounge"), Set.of(), null);
+
+        broadcaster.onZoneStateChanged(new ZoneStateChangedEvent("kitchen", state("kitchen")));
+        broadcaster.onZoneStateChanged(new ZoneStateChangedEvent("lounge", state("lounge")));
+
+        StateEventBroadcaster.StateEvent event = received.poll(5, TimeUnit.SECONDS);
+        assertEquals("zone", event.type());
+        assertEquals("lounge", event.zone());
+        assertTrue(event.data().contains("\"name\":\"lounge\""));
+        assertNull(received.poll(100, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void testGroupFilter_IncludesMemberZones() throws Exception {
+        BlockingQueue<StateEventBroadcaster.StateEvent> received = subscribe(Set.of(), Set.of("downstairs"), null);
+
+        broadcaster.onZoneStateChanged(new ZoneStateChangedEvent("lounge", state("lounge")));
+        broadcaster.onZoneStateChanged(new ZoneStateChangedEvent("kitchen", null));
+
+        StateEventBroadcaster.StateEvent event = received.poll(5, TimeUnit.SECONDS);
+        assertEquals("zone-reset", event.type());
+        assertEquals("kitchen", event.zone());
+        assertNull(received.poll(100, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void testGroupMembershipCachedUntilTopologyChanges() throws Exception {
+        BlockingQueue<StateEventBroadcaster.StateEvent> received = subscribe(Set.of(), Set.of("downstairs"), null);
+
+        broadcaster.onZoneStateChanged(new ZoneStateChangedEvent("kitchen", state("kitchen")));
+        broadcaster.onZoneStateChanged(new ZoneStateChangedEvent("lounge", state("lounge")));
+        assertEquals("kitchen", received.poll(5, TimeUnit.SECONDS).zone());
+        verify(groupStateRepository, times(1)).findAll();
+
+        // The lounge joins downstairs
+        when(groupStateRepository.findAll()).thenReturn(List.of(group("downstairs", "kitchen", "lounge")));
+        when(groupStateRepository.findByName("downstairs"))
+                .thenReturn(Optional.of(group("downstairs", "kitchen", "lounge")));
+        broadcaster.onGroupTopologyChanged(new GroupTopologyChangedEvent("downstairs"));
+        assertEquals("group", received.poll(5, TimeUnit.SECONDS).type());
+
+        broadcaster.onZoneStateChanged(new ZoneStateChangedEvent("lounge", state("lounge")));
+        assertEquals("lounge", received.poll(5, TimeUnit.SECONDS).zone());
+        verify(groupStateRepository, never()).findByZonesContaining(anyString());
+    }
+
+    @Test
+    void testLastEventId_ReplaysMissedEvents() throws Exception {
+        BlockingQueue<StateEventBroadcaster.StateEvent> first = subscribe(Set.of(), Set.of(), null);
+        broadcaster.onZoneStateChanged(new ZoneStateChangedEvent("kitchen", state("kitchen")));
+        long lastSeen = first.poll(5, TimeUnit.SECONDS).id();
+
+        broadcaster.onZoneStateChanged(new ZoneStateChangedEvent("lounge", state("lounge")));
+        broadcaster.onZoneStateChanged(new ZoneStateChangedEvent("study", state("study")));
+
+        BlockingQueue<StateEventBroadcaster.StateEvent> resumed = subscribe(Set.of(), Set.of(), lastSeen);
+        assertEquals("lounge", resumed.poll(5, TimeUnit.SECONDS).zone());
+        assertEquals("study", resumed.poll(5, TimeUnit.SECONDS).zone());
+
+        broadcaster.onZoneStateChanged(new ZoneStateChangedEvent("hall", state("hall")));
+        assertEquals("hall", resumed.poll(5, TimeUnit.SECONDS).zone());
+    }
+
+    @Test
+    void testLastEventId_TooOldAsksForResync() throws Exception {
+        BlockingQueue<StateEventBroadcaster.StateEvent> first = subscribe(Set.of(), Set.of(), null);
+        broadcaster.onZoneStateChanged(new ZoneStateChangedEvent("kitchen", state("kitchen")));
+        long lastSeen = first.poll(5, TimeUnit.SECONDS).id();
+
+        // More events than the replay buffer holds
+        for (String zone : List.of("a", "b", "c", "d", "e")) {
+            broadcaster.onZoneStateChanged(new ZoneStateChangedEvent(zone, state(zone)));
+        }
+
+        BlockingQueue<StateEventBroadcaster.StateEvent> resumed = subscribe(Set.of(), Set.of(), lastSeen);
+        StateEventBroadcaster.StateEvent event = resumed.poll(5, TimeUnit.SECONDS);
+        assertEquals("resync", event.type());
+        assertEquals(lastSeen + 5, event.id());
+    }
+
+    private BlockingQueue<StateEventBroadcaster.StateEvent> subscribe(
+            Set<String> zones, Set<String> groups, Long lastEventId) {
+        BlockingQueue<StateEventBroadcaster.StateEvent> received = new LinkedBlockingQueue<>();
+        broadcaster.subscribe(new StateEventBroadcaster.Filter(zones, groups), lastEventId, event -> {
+            if (event != null) {
+                received.add(event);
+            }
+        }, () -> {});
+        return received;
+    }
+
+    private static GroupState group(String name, String... zones) {
+        GroupState group = new GroupState();
+        group.setName(name);
+        group.setZones(Set.of(zones));
+        return group;
+    }
+
+    private ZoneState state(String name) {
+        ZoneState state = new ZoneState();
+        state.setName(name);
+        state.setVolume(30);
+        return state;
+    }
+}
@@ -0,0 +1,82 @@
+package net.jackiemclean.mza;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class StateVersionsTest {
+
+    private StateVersions stateVersions;
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        stateVersions = new StateVersions();
+        ReflectionTestUtils.setField(stateVersions, "objectMapper", new ObjectMapper());
+    }
+
+    @Test
+    void testMatchingETag_NotModifiedWithoutLoading() {
+        ResponseEntity<byte[]> first = getZones(null);
+        assertEquals(HttpStatus.OK, first.getStatusCode());
+        String etag = first.getHeaders().getETag();
+        assertNotNull(etag);
+
+        ResponseEntity<byte[]> second = getZones(etag);
+
+        assertEquals(HttpStatus.NOT_MODIFIED, second.getStatusCode());
+        assertEquals(etag, second.getHeaders().getETag());
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void testUnchangedVersion_BodyServedFromCache() {
+        byte[] first = getZones(null).getBody();
+        byte[] second = getZones(null).getBody();
+
+        assertSame(first, second);
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void testZoneChange_NewETagAndBody() {
+        String etag = getZones(null).getHeaders().getETag();
+        long zoneVersion = stateVersions.version(StateVersions.ZONE, "kitchen");
+
+        stateVersions.onZoneStateChanged(new ZoneStateChangedEvent("kitchen", null));
+
+        ResponseEntity<byte[]> response = getZones(etag);
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertNotEquals(etag, response.getHeaders().getETag());
+        assertEquals(2, loads.get());
+        assertTrue(stateVersions.version(StateVersions.ZONE, "kitchen") > zoneVersion);
+        assertEquals(0, stateVersions.version(StateVersions.ZONE, "lounge"));
+        assertEquals(0, stateVersions.version(StateVersions.GROUP));
+    }
+
+    @Test
+    void testGroupReload_ChangesEveryGroupVersion() {
+        stateVersions.onGroupTopologyChanged(new GroupTopologyChangedEvent("upstairs"));
+        long upstairs = stateVersions.version(StateVersions.GROUP, "upstairs");
+
+        stateVersions.onGroupTopologyChanged(new GroupTopologyChangedEvent(null));
+
+        assertTrue(stateVersions.version(StateVersions.GROUP, "upstairs") > upstairs);
+        assertTrue(stateVersions.version(StateVersions.GROUP, "downstairs") > 0);
+        assertEquals(stateVersions.version(), stateVersions.version(StateVersions.GROUP));
+    }
+
+    private ResponseEntity<byte[]> getZones(String ifNoneMatch) {
+        return stateVersions.conditionalGet("zones", stateVersions.version(StateVersions.ZONE), ifNoneMatch, () -> {
+            loads.incrementAndGet();
+            return List.of("kitchen");
+        });
+    }
+}
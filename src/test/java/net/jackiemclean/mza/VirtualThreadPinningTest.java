@@ -0,0 +1,147 @@
+package net.jackiemclean.mza;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import net.jackiemclean.mza.jsonrpc.EncodedMessage;
+import net.jackiemclean.mza.jsonrpc.OutboundQueue;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Runs the control plane's shared structures from many virtual threads at once
+ * and fails if JFR reports a {@code jdk.VirtualThreadPinned} event, i.e. a
+ * virtual thread that blocked while stuck to its carrier. A pinned thread takes
+ * a carrier out of the pool, so under many concurrent clients pinning starves
+ * everyone else.
+ */
+class VirtualThreadPinningTest {
+
+    private static final String PINNED = "jdk.VirtualThreadPinned";
+    private static final int THREADS = 200;
+    private static final int ROUNDS = 50;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void testControlPlaneDoesNotPinCarriers() throws Exception {
+        List<RecordedEvent> pinned = new CopyOnWriteArrayList<>();
+        try (RecordingStream recording = new RecordingStream()) {
+            recording.enable(PINNED).withThreshold(Duration.ZERO).withStackTrace();
+            recording.onEvent(PINNED, pinned::add);
+            recording.startAsync();
+
+            runWorkload();
+
+            // Flushes everything recorded so far to the handler
+            recording.stop();
+        }
+
+        assertTrue(pinned.isEmpty(), () -> describe(pinned));
+    }
+
+    private void runWorkload() throws Exception {
+        // A slow backend: every sync blocks
+        AudioInterface slowBackend = new AudioInterface() {
+            @Override
+            public void sync(Zone zone, Source source, ZoneState zoneState) {
+                LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(200));
+            }
+        };
+        DebouncingAudioInterface debouncer = new DebouncingAudioInterface(slowBackend, 1);
+        PipewireGraphAccumulator accumulator = new PipewireGraphAccumulator();
+        ZoneActors actors = new ZoneActors();
+        // A slow client: every write blocks
+        OutboundQueue outbound = new OutboundQueue("pinning-test", "tcp", 16,
+                OutboundQueue.OverflowPolicy.COALESCE,
+                batch -> LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(200)), () -> {
+                });
+        outbound.start();
+
+        AtomicInteger volume = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int t = 0; t < THREADS; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    Zone zone = zone("zone" + thread % 8);
+                    Source source = source("source" + thread % 3);
+                    for (int round = 0; round < ROUNDS; round++) {
+                        debouncer.sync(zone, source, state(zone.getName(), round));
+                        accumulator.apply(chunk(thread * ROUNDS + round));
+                        accumulator.snapshot();
+                        actors.call(zone.getName(), () -> {
+                            // Blocks while holding the zone's turn
+                            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(50));
+                            return volume.incrementAndGet();
+                        });
+                        outbound.offerNotification(EncodedMessage.encode(objectMapper,
+                                Map.of("method", "Client.OnVolumeChanged", "round", round)));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            outbound.close();
+            debouncer.destroy();
+        }
+        assertEquals(THREADS * ROUNDS, volume.get());
+    }
+
+    private JsonNode chunk(int id) throws Exception {
+        return objectMapper.readTree("[{\"id\": " + (1000 + id % 64)
+                + ", \"type\": \"PipeWire:Interface:Node\", \"info\": {\"props\": {\"node.name\": \"node"
+                + id % 64 + "\"}}}]");
+    }
+
+    private static Zone zone(String name) {
+        Zone zone = new Zone();
+        zone.setName(name);
+        return zone;
+    }
+
+    private static Source source(String name) {
+        Source source = new Source();
+        source.setName(name);
+        return source;
+    }
+
+    private static ZoneState state(String zone, int volume) {
+        ZoneState state = new ZoneState();
+        state.setName(zone);
+        state.setVolume(volume);
+        return state;
+    }
+
+    private static String describe(List<RecordedEvent> events) {
+        StringBuilder description = new StringBuilder(events.size() + " pinned virtual thread(s):");
+        for (RecordedEvent event : events) {
+            description.append("\n  ").append(event.getDuration().toNanos() / 1000).append("us");
+            if (event.getStackTrace() != null) {
+                for (RecordedFrame frame : event.getStackTrace().getFrames()) {
+                    description.append("\n    at ").append(frame.getMethod().getType().getName())
+                            .append('.').append(frame.getMethod().getName())
+                            .append(':').append(frame.getLineNumber());
+                }
+            }
+        }
+        return description.toString();
+    }
+}
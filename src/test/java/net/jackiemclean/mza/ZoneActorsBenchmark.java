@@ -0,0 +1,89 @@
+package net.jackiemclean.mza;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Throughput of zone transitions through {@link ZoneActors} under contention:
+ * eight threads changing the same zone, each its own zone, or groups of zones,
+ * against a single global lock as the baseline. Each transition burns a little
+ * CPU in place of the read-sync-save work.
+ *
+ * Run with:
+ * {@code ./mvnw test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=net.jackiemclean.mza.ZoneActorsBenchmark}
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class ZoneActorsBenchmark {
+
+    private static final int WORK_TOKENS = 200;
+    private static final List<String> ZONES = List.of(
+            "living_room", "kitchen", "ground_floor_toilet", "main_bathroom",
+            "first_floor_toilet", "laundry_room", "office", "garage");
+
+    private final ZoneActors actors = new ZoneActors();
+    private final ReentrantLock globalLock = new ReentrantLock();
+    private final AtomicInteger threadIds = new AtomicInteger();
+
+    @State(Scope.Thread)
+    public static class ThreadZone {
+        String zone;
+        List<String> group;
+
+        @Setup
+        public void setUp(ZoneActorsBenchmark benchmark) {
+            int id = benchmark.threadIds.getAndIncrement();
+            zone = ZONES.get(id % ZONES.size());
+            // Pairs of neighbouring zones: each group overlaps two others
+            group = List.of(zone, ZONES.get((id + 1) % ZONES.size()));
+        }
+    }
+
+    @Benchmark
+    public Object sameZone() {
+        return actors.call("kitchen", ZoneActorsBenchmark::transition);
+    }
+
+    @Benchmark
+    public Object ownZone(ThreadZone threadZone) {
+        return actors.call(threadZone.zone, ZoneActorsBenchmark::transition);
+    }
+
+    @Benchmark
+    public Object overlappingGroups(ThreadZone threadZone) {
+        return actors.call(threadZone.group, ZoneActorsBenchmark::transition);
+    }
+
+    @Benchmark
+    public Object globalLockBaseline() {
+        globalLock.lock();
+        try {
+            return transition();
+        } finally {
+            globalLock.unlock();
+        }
+    }
+
+    private static Object transition() {
+        Blackhole.consumeCPU(WORK_TOKENS);
+        return null;
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(ZoneActorsBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,119 @@
+package net.jackiemclean.mza;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class ZoneActorsTest {
+
+    private final ZoneActors actors = new ZoneActors();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void testTasksOnOneZoneDoNotInterleave() throws Exception {
+        int[] volume = {0};
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 16; t++) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 500; i++) {
+                    actors.call("kitchen", () -> {
+                        // Read-modify-write with a yield in between: lost updates if interleaved
+                        int read = volume[0];
+                        Thread.yield();
+                        volume[0] = read + 1;
+                        return null;
+                    });
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+
+        assertEquals(16 * 500, volume[0]);
+        assertEquals(0, actors.busyZones());
+    }
+
+    @Test
+    void testDifferentZonesRunInParallel() throws Exception {
+        CountDownLatch kitchenStarted = new CountDownLatch(1);
+        CountDownLatch officeDone = new CountDownLatch(1);
+
+        Future<Boolean> kitchen = executor.submit(() -> actors.call("kitchen", () -> {
+            kitchenStarted.countDown();
+            try {
+                // Only finishes if the office task runs while this one holds the kitchen
+                return officeDone.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        }));
+        assertTrue(kitchenStarted.await(5, TimeUnit.SECONDS));
+        actors.call("office", () -> {
+            officeDone.countDown();
+            return null;
+        });
+
+        assertTrue(kitchen.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testGroupTaskWaitsForEachZone() throws Exception {
+        CountDownLatch kitchenStarted = new CountDownLatch(1);
+        CompletableFuture<Void> releaseKitchen = new CompletableFuture<>();
+        List<String> order = new ArrayList<>();
+
+        Future<?> kitchen = executor.submit(() -> actors.call("kitchen", () -> {
+            kitchenStarted.countDown();
+            releaseKitchen.join();
+            order.add("kitchen");
+            return null;
+        }));
+        assertTrue(kitchenStarted.await(5, TimeUnit.SECONDS));
+        Future<?> group = executor.submit(() -> actors.call(List.of("office", "kitchen"), () -> {
+            order.add("group");
+            return null;
+        }));
+
+        // The office is free, but the group also needs the kitchen
+        Thread.sleep(100);
+        assertFalse(group.isDone());
+        releaseKitchen.complete(null);
+        kitchen.get(5, TimeUnit.SECONDS);
+        group.get(5, TimeUnit.SECONDS);
+
+        assertEquals(List.of("kitchen", "group"), order);
+    }
+
+    @Test
+    void testFailedTaskReleasesTheZone() {
+        assertThrows(IllegalArgumentException.class, () -> actors.call("kitchen", () -> {
+            throw new IllegalArgumentException("bad volume");
+        }));
+
+        assertEquals("ok", actors.call("kitchen", () -> "ok"));
+        assertEquals(0, actors.busyZones());
+    }
+
+    @Test
+    void testNestedCallForHeldZoneRunsInline() {
+        assertEquals("inner", actors.call(List.of("kitchen", "office"),
+                () -> actors.call("kitchen", () -> "inner")));
+        assertThrows(IllegalStateException.class, () -> actors.call("kitchen",
+                () -> actors.call(List.of("kitchen", "office"), () -> "inner")));
+    }
+}
@@ -0,0 +1,193 @@
+package net.jackiemclean.mza;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@ExtendWith(MockitoExtension.class)
+class ZoneServiceTest {
+
+    @Mock
+    private ZoneStateRepository zoneStateRepository;
+    @Mock
+    private SourceRepository sourceRepository;
+    @Mock
+    private ZoneRepository zoneRepository;
+    @Mock
+    private ZoneRouter zoneRouter;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+    @Spy
+    private ZoneActors zoneActors = new ZoneActors();
+    @Spy
+    private TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+
+    @InjectMocks
+    private ZoneService zoneService;
+
+    private ZoneState kitchen;
+
+    @BeforeEach
+    void setUp() {
+        kitchen = new ZoneState();
+        kitchen.setName("kitchen");
+        kitchen.setSourceName("mpd");
+        kitchen.setVolume(20);
+        kitchen.setMuted(true);
+        Source mpd = new Source();
+        mpd.setName("mpd");
+        lenient().when(sourceRepository.findByName("mpd")).thenReturn(Optional.of(mpd));
+        lenient().when(zoneStateRepository.findById("kitchen")).thenReturn(Optional.of(kitchen));
+    }
+
+    @Test
+    void testVolumeAndMute_AppliedAsOneUpdate() {
+        ZoneState result = zoneService.applyChange("kitchen", new ZoneChange(55, false, null));
+
+        assertEquals(55, result.getVolume());
+        assertFalse(result.isMuted());
+        verify(zoneStateRepository, times(1)).findById("kitchen");
+        verify(zoneRouter, times(1)).syncZones(List.of(kitchen), Map.of());
+        verify(zoneStateRepository, times(1)).saveAll(List.of(kitchen));
+        verify(eventPublisher, times(1)).publishEvent(any(ZoneStateChangedEvent.class));
+    }
+
+    @Test
+    void testSourceChangeWhileUnmuted_SyncedAsRouteSwitch() {
+        kitchen.setMuted(false);
+        Source upnp = new Source();
+        upnp.setName("upnp1");
+        when(sourceRepository.findByName("upnp1")).thenReturn(Optional.of(upnp));
+
+        ZoneState result = zoneService.applyChange("kitchen", new ZoneChange(30, null, "upnp1"));
+
+        assertEquals("upnp1", result.getSourceName());
+        assertEquals(30, result.getVolume());
+        assertFalse(result.isMuted());
+        verify(zoneRouter, times(1)).syncZones(List.of(kitchen), Map.of("kitchen", "mpd"));
+        verify(zoneStateRepository, times(1)).saveAll(List.of(kitchen));
+        verify(eventPublisher, times(1)).publishEvent(any(ZoneStateChangedEvent.class));
+    }
+
+    @Test
+    void testUnchangedState_NoSyncOrWrite() {
+        zoneService.applyChange("kitchen", new ZoneChange(20, true, null));
+
+        verifyNoInteractions(zoneRouter, eventPublisher);
+        verify(zoneStateRepository, never()).saveAll(any());
+    }
+
+    @Test
+    void testComputedChange_ClampsVolume() {
+        ZoneState result = zoneService.applyChange("kitchen", state -> ZoneChange.volume(state.getVolume() + 90));
+
+        assertEquals(100, result.getVolume());
+    }
+
+    @Test
+    void testUnknownSource_Rejected() {
+        when(sourceRepository.findByName("nope")).thenReturn(Optional.empty());
+
+        assertThrows(RuntimeException.class, () -> zoneService.applyChange("kitchen", ZoneChange.source("nope")));
+        verify(zoneStateRepository, never()).saveAll(any());
+    }
+
+    @Test
+    void testBulkChanges_OneSyncAndOneWrite() {
+        ZoneState lounge = new ZoneState();
+        lounge.setName("lounge");
+        lounge.setSourceName("mpd");
+        lounge.setVolume(50);
+        when(zoneStateRepository.findById("lounge")).thenReturn(Optional.of(lounge));
+
+        List<ZoneState> result = zoneService.applyChanges(List.of(
+                new ZoneUpdate("kitchen", ZoneChange.muted(false)),
+                new ZoneUpdate("lounge", ZoneChange.volume(10))));
+
+        assertEquals(List.of(kitchen, lounge), result);
+        verify(zoneRouter, times(1)).syncZones(List.of(kitchen, lounge), Map.of());
+        verify(zoneStateRepository, times(1)).saveAll(List.of(kitchen, lounge));
+        verify(eventPublisher, times(2)).publishEvent(any(ZoneStateChangedEvent.class));
+    }
+
+    @Test
+    void testBulkChanges_ValidatedBeforeAnyChange() {
+        when(zoneStateRepository.findById("nowhere")).thenReturn(Optional.empty());
+
+        assertThrows(RuntimeException.class, () -> zoneService.applyChanges(List.of(
+                new ZoneUpdate("kitchen", ZoneChange.volume(80)),
+                new ZoneUpdate("nowhere", ZoneChange.volume(80)))));
+
+        assertEquals(20, kitchen.getVolume());
+        verifyNoInteractions(zoneRouter, eventPublisher);
+    }
+
+    @Test
+    void testConcurrentIncrements_NoLostUpdates() throws Exception {
+        kitchen.setVolume(0);
+        int threads = 8;
+        int increments = 10;
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(threads)) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < increments; i++) {
+                        zoneService.applyChange("kitchen", state -> ZoneChange.volume(state.getVolume() + 1));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+
+        ZoneState result = zoneService.applyChange("kitchen", state -> ZoneChange.volume(state.getVolume()));
+        assertEquals(threads * increments, result.getVolume());
+        // Read from the database once, then served from memory
+        verify(zoneStateRepository, times(1)).findById("kitchen");
+        verify(zoneStateRepository, times(threads * increments)).saveAll(anyList());
+    }
+
+    @Test
+    void testFailedChange_KeepsCommittedState() {
+        zoneService.applyChange("kitchen", ZoneChange.volume(40));
+        doThrow(new RuntimeException("backend down")).when(zoneRouter).syncZones(anyCollection(), anyMap());
+
+        assertThrows(RuntimeException.class, () -> zoneService.applyChange("kitchen", ZoneChange.volume(90)));
+
+        doNothing().when(zoneRouter).syncZones(anyCollection(), anyMap());
+        ZoneState result = zoneService.applyChange("kitchen", state -> ZoneChange.volume(state.getVolume() + 1));
+        assertEquals(41, result.getVolume());
+    }
+
+    @Test
+    void testReset_ForgetsState() {
+        zoneService.applyChange("kitchen", ZoneChange.volume(40));
+
+        zoneService.reset("kitchen");
+
+        verify(zoneStateRepository).deleteById("kitchen");
+        verify(eventPublisher).publishEvent(new ZoneStateChangedEvent("kitchen", null));
+        zoneService.applyChange("kitchen", state -> ZoneChange.volume(state.getVolume()));
+        verify(zoneStateRepository, times(2)).findById("kitchen");
+    }
+}
@@ -0,0 +1,192 @@
+package net.jackiemclean.mza;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+class ZoneSourceCatalogueTest {
+
+    private static final int ZONES = 5_000;
+    private static final int SOURCES = 2_000;
+
+    private ZoneSourceRegistry registry;
+    private ZoneRouter zoneRouter;
+    private AudioInterface audioInterface;
+    private ZoneStateRepository zoneStateRepository;
+    private ZoneCatalogueRepository zoneStore;
+    private SourceCatalogueRepository sourceStore;
+    private ZoneSourceCatalogue catalogue;
+
+    @BeforeEach
+    void setUp() {
+        List<Zone> zones = new ArrayList<>();
+        for (int i = 0; i < ZONES; i++) {
+            zones.add(zone(String.format("zone%04d", i)));
+        }
+        List<Source> sources = new ArrayList<>();
+        for (int i = 0; i < SOURCES; i++) {
+            sources.add(source(String.format("source%04d", i)));
+        }
+        ZoneConfig zoneConfig = new ZoneConfig();
+        zoneConfig.setZones(zones);
+        SourceConfig sourceConfig = new SourceConfig();
+        sourceConfig.setSources(sources);
+        registry = new ZoneSourceRegistry(zoneConfig, sourceConfig, "mza/zone/");
+
+        zoneRouter = mock(ZoneRouter.class);
+        zoneStateRepository = mock(ZoneStateRepository.class);
+        audioInterface = mock(AudioInterface.class);
+        when(audioInterface.warmStart(anyList(), anyCollection())).thenReturn(new AudioInterface.WarmStart(0, 1, 1));
+        when(zoneRouter.reconcile(anyCollection())).thenReturn(new AudioInterface.WarmStart(0, 1, 2));
+
+        ZoneSourceReloader reloader = new ZoneSourceReloader();
+        ReflectionTestUtils.setField(reloader, "registry", registry);
+        ReflectionTestUtils.setField(reloader, "zoneRouter", zoneRouter);
+        ReflectionTestUtils.setField(reloader, "audioInterface", audioInterface);
+        ReflectionTestUtils.setField(reloader, "zoneStateRepository", zoneStateRepository);
+        ReflectionTestUtils.setField(reloader, "groupService", mock(GroupService.class));
+        ReflectionTestUtils.setField(reloader, "zoneActors", new ZoneActors());
+        ReflectionTestUtils.setField(reloader, "stateVersions", mock(StateVersions.class));
+        ReflectionTestUtils.setField(reloader, "eventPublisher", mock(ApplicationEventPublisher.class));
+        ReflectionTestUtils.setField(reloader, "reloadFile", "");
+
+        zoneStore = mock(ZoneCatalogueRepository.class);
+        sourceStore = mock(SourceCatalogueRepository.class);
+        catalogue = new ZoneSourceCatalogue();
+        ReflectionTestUtils.setField(catalogue, "registry", registry);
+        ReflectionTestUtils.setField(catalogue, "reloader", reloader);
+        ReflectionTestUtils.setField(catalogue, "zoneStore", zoneStore);
+        ReflectionTestUtils.setField(catalogue, "sourceStore", sourceStore);
+        ReflectionTestUtils.setField(catalogue, "transactionTemplate",
+                new TransactionTemplate(mock(PlatformTransactionManager.class)));
+        ReflectionTestUtils.setField(catalogue, "store", ZoneSourceCatalogue.Store.DATABASE);
+    }
+
+    @Test
+    void testAddZoneAmongThousandsReconcilesOnlyThatZone() {
+        Zone added = zone("zone2500a");
+
+        ZoneSourceReloader.Result result = catalogue.addZone(added);
+
+        assertEquals(Set.of("zone2500a"), result.addedZones());
+        assertEquals(1, result.reconciledZones());
+        verify(zoneStore).save(added);
+        verify(zoneRouter).reconcile(List.of(added));
+        // Stored state of the other zones is not read
+        verify(zoneStateRepository, never()).findAll();
+        verify(zoneStateRepository, never()).findAllById(anyIterable());
+
+        assertSame(added, registry.zone("zone2500a").orElseThrow());
+        assertEquals(ZONES + 1, registry.zones().size());
+        // Kept in name order, so it lands right after zone2500
+        ZoneSourceCatalogue.Listing<Zone> page = catalogue.zones(25, 100);
+        assertEquals(ZONES + 1, page.total());
+        assertEquals(List.of("zone2500", "zone2500a", "zone2501"),
+                page.items().subList(0, 3).stream().map(Zone::getName).toList());
+    }
+
+    @Test
+    void testFailedReloadRevertsRowAndRegistry() {
+        when(zoneRouter.reconcile(anyCollection())).thenThrow(new RuntimeException("backend down"));
+        Zone added = zone("zone2500a");
+
+        assertThrows(RuntimeException.class, () -> catalogue.addZone(added));
+
+        verify(zoneStore).save(added);
+        verify(zoneStore).deleteById("zone2500a");
+        assertTrue(registry.zone("zone2500a").isEmpty());
+        assertEquals(ZONES, registry.zones().size());
+    }
+
+    @Test
+    void testRemoveSource() {
+        ZoneSourceReloader.Result result = catalogue.removeSource("source0001");
+
+        assertEquals(Set.of("source0001"), result.removedSources());
+        verify(sourceStore).deleteById("source0001");
+        assertTrue(registry.source("source0001").isEmpty());
+        assertEquals(SOURCES - 1, registry.sources().size());
+        assertTrue(registry.zone("zone4999").isPresent());
+    }
+
+    @Test
+    void testRejectsDuplicatesAndUnknownNames() {
+        assertThrows(IllegalArgumentException.class, () -> catalogue.addZone(zone("zone0001")));
+        assertThrows(IllegalArgumentException.class, () -> catalogue.addSource(source(" ")));
+        assertThrows(IllegalArgumentException.class, () -> catalogue.removeZone("attic"));
+        verifyNoInteractions(zoneStore, sourceStore, zoneRouter);
+    }
+
+    @Test
+    void testYamlStoreIsReadOnly() {
+        ReflectionTestUtils.setField(catalogue, "store", ZoneSourceCatalogue.Store.YAML);
+
+        assertFalse(catalogue.isWritable());
+        assertThrows(ResponseStatusException.class, () -> catalogue.addSource(source("tv")));
+        assertThrows(ResponseStatusException.class, () -> catalogue.removeZone("zone0001"));
+        verifyNoInteractions(zoneStore, sourceStore);
+        assertEquals(100, catalogue.sources(0, 100).items().size());
+    }
+
+    @Test
+    void testPaging() {
+        ZoneSourceCatalogue.Listing<Source> last = catalogue.sources(19, 100);
+        assertEquals("source1900", last.items().get(0).getName());
+        assertEquals(100, last.items().size());
+        assertTrue(catalogue.sources(20, 100).items().isEmpty());
+        assertTrue(catalogue.sources(Integer.MAX_VALUE, 1000).items().isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> catalogue.sources(0, 0));
+        assertThrows(IllegalArgumentException.class, () -> catalogue.sources(-1, 10));
+    }
+
+    @Test
+    void testInitSeedsEmptyDatabaseThenLoadsFromIt() {
+        List<Zone> configuredZones = registry.zones();
+        List<Source> configuredSources = registry.sources();
+        when(zoneStore.findAll(any(Sort.class))).thenReturn(List.of(zone("attic")));
+        when(sourceStore.findAll(any(Sort.class))).thenReturn(List.of(source("tv")));
+
+        catalogue.init();
+
+        verify(zoneStore).saveAll(configuredZones);
+        verify(sourceStore).saveAll(configuredSources);
+        assertEquals(List.of("attic"), registry.zones().stream().map(Zone::getName).toList());
+        assertEquals("tv", registry.source("tv").orElseThrow().getName());
+    }
+
+    private static Zone zone(String name) {
+        Zone zone = new Zone();
+        zone.setName(name);
+        Output left = new Output();
+        left.setName(name + " L");
+        Output right = new Output();
+        right.setName(name + " R");
+        zone.setLeftOutput(left);
+        zone.setRightOutput(right);
+        return zone;
+    }
+
+    private static Source source(String name) {
+        Source source = new Source();
+        source.setName(name);
+        Input left = new Input();
+        left.setName(name + " L");
+        Input right = new Input();
+        right.setName(name + " R");
+        source.setLeftInput(left);
+        source.setRightInput(right);
+        return source;
+    }
+}
@@ -0,0 +1,69 @@
+package net.jackiemclean.mza;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class ZoneSourceRegistryTest {
+
+    @Test
+    void testLooksUpByNameInConfigOrder() {
+        ZoneSourceRegistry registry = registry(
+                List.of(zone("kitchen", "first"), zone("office", null), zone("kitchen", "second")),
+                List.of(source("mpd"), source("upnp1")));
+
+        assertEquals("first", registry.zone("kitchen").orElseThrow().getDescription());
+        assertTrue(registry.zone("attic").isEmpty());
+        assertTrue(registry.zone(null).isEmpty());
+        assertEquals(List.of("kitchen", "office"), registry.zones().stream().map(Zone::getName).toList());
+        assertEquals("upnp1", registry.source("upnp1").orElseThrow().getName());
+        assertEquals(List.of("mpd", "upnp1"), registry.sources().stream().map(Source::getName).toList());
+    }
+
+    @Test
+    void testPrecomputesZoneTopics() {
+        ZoneSourceRegistry registry = registry(List.of(zone("kitchen", null)), List.of());
+
+        assertEquals(new ZoneSourceRegistry.ZoneTopics("mza/zone/kitchen", "mza/zone/kitchen/sourceName",
+                "mza/zone/kitchen/volume", "mza/zone/kitchen/muted", "mza/zone/kitchen/description"),
+                registry.zoneTopics("kitchen"));
+        assertNull(registry.zoneTopics("attic"));
+    }
+
+    @Test
+    void testManyZones() {
+        List<Zone> zones = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            zones.add(zone("zone" + i, null));
+        }
+        ZoneSourceRegistry registry = registry(zones, List.of(source("mpd")));
+
+        assertEquals(5_000, registry.zones().size());
+        for (int i = 0; i < 5_000; i++) {
+            assertEquals("zone" + i, registry.zone("zone" + i).orElseThrow().getName());
+        }
+    }
+
+    private static ZoneSourceRegistry registry(List<Zone> zones, List<Source> sources) {
+        ZoneConfig zoneConfig = new ZoneConfig();
+        zoneConfig.setZones(zones);
+        SourceConfig sourceConfig = new SourceConfig();
+        sourceConfig.setSources(sources);
+        return new ZoneSourceRegistry(zoneConfig, sourceConfig, "mza/zone/");
+    }
+
+    private static Zone zone(String name, String description) {
+        Zone zone = new Zone();
+        zone.setName(name);
+        zone.setDescription(description);
+        return zone;
+    }
+
+    private static Source source(String name) {
+        Source source = new Source();
+        source.setName(name);
+        return source;
+    }
+}
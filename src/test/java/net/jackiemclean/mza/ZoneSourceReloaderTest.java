@@ -0,0 +1,182 @@
+package net.jackiemclean.mza;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class ZoneSourceReloaderTest {
+
+    private ZoneSourceRegistry registry;
+    private ZoneRouter zoneRouter;
+    private AudioInterface audioInterface;
+    private ZoneStateRepository zoneStateRepository;
+    private GroupService groupService;
+    private ApplicationEventPublisher eventPublisher;
+    private ZoneSourceReloader reloader;
+
+    @BeforeEach
+    void setUp() {
+        ZoneConfig zoneConfig = new ZoneConfig();
+        zoneConfig.setZones(List.of(zone("kitchen", "Out1", "Out2"), zone("office", "Out3", "Out4")));
+        SourceConfig sourceConfig = new SourceConfig();
+        sourceConfig.setSources(List.of(source("mpd", "In1", "In2")));
+        registry = new ZoneSourceRegistry(zoneConfig, sourceConfig, "mza/zone/");
+
+        zoneRouter = mock(ZoneRouter.class);
+        audioInterface = mock(AudioInterface.class);
+        zoneStateRepository = mock(ZoneStateRepository.class);
+        groupService = mock(GroupService.class);
+        eventPublisher = mock(ApplicationEventPublisher.class);
+        when(zoneRouter.reconcile(anyCollection())).thenReturn(new AudioInterface.WarmStart(0, 1, 2));
+        when(audioInterface.warmStart(anyList(), anyCollection())).thenReturn(new AudioInterface.WarmStart(0, 1, 1));
+        ZoneState kitchen = new ZoneState();
+        kitchen.setName("kitchen");
+        kitchen.setSourceName("mpd");
+        kitchen.setVolume(40);
+        when(zoneStateRepository.findAllById(anyIterable())).thenReturn(List.of(kitchen));
+
+        reloader = new ZoneSourceReloader();
+        ReflectionTestUtils.setField(reloader, "registry", registry);
+        ReflectionTestUtils.setField(reloader, "zoneRouter", zoneRouter);
+        ReflectionTestUtils.setField(reloader, "audioInterface", audioInterface);
+        ReflectionTestUtils.setField(reloader, "zoneStateRepository", zoneStateRepository);
+        ReflectionTestUtils.setField(reloader, "groupService", groupService);
+        ReflectionTestUtils.setField(reloader, "zoneActors", new ZoneActors());
+        ReflectionTestUtils.setField(reloader, "stateVersions", mock(StateVersions.class));
+        ReflectionTestUtils.setField(reloader, "eventPublisher", eventPublisher);
+        ReflectionTestUtils.setField(reloader, "reloadFile", "");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testReconcilesOnlyChangedZones() {
+        ZoneSourceReloader.Result result = reloader.reload(
+                List.of(zone("kitchen", "Out5", "Out6"), zone("office", "Out3", "Out4"), zone("attic", "Out7", "Out8")),
+                List.of(source("mpd", "In1", "In2")));
+
+        assertEquals(Set.of("attic"), result.addedZones());
+        assertEquals(Set.of("kitchen"), result.changedZones());
+        assertEquals(Set.of(), result.removedZones());
+        assertEquals(2, result.reconciledZones());
+        assertEquals(3, result.commands());
+
+        // The redefined zone is muted on its old outputs before the registry forgets them
+        InOrder inOrder = inOrder(audioInterface, groupService, zoneRouter);
+        ArgumentCaptor<List<ZoneSync>> mutes = ArgumentCaptor.forClass(List.class);
+        inOrder.verify(audioInterface).warmStart(mutes.capture(), anyCollection());
+        inOrder.verify(groupService).reconcileZones(Set.of("attic"), Set.of());
+        ArgumentCaptor<Collection<Zone>> reconciled = ArgumentCaptor.forClass(Collection.class);
+        inOrder.verify(zoneRouter).reconcile(reconciled.capture());
+
+        ZoneSync mute = mutes.getValue().get(0);
+        assertEquals(1, mutes.getValue().size());
+        assertEquals("Out1", mute.zone().getLeftOutput().getName());
+        assertTrue(mute.zoneState().isMuted());
+        assertEquals(List.of("attic", "kitchen"), reconciled.getValue().stream().map(Zone::getName).toList());
+        assertEquals("Out5", registry.zone("kitchen").orElseThrow().getLeftOutput().getName());
+        verify(eventPublisher).publishEvent(new CatalogueChangedEvent(Set.of("attic", "kitchen"), false));
+    }
+
+    @Test
+    void testRemovedZoneIsSilencedAndUngrouped() {
+        ZoneSourceReloader.Result result = reloader.reload(
+                List.of(zone("office", "Out3", "Out4")), List.of(source("mpd", "In1", "In2")));
+
+        assertEquals(Set.of("kitchen"), result.removedZones());
+        assertTrue(registry.zone("kitchen").isEmpty());
+        verify(audioInterface).warmStart(argThat(syncs -> syncs.size() == 1
+                && syncs.get(0).zone().getName().equals("kitchen") && syncs.get(0).zoneState().isMuted()),
+                anyCollection());
+        verify(groupService).reconcileZones(Set.of(), Set.of("kitchen"));
+        verify(zoneRouter).publishZoneRemoval("kitchen");
+        verify(zoneRouter, never()).reconcile(anyCollection());
+    }
+
+    @Test
+    void testUnchangedConfigurationTouchesNothing() {
+        ZoneSourceReloader.Result result = reloader.reload(
+                List.of(zone("kitchen", "Out1", "Out2"), zone("office", "Out3", "Out4")),
+                List.of(source("mpd", "In1", "In2")));
+
+        assertEquals(0, result.reconciledZones());
+        verifyNoInteractions(audioInterface, groupService, eventPublisher);
+        verify(zoneRouter, never()).reconcile(anyCollection());
+    }
+
+    @Test
+    void testInvalidConfigurationIsRejected() {
+        Zone broken = zone("attic", "Out7", "Out8");
+        broken.setRightOutput(null);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> reloader.reload(List.of(broken), List.of(source("mpd", "In1", "In2"))));
+        assertTrue(registry.zone("kitchen").isPresent());
+        verifyNoInteractions(audioInterface);
+    }
+
+    @Test
+    void testReloadsFromYamlFile(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("zones.yaml");
+        Files.writeString(file, """
+                zones:
+                  - name: kitchen
+                    left:
+                      name: Out1
+                    right:
+                      name: Out2
+                  - name: attic
+                    description: Attic speakers
+                    left:
+                      name: Out7
+                    right:
+                      name: Out8
+                """);
+        ReflectionTestUtils.setField(reloader, "reloadFile", file.toString());
+
+        ZoneSourceReloader.Result result = reloader.reloadFromFile();
+
+        assertEquals(Set.of("attic"), result.addedZones());
+        assertEquals(Set.of("office"), result.removedZones());
+        // No sources in the file: kept as they were
+        assertEquals(List.of("mpd"), registry.sources().stream().map(Source::getName).toList());
+        assertEquals("Attic speakers", registry.zone("attic").orElseThrow().getDescription());
+        assertEquals("Out8", registry.zone("attic").orElseThrow().getRightOutput().getName());
+    }
+
+    private static Zone zone(String name, String left, String right) {
+        Zone zone = new Zone();
+        zone.setName(name);
+        Output l = new Output();
+        l.setName(left);
+        Output r = new Output();
+        r.setName(right);
+        zone.setLeftOutput(l);
+        zone.setRightOutput(r);
+        return zone;
+    }
+
+    private static Source source(String name, String left, String right) {
+        Source source = new Source();
+        source.setName(name);
+        Input l = new Input();
+        l.setName(left);
+        Input r = new Input();
+        r.setName(right);
+        source.setLeftInput(l);
+        source.setRightInput(r);
+        return source;
+    }
+}